@@ -2,6 +2,7 @@
 --has_next	:avrora		:LDFTS		:100000/0.1		:-Xmx2048m
 --has_next	:avrora		:BFLGS		:10000/0.1		:-Xmx2048m
 --has_next	:avrora		:OBFLGS		:200000/0.1		:-Xmx2048m
+--has_next	:avrora		:BBFLGS		:200000/0.1		:-Xmx2048m
 --has_next	:avrora		:FBFLGS		:10000000/0.1	:-Xmx2048m
 --has_next	:avrora		:GBFLGS		:1000000/0.1	:-Xmx2048m
 --has_next	:hnp_custom	:LDFTS		:10000/0.1		:-Xmx2048m
@@ -73,6 +74,22 @@ has_next 	:tradebeans	:FBFLGS		:100000/0.1		:-Xmx2048m
 has_next 	:tradesoap	:FBFLGS		:100000/0.1		:-Xmx2048m
 has_next 	:xalan		:FBFLGS		:100000/0.1		:-Xmx2048m
 has_next 	:hnp_custom	:FBFLGS		:100000/0.1		:-Xmx2048m
+-- BBFLGS -----------------------------------------------------
+--has_next 	:avrora		:BBFLGS		:200000/0.1		:-Xmx2048m
+--has_next 	:batik		:BBFLGS		:200000/0.1		:-Xmx2048m
+--has_next 	:eclipse	:BBFLGS		:200000/0.1		:-Xmx2048m
+--has_next 	:fop		:BBFLGS		:200000/0.1		:-Xmx2048m
+--has_next 	:h2			:BBFLGS		:200000/0.1		:-Xmx2048m
+--has_next 	:jython		:BBFLGS		:200000/0.1		:-Xmx2048m
+--has_next 	:luindex	:BBFLGS		:200000/0.1		:-Xmx2048m
+--has_next 	:lusearch	:BBFLGS		:200000/0.1		:-Xmx2048m
+--has_next 	:pmd		:BBFLGS		:200000/0.1		:-Xmx2048m
+--has_next 	:sunflow	:BBFLGS		:200000/0.1		:-Xmx2048m
+--has_next 	:tomcat		:BBFLGS		:200000/0.1		:-Xmx2048m
+--has_next 	:tradebeans	:BBFLGS		:200000/0.1		:-Xmx2048m
+--has_next 	:tradesoap	:BBFLGS		:200000/0.1		:-Xmx2048m
+--has_next 	:xalan		:BBFLGS		:200000/0.1		:-Xmx2048m
+--has_next 	:hnp_custom	:BBFLGS		:200000/0.1		:-Xmx2048m
 -- GBFLGS -----------------------------------------------------
 --has_next 	:avrora		:GBFLGS		:all			:-Xmx2048m
 --has_next 	:batik		:GBFLGS		:all			:-Xmx2048m
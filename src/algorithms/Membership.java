@@ -1,7 +1,6 @@
 package algorithms;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -11,20 +10,38 @@ import java.util.Stack;
 
 import testbench.Testbench;
 import testbench.lister.LargeFileLister;
+import algorithms.membership.BucketQueue;
+import algorithms.membership.DeterministicSearch;
+import algorithms.membership.IncrementalSearch;
 import algorithms.membership.MBSDecisionAlgorithm;
-import algorithms.membership.PrioritySet;
 import algorithms.membership.SearchNode;
 import algorithms.membership.SearchState;
+import algorithms.membership.arena.ArenaConfiguration;
+import algorithms.membership.arena.ArenaSearch;
+import algorithms.membership.arena.CountingSearch;
 import algorithms.membership.bflgs.BFLGSSearchNode;
 import algorithms.membership.bflgs.BFLGSSearchState;
+import algorithms.membership.bitset.BitsetSearch;
+import algorithms.membership.bitset.StateSetTransitions;
+import algorithms.membership.compiled.BytecodeCompiler;
+import algorithms.membership.compiled.CompilationException;
+import algorithms.membership.compiled.CompiledAutomaton;
+import algorithms.membership.dfs.MemoisedDfs;
 import algorithms.membership.greedy.GreedyConfiguration;
 import algorithms.membership.greedy.GreedyFrontier;
+import algorithms.membership.greedy.GreedySearch;
+import algorithms.membership.obflgs.ConfigurationTable;
 import algorithms.membership.obflgs.OBFLGSSearchState;
+import algorithms.membership.obflgs.TableSearch;
+import algorithms.membership.pbflgs.LevelExpander;
+import algorithms.membership.portfolio.PortfolioAlgorithm;
+import algorithms.membership.slicing.SlicingAlgorithm;
+import algorithms.membership.slicing.SlicingSearch;
+import algorithms.tools.Lookahead;
 import algorithms.tools.ResultsContainer;
 import automata.Automaton;
 import automata.OptimisedRA;
 import automata.RegisterAutomaton;
-import automata.State;
 import automata.greedy.GreedyRA;
 import automata.hra.HRAutomaton;
 
@@ -39,35 +56,22 @@ public class Membership {
 		
 		@Override
 		public boolean decide(Automaton a, List<Integer> w) {
-			RegisterAutomaton automaton = (RegisterAutomaton) a;
-			State currentState = automaton.getInitialState();
-			int[] registers = automaton.getInitialRegisters();
-			int containingRegister = 0;
-			Integer assignmentRegister = 0;
+			DeterministicSearch search = new DeterministicSearch((RegisterAutomaton) a);
 			
 			//Simply follow the path
 			for(int symbol : w) {
-				//If our registers do not contain the current symbol
-				if((containingRegister = Tools.registersContain(registers, symbol)) < 0) {
-					//If a rho value is defined
-					if((assignmentRegister = automaton.getAssignmentRegister(currentState)) != null) {
-						containingRegister = assignmentRegister;
-						registers[containingRegister] = symbol;
-					}
-				}
-				
-				//Make transition if possible
-				List<State> nextStates = automaton.getNextStates(currentState, containingRegister);
-				if(nextStates == null)
+				search.read(symbol);
+				if(search.isDead())
 					//If we can't go any further
 					return false;
-				else {
-					//Else make transition
-					currentState = nextStates.get(0);
-				}
 			}
 			
-			return currentState.isFinal;
+			return search.accepts();
+		}
+		
+		@Override
+		public IncrementalSearch startSearch(Context c) {
+			return new DeterministicSearch((RegisterAutomaton) c.automaton);
 		}
 
 		@Override
@@ -77,6 +81,44 @@ public class Membership {
 		}
 	};
 	
+	/**
+	 * The same as {@link #deterministicCheck}, run by a class generated for the automaton
+	 * (see {@link BytecodeCompiler}): no table lookups, no register array. Automata that
+	 * cannot be compiled (methods over the 64KB limit, ...) are run by {@link #deterministicCheck}.
+	 */
+	public static final MBSDecisionAlgorithm compiledDeterministicCheck = new MBSDecisionAlgorithm("Compiled-det-mbs") {
+		private int fallbacks = 0;
+		
+		@Override
+		public boolean decide(Automaton a, List<Integer> w) {
+			return decide(newContext(a), w);
+		}
+		
+		@Override
+		public boolean decide(Context c, List<Integer> w) {
+			if(c instanceof CompiledContext)
+				return ((CompiledContext) c).compiled.decide(w);
+			return deterministicCheck.decide(c, w);
+		}
+		
+		@Override
+		protected Context newContext(Automaton a) {
+			try {
+				return new CompiledContext(a, BytecodeCompiler.compile((RegisterAutomaton) a));
+			} catch (CompilationException e) {
+				fallbacks++;
+				return deterministicCheck.createContext(a);
+			}
+		}
+
+		@Override
+		protected void yieldStatistics(String sessionName, ResultsContainer rc) {
+			rc.addSessionNumber(sessionName, "compilations", BytecodeCompiler.getCompilations());
+			rc.addSessionNumber(sessionName, "cache hits", BytecodeCompiler.getCacheHits());
+			rc.addSessionNumber(sessionName, "fallbacks", fallbacks);
+		}
+	};
+	
 	/**
 	 * A first naïve version of nondeterministic membership checking, by performing a
 	 * Limited Depth-First Tree Search into the automaton graph; see the ldfts package
@@ -85,10 +127,20 @@ public class Membership {
 	public static final MBSDecisionAlgorithm ldftsCheck = new MBSDecisionAlgorithm("Ldfts-mbs") {
 		private int maxFrontierSize = 0;
 		private int goals = 0;
+		private long runs = 0;
 		
 		@Override
 		public boolean decide(Automaton a, List<Integer> word) {
 			RegisterAutomaton automaton = (RegisterAutomaton) a;
+			
+			//Counting mode: runs are summed over merged configurations, not enumerated
+			if(isCounting()) {
+				CountingSearch search = CountingSearch.read(automaton, word);
+				runs = search.countAcceptingRuns();
+				goals = (int) Math.min(runs, Integer.MAX_VALUE);
+				return search.accepts();
+			}
+			
 			//Depth-first search implies a stack storing the frontier
 			Stack<SearchNode> frontier = new Stack<>();
 			SearchState initialSearchState = new SearchState(automaton.getInitialState(), 
@@ -97,14 +149,14 @@ public class Membership {
 			frontier.add(new SearchNode(initialSearchState, null, -1));
 			
 			//Main search loop
-			goals = 0;
+			int found = 0;
 			while(!frontier.isEmpty()) {
 				if(Testbench.COLLECT_STATS)
 					maxFrontierSize = Math.max(maxFrontierSize, frontier.size());
 				
 				SearchNode node = frontier.pop();
 				if(node.state.isFinal()) {
-					goals++;
+					found++;
 				}
 				
 				List<SearchState> nextStates = node.state.expand();
@@ -114,7 +166,8 @@ public class Membership {
 				}
 			}
 			
-			return goals > 0;
+			goals = found;
+			return found > 0;
 		}
 
 		@Override
@@ -122,9 +175,14 @@ public class Membership {
 			SearchNode.yieldStatistics(sessionName, rc);
 			rc.addSessionNumber(sessionName, "frontier size", maxFrontierSize);
 			rc.addSessionNumber(sessionName, "error configs", goals);
+			if(isCounting()) {
+				rc.addSessionNumber(sessionName, "accepting runs", (int) Math.min(runs, Integer.MAX_VALUE));
+				CountingSearch.yieldStatistics(sessionName, rc);
+			}
 			
 			maxFrontierSize = 0;
 			goals = 0;
+			runs = 0;
 		}
 	};
 	
@@ -134,9 +192,19 @@ public class Membership {
 	public static final MBSDecisionAlgorithm bfsCheck = new MBSDecisionAlgorithm("Bfs-mbs") {
 		private int maxFrontierSize = 0;
 		private int goals = 0;
+		private long runs = 0;
 		
 		public boolean decide(Automaton a, List<Integer> word) {
 			RegisterAutomaton automaton = (RegisterAutomaton) a;
+			
+			//Counting mode: runs are summed over merged configurations, not enumerated
+			if(isCounting()) {
+				CountingSearch search = CountingSearch.read(automaton, word);
+				runs = search.countAcceptingRuns();
+				goals = (int) Math.min(runs, Integer.MAX_VALUE);
+				return search.accepts();
+			}
+			
 			//Breadth-first search implies a queue storing the frontier
 			Queue<SearchNode> frontier = new LinkedList<>();
 			SearchState initialSearchState = new SearchState(automaton.getInitialState(), 
@@ -145,14 +213,14 @@ public class Membership {
 			frontier.add(new SearchNode(initialSearchState, null, -1));
 			
 			//Main search loop
-			goals = 0;
+			int found = 0;
 			while(!frontier.isEmpty()) {
 				if(Testbench.COLLECT_STATS)
 					maxFrontierSize = Math.max(maxFrontierSize, frontier.size());
 				
 				SearchNode node = frontier.poll();
 				if(node.state.isFinal()) {
-					goals++;
+					found++;
 				}
 				
 				List<SearchState> nextStates = node.state.expand();
@@ -162,7 +230,8 @@ public class Membership {
 				}
 			}
 			
-			return goals > 0;
+			goals = found;
+			return found > 0;
 		}
 
 		@Override
@@ -170,9 +239,14 @@ public class Membership {
 			SearchNode.yieldStatistics(sessionName, rc);
 			rc.addSessionNumber(sessionName, "frontier size", maxFrontierSize);
 			rc.addSessionNumber(sessionName, "error configs", goals);
+			if(isCounting()) {
+				rc.addSessionNumber(sessionName, "accepting runs", (int) Math.min(runs, Integer.MAX_VALUE));
+				CountingSearch.yieldStatistics(sessionName, rc);
+			}
 			
 			maxFrontierSize = 0;
 			goals = 0;
+			runs = 0;
 		}
 	};
 	
@@ -180,15 +254,32 @@ public class Membership {
 	 * A second naïve version of nondeterministic membership checking, performing a
 	 * Breadth-First Local Graph Search into the automaton graph;  
 	 * BFLGS implies a double-set structure as a frontier. 
+	 * When canonicalising (see {@link MBSDecisionAlgorithm#setCanonicalising(boolean)}),
+	 * states only differing by dead register values are merged, the "raw frontier size"
+	 * statistic being the largest frontier before merging. In counting mode (see
+	 * {@link MBSDecisionAlgorithm#setCounting(boolean)}), "error configs" is still the
+	 * number of final configurations, the runs reaching them being counted apart.
 	 */
 	public static final MBSDecisionAlgorithm bflgsCheck = new MBSDecisionAlgorithm("Bflgs-mbs") {
 		private int goals = 0;
+		private long runs = 0;
 		private int maxFrontierSize = 0;
+		private int maxRawFrontierSize = 0;
 		
 		@Override
 		public boolean decide(Automaton a, List<Integer> word) {
 			RegisterAutomaton automaton = (RegisterAutomaton) a;
 			
+			//Counting mode: runs are summed over merged configurations, not enumerated
+			if(isCounting()) {
+				CountingSearch search = CountingSearch.read(automaton, word);
+				runs = search.countAcceptingRuns();
+				goals = search.countAcceptingConfigurations();
+				return search.accepts();
+			}
+			
+			Lookahead lookahead = isCanonicalising() ? new Lookahead(word) : null;
+			
 			//BFLGS implies a double set storing the frontier
 			List<HashSet<SearchNode>> sets = new ArrayList<>();
 			sets.add(new HashSet<SearchNode>());
@@ -204,7 +295,7 @@ public class Membership {
 			frontier.add(new SearchNode(initialSearchState, null, -1));
 			
 			//Main search loop
-			goals = 0;
+			int found = 0;
 			while(!frontier.isEmpty()) {
 				if(Testbench.COLLECT_STATS)
 					maxFrontierSize = Math.max(maxFrontierSize, frontier.size());
@@ -213,35 +304,62 @@ public class Membership {
 				// start filling up the next frontier
 				activeSet = (activeSet+1)%2;
 				Set<SearchNode> nextFrontier = sets.get(activeSet);
+				Set<SearchState> rawFrontier = Testbench.COLLECT_STATS && lookahead != null ? 
+											   new HashSet<SearchState>() : null;
 				for(SearchNode node: frontier) {
 					if(node.state.isFinal()) {
-						goals++;
+						found++;
 					}
 
 					//Add the adjacent nodes to the new frontier
 					List<SearchState> nextStates = node.state.expand();
 					
 					for(SearchState s : nextStates) {
+						//Merge the states that only differ by dead values
+						if(lookahead != null) {
+							if(rawFrontier != null)
+								rawFrontier.add(s);
+							s = s.canonicalise(lookahead);
+						}
 						nextFrontier.add(new SearchNode(s, node, 0));
 					}
 				}
+				
+				if(rawFrontier != null)
+					maxRawFrontierSize = Math.max(maxRawFrontierSize, rawFrontier.size());
 
 				//Then start over with the next frontier
 				frontier.clear();
 				frontier = nextFrontier;
 			}
 			
-			return goals > 0;
+			goals = found;
+			return found > 0;
+		}
+
+		/**
+		 * Resumed searches are the same BFLGS on interned valuations, see {@link ArenaSearch}
+		 */
+		@Override
+		public IncrementalSearch startSearch(Context c) {
+			return new ArenaSearch((RegisterAutomaton) c.automaton);
 		}
 
 		@Override
 		protected void yieldStatistics(String sessionName, ResultsContainer rc) {
 			SearchNode.yieldStatistics(sessionName, rc);
 			rc.addSessionNumber(sessionName, "frontier size", maxFrontierSize);
+			rc.addSessionNumber(sessionName, "raw frontier size", maxRawFrontierSize);
 			rc.addSessionNumber(sessionName, "error configs", goals);
+			if(isCounting()) {
+				rc.addSessionNumber(sessionName, "accepting runs", (int) Math.min(runs, Integer.MAX_VALUE));
+				CountingSearch.yieldStatistics(sessionName, rc);
+			}
 			
 			maxFrontierSize = 0;
+			maxRawFrontierSize = 0;
 			goals = 0;
+			runs = 0;
 		}
 	};
 	
@@ -311,11 +429,17 @@ public class Membership {
 	 * BFLGS implies a double-set structure as a frontier. No paths are remembered.
 	 */
 	public static final MBSDecisionAlgorithm forgetfulBflgsCheck = new MBSDecisionAlgorithm("F-Bflgs-mbs") {
-		private OptimisedRA a;
 		private int goals = 0;
 		
 		@Override
 		public boolean decide(Automaton automaton, List<Integer> word) {
+			return decide(newContext(automaton), word);
+		}
+		
+		@Override
+		public boolean decide(Context c, List<Integer> word) {
+			OptimisedRA a = (OptimisedRA) c.automaton;
+			
 			//BFLGS implies a double set storing the frontier
 			Queue<OBFLGSSearchState> frontier = new LinkedList<>();
 			
@@ -326,11 +450,12 @@ public class Membership {
 			frontier.add(initialSearchState);
 			
 			//Main search loop
+			int found = 0;
 			while(!frontier.isEmpty()) {
 				OBFLGSSearchState node = frontier.poll();
 				
 				if(node.isFinal()) {
-					goals++;
+					found++;
 				}
 
 				//Add the adjacent nodes to the new frontier
@@ -341,15 +466,13 @@ public class Membership {
 				}
 			}
 			
-			return goals > 0;
+			goals = found;
+			return found > 0;
 		}
 
 		@Override
-		public void setAutomaton(Automaton ra) {
-			
-			OptimisedRA ora = new OptimisedRA((RegisterAutomaton)ra);
-			this.a = ora;
-			super.setAutomaton(ora);
+		protected Context newContext(Automaton ra) {
+			return new Context(new OptimisedRA((RegisterAutomaton)ra));
 		}
 
 		@Override
@@ -360,17 +483,220 @@ public class Membership {
 		}
 	};
 
+	/**
+	 * The same search as {@link #forgetfulBflgsCheck} (paths are forgotten, and a word
+	 * is accepted as soon as a final state is reached), on a deduplicated frontier made of
+	 * two {@link ConfigurationTable}s swapped between symbols. Once the tables have grown
+	 * to the largest frontier, nothing is allocated per symbol. The word is only iterated
+	 * over, so it can be streamed (see {@link LargeFileLister}).
+	 */
+	public static final MBSDecisionAlgorithm primitiveBflgsCheck = new MBSDecisionAlgorithm("PF-Bflgs-mbs") {
+		@Override
+		public boolean decide(Automaton automaton, List<Integer> word) {
+			return decide(newContext(automaton), word);
+		}
+		
+		@Override
+		public boolean decide(Context c, List<Integer> word) {
+			TableSearch search = new TableSearch((OptimisedRA) c.automaton);
+			search.setMeter(word);
+			
+			//Main search loop: one frontier per symbol
+			for(int symbol : word) {
+				if(search.accepts())
+					return true;
+				if(search.isDead())
+					return false;
+				search.read(symbol);
+			}
+			
+			return search.accepts();
+		}
+		
+		@Override
+		public IncrementalSearch startSearch(Context c) {
+			return new TableSearch((OptimisedRA) c.automaton);
+		}
+
+		@Override
+		protected Context newContext(Automaton ra) {
+			return new Context(new OptimisedRA((RegisterAutomaton)ra));
+		}
+
+		@Override
+		protected void yieldStatistics(String sessionName, ResultsContainer rc) {
+			TableSearch.yieldStatistics(sessionName, rc);
+		}
+	};
+
+	/**
+	 * The same search as {@link #primitiveBflgsCheck} (paths are forgotten, and a word
+	 * is accepted as soon as a final state is reached), where configurations sharing
+	 * a register valuation are grouped and their states stored as the bits of a long:
+	 * see {@link BitsetSearch}. Only for automata of at most {@link StateSetTransitions#MAX_STATES}
+	 * states. The word is only iterated over, so it can be streamed.
+	 */
+	public static final MBSDecisionAlgorithm bitsetBflgsCheck = new MBSDecisionAlgorithm("Bitset-Bflgs-mbs") {
+		@Override
+		public boolean decide(Automaton automaton, List<Integer> word) {
+			return decide(newContext(automaton), word);
+		}
+		
+		@Override
+		public boolean decide(Context c, List<Integer> word) {
+			IncrementalSearch search = startSearch(c);
+			search.setMeter(word);
+			
+			//Main search loop: one frontier per symbol
+			for(int symbol : word) {
+				if(search.accepts())
+					return true;
+				if(search.isDead())
+					return false;
+				search.read(symbol);
+			}
+			
+			return search.accepts();
+		}
+		
+		@Override
+		public IncrementalSearch startSearch(Context c) {
+			StateSetContext ssc = (StateSetContext) c;
+			return new BitsetSearch(ssc.a, ssc.transitions);
+		}
+
+		@Override
+		protected Context newContext(Automaton a) {
+			OptimisedRA ra = new OptimisedRA((RegisterAutomaton) a);
+			return new StateSetContext(ra, new StateSetTransitions(ra));
+		}
+
+		@Override
+		protected void yieldStatistics(String sessionName, ResultsContainer rc) {
+			BitsetSearch.yieldStatistics(sessionName, rc);
+		}
+	};
+
+	/**
+	 * Depth-first search with a primitive stack, stopping at the first accepting
+	 * configuration, and remembering the configurations from which the rest of
+	 * the word was rejected: see {@link MemoisedDfs}. Like {@link #ldftsCheck}, a word
+	 * is accepted if a final state is reached once all of it has been read.
+	 */
+	public static final MBSDecisionAlgorithm memoDfsCheck = new MBSDecisionAlgorithm("Memo-Dfs-mbs") {
+		@Override
+		public boolean decide(Automaton a, List<Integer> word) {
+			return new MemoisedDfs((RegisterAutomaton) a, word).run();
+		}
+
+		@Override
+		protected void yieldStatistics(String sessionName, ResultsContainer rc) {
+			MemoisedDfs.yieldStatistics(sessionName, rc);
+		}
+	};
+
+	/**
+	 * BFLGS on interned register valuations: configurations are (state, valuation, position)
+	 * triples, see the arena package. The frontier only compares ints, and configurations
+	 * sharing registers share their storage. Like {@link #bflgsCheck}, a word is accepted
+	 * if a final state is reached once all of it has been read.
+	 */
+	public static final MBSDecisionAlgorithm arenaBflgsCheck = new MBSDecisionAlgorithm("Arena-Bflgs-mbs") {
+		@Override
+		public boolean decide(Automaton a, List<Integer> word) {
+			ArenaSearch search = new ArenaSearch((RegisterAutomaton) a);
+			search.setMeter(word);
+			
+			//Main search loop: one frontier per symbol
+			for(int symbol : word) {
+				if(search.isDead())
+					return false;
+				search.read(symbol);
+			}
+			
+			return search.accepts();
+		}
+		
+		@Override
+		public IncrementalSearch startSearch(Context c) {
+			return new ArenaSearch((RegisterAutomaton) c.automaton);
+		}
+
+		@Override
+		protected void yieldStatistics(String sessionName, ResultsContainer rc) {
+			ArenaConfiguration.yieldStatistics(sessionName, rc);
+			ArenaSearch.yieldStatistics(sessionName, rc);
+		}
+	};
+
+	/**
+	 * BFLGS where each level of the frontier is expanded on a fork-join pool, see
+	 * {@link LevelExpander} (levels smaller than {@link LevelExpander#getThreshold()}
+	 * stay sequential). Like {@link #bflgsCheck}, a word is accepted if a final state
+	 * is reached once all of it has been read. The automaton is frozen before it
+	 * is shared between workers.
+	 */
+	public static final MBSDecisionAlgorithm parallelBflgsCheck = new MBSDecisionAlgorithm("P-Bflgs-mbs") {
+		private int maxFrontierSize = 0;
+		
+		@Override
+		public boolean decide(Automaton automaton, List<Integer> word) {
+			return decide(newContext(automaton), word);
+		}
+		
+		@Override
+		public boolean decide(Context c, List<Integer> word) {
+			RegisterAutomaton a = (RegisterAutomaton) c.automaton;
+			LevelExpander expander = new LevelExpander();
+			
+			//One array per level, deduplicated by the expander
+			SearchState[] frontier = { new SearchState(a.getInitialState(), a.getInitialRegisters(), word, a) };
+			
+			//Main search loop: one level per symbol
+			for(int i = 0; i < word.size() && frontier.length > 0; i++) {
+				frontier = expander.expand(frontier);
+				
+				if(Testbench.COLLECT_STATS)
+					maxFrontierSize = Math.max(maxFrontierSize, frontier.length);
+			}
+			
+			for(SearchState s : frontier) {
+				if(s.isFinal())
+					return true;
+			}
+			
+			return false;
+		}
+		
+		@Override
+		protected Context newContext(Automaton a) {
+			return new Context(((RegisterAutomaton) a).freeze());
+		}
+
+		@Override
+		protected void yieldStatistics(String sessionName, ResultsContainer rc) {
+			LevelExpander.yieldStatistics(sessionName, rc);
+			rc.addSessionNumber(sessionName, "frontier size", maxFrontierSize);
+			
+			maxFrontierSize = 0;
+		}
+	};
+
 	/**
 	 * A third less naive version, using the physical distance heuristic.
 	 */
 	public static final MBSDecisionAlgorithm bestFirstCheck = new MBSDecisionAlgorithm("Best-first-mbs") {
-		private Comparator<SearchNode> comparator;
-		private HRAutomaton a;
-		
 		@Override
 		public boolean decide(Automaton automaton, List<Integer> word) {
+			return decide(newContext(automaton), word);
+		}
+		
+		@Override
+		public boolean decide(Context c, List<Integer> word) {
+			HRAutomaton a = ((HeuristicContext) c).a;
+			
 			//Best-first employs a heuristic-driven queue
-			PrioritySet frontier = new PrioritySet(a, comparator);
+			BucketQueue frontier = new BucketQueue(((HeuristicContext) c).priority);
 			SearchState initialSearchState = new SearchState(a.getInitialState(), 
 															 a.getInitialRegisters(), 
 															 word, a);
@@ -394,22 +720,33 @@ public class Membership {
 		}
 		
 		@Override
-		public void setAutomaton(Automaton ra) {
-			this.a = (HRAutomaton) ra;
+		public Automaton adapt(RegisterAutomaton ra) {
+			return ra instanceof HRAutomaton ? ra : new HRAutomaton(ra, 0);
+		}
+		
+		@Override
+		protected Context newContext(Automaton ra) {
+			final HRAutomaton a = (HRAutomaton) ra;
 			
-			a.loadHeuristic();
-
-			this.comparator = new Comparator<SearchNode>() {
+			return new HeuristicContext(a, new BucketQueue.Priority() {
 
 				@Override
-				public int compare(SearchNode o1, SearchNode o2) {
-					return a.getHScore(o1.state.state, o1.state.w.size()) - a.getHScore(o2.state.state, o2.state.w.size());
+				public long of(SearchState s) {
+					int score = a.getHScore(s.state, s.remaining());
+					return score > 0 ? score : -1;
 				}
-			};
+			});
 		}
 
 		@Override
 		protected void yieldStatistics(String sessionName, ResultsContainer rc) {
+			BucketQueue.yieldStatistics(sessionName, rc);
+			if(Testbench.COLLECT_STATS && getContext() != null) {
+				HRAutomaton a = ((HeuristicContext) getContext()).a;
+				rc.addSessionNumber(sessionName, "heuristic bytes", (int) a.getHeuristicFootprint());
+				rc.addSessionNumber(sessionName, "heuristic levels", a.getStoredLevels());
+				rc.addSessionNumber(sessionName, "heuristic period", a.getPeriod());
+			}
 		}
 	};
 
@@ -419,13 +756,17 @@ public class Membership {
 	 * want to explore the path that is closest to the final state). 
 	 */
 	public static final MBSDecisionAlgorithm aStarCheck = new MBSDecisionAlgorithm("~A*-mbs") {
-		private Comparator<SearchNode> comparator;
-		private HRAutomaton a;
-		
 		@Override
 		public boolean decide(Automaton automaton, List<Integer> word) {
+			return decide(newContext(automaton), word);
+		}
+		
+		@Override
+		public boolean decide(Context c, List<Integer> word) {
+			HRAutomaton a = ((HeuristicContext) c).a;
+			
 			//A* employs a heuristic-driven queue
-			PrioritySet frontier = new PrioritySet(a, comparator);
+			BucketQueue frontier = new BucketQueue(((HeuristicContext) c).priority);
 			SearchState initialSearchState = new SearchState(a.getInitialState(), 
 															 a.getInitialRegisters(), 
 															 word, a);
@@ -449,27 +790,34 @@ public class Membership {
 		}
 		
 		@Override
-		public void setAutomaton(Automaton ra) {
-			this.a = (HRAutomaton) ra;
+		public Automaton adapt(RegisterAutomaton ra) {
+			return ra instanceof HRAutomaton ? ra : new HRAutomaton(ra, 0);
+		}
+		
+		@Override
+		protected Context newContext(Automaton ra) {
+			final HRAutomaton a = (HRAutomaton) ra;
 			
-			a.loadHeuristic();
-
-			this.comparator = new Comparator<SearchNode>() {
+			return new HeuristicContext(a, new BucketQueue.Priority() {
 
 				@Override
-				public int compare(SearchNode o1, SearchNode o2) {
-					int sizeDiff = o1.state.w.size() - o2.state.w.size();
-					
-					return sizeDiff == 0 ?							
-							a.getHScore(o1.state.state, o1.state.w.size()) - a.getHScore(o2.state.state, o2.state.w.size()) :
-							sizeDiff;
+				public long of(SearchState s) {
+					//Remaining length first, then score
+					int score = a.getHScore(s.state, s.remaining());
+					return score > 0 ? (long) s.remaining() << 32 | score : -1;
 				}
-			};
+			});
 		}
-
 		
 		@Override
 		protected void yieldStatistics(String sessionName, ResultsContainer rc) {
+			BucketQueue.yieldStatistics(sessionName, rc);
+			if(Testbench.COLLECT_STATS && getContext() != null) {
+				HRAutomaton a = ((HeuristicContext) getContext()).a;
+				rc.addSessionNumber(sessionName, "heuristic bytes", (int) a.getHeuristicFootprint());
+				rc.addSessionNumber(sessionName, "heuristic levels", a.getStoredLevels());
+				rc.addSessionNumber(sessionName, "heuristic period", a.getPeriod());
+			}
 		}
 	};
 
@@ -481,63 +829,37 @@ public class Membership {
 	 * </p> 
 	 */
 	public static final MBSDecisionAlgorithm greedyCheck = new MBSDecisionAlgorithm("Greedy-mbs") {
-		private GreedyRA a;
-		private GreedyFrontier frontier;
-		private int goals = 0;
-		
 		@Override
 		public boolean decide(Automaton automaton, List<Integer> word) {
 			//This time the frontier is a custom one (and has a complex structure)
-			frontier = new GreedyFrontier();
+			GreedySearch search = new GreedySearch((GreedyRA) automaton, 
+												   isCanonicalising() ? new Lookahead(word) : null);
+			search.setMeter(word);
 			
 			//Initial state
-			GreedyConfiguration initialConfig = 
-					new GreedyConfiguration(a.getInitialState(), a.getInitialRegisters(), a, -1);
-			
-			if(initialConfig.isFinal()) {
-				goals = 1;
+			if(search.accepts()) {
 				return true;
 			}
 			
-			frontier.add(initialConfig);
-			
 			//Main search loop
-			int symbolIdx = 0;
-			int previousSymbol = 0;
-			for(Integer symbol : word) {
-				if(frontier.isEmpty())
+			for(int symbol : word) {
+				if(search.isDead())
 					return false;
 				
-				GreedyFrontier nextFrontier = new GreedyFrontier();
-				
-				//Fill up the next frontier by reading the current one
-				for(GreedyConfiguration gc : frontier.filter(symbol)) {
-					//Add the adjacent nodes to the new frontier
-					List<GreedyConfiguration> nextGCs = gc.expand(symbol, symbolIdx, previousSymbol);
-					
-					for(GreedyConfiguration nextGC : nextGCs) {
-						//Add to frontier (automatic filtering)
-						nextFrontier.add(nextGC);
-					}
-				}
-
-				//Then start over with the next frontier
-				frontier.absorb(nextFrontier);
-				symbolIdx++;
-				previousSymbol = symbol;
-			}
-			
-			if(!frontier.isEmpty()) {
-				goals = frontier.getNumFinalConfigurations();
-				return goals > 0;
+				search.read(symbol);
 			}
 			
-			return false;
+			return search.accepts();
 		}
 		
 		@Override
-		public void setAutomaton(Automaton ra) {
-			a = (GreedyRA) ra;
+		public IncrementalSearch startSearch(Context c) {
+			return new GreedySearch((GreedyRA) c.automaton);
+		}
+		
+		@Override
+		public Automaton adapt(RegisterAutomaton ra) {
+			return new GreedyRA(ra);
 		}
 		
 		@Override
@@ -547,4 +869,54 @@ public class Membership {
 			LargeFileLister.yieldStatistics(sessionName, rc);
 		}
 	};
+	
+	/**
+	 * Membership by slices: the events of each object (and of the objects it creates)
+	 * are read by their own {@link #primitiveBflgsCheck} search, and a word is accepted
+	 * if one of its slices is (so, by default, as soon as a final state is reached in
+	 * a slice). See {@link SlicingSearch} for the trace format and the eviction of
+	 * finalised objects; the algorithm of slices can be changed.
+	 */
+	public static final SlicingAlgorithm slicingCheck = new SlicingAlgorithm("Slicing-mbs", primitiveBflgsCheck);
+	
+	/**
+	 * A portfolio racing {@link #memoDfsCheck}, {@link #bflgsCheck} and {@link #aStarCheck}
+	 * on each word, over one frozen automaton: the first verdict wins and the other
+	 * searches are cancelled, see {@link PortfolioAlgorithm}. All three default members
+	 * accept a word if a final state is reached once all of it has been read.
+	 */
+	public static final PortfolioAlgorithm portfolioCheck = new PortfolioAlgorithm("Portfolio-mbs", 
+																				   memoDfsCheck, bflgsCheck, aStarCheck);
+	
+	//Contexts
+	private static final class CompiledContext extends MBSDecisionAlgorithm.Context {
+		private final CompiledAutomaton compiled;
+		
+		private CompiledContext(Automaton automaton, CompiledAutomaton compiled) {
+			super(automaton);
+			this.compiled = compiled;
+		}
+	}
+	
+	private static final class HeuristicContext extends MBSDecisionAlgorithm.Context {
+		private final HRAutomaton a;
+		private final BucketQueue.Priority priority;
+		
+		private HeuristicContext(HRAutomaton a, BucketQueue.Priority priority) {
+			super(a);
+			this.a = a;
+			this.priority = priority;
+		}
+	}
+	
+	private static final class StateSetContext extends MBSDecisionAlgorithm.Context {
+		private final OptimisedRA a;
+		private final StateSetTransitions transitions;
+		
+		private StateSetContext(OptimisedRA a, StateSetTransitions transitions) {
+			super(a);
+			this.a = a;
+			this.transitions = transitions;
+		}
+	}
 }
@@ -1,11 +1,9 @@
 package algorithms;
 
 import java.util.HashSet;
-import java.util.List;
-import java.util.Map.Entry;
 
 import automata.RegisterAutomaton;
-import automata.State;
+import automata.RegisterIndex;
 
 /**
  * A static-method populated class representing a set of tools
@@ -14,17 +12,7 @@ import automata.State;
  */
 public class Tools {
 	public static boolean isDeterministic(RegisterAutomaton a) {
-		State[] states = a.getStates();
-		
-		for(State s : states) {
-			for(Entry<Integer, List<State>> e : a.getTransitions(s).entrySet()) {
-				if(e.getValue().size() > 1) {
-					return false;
-				} 
-			}
-		}
-		
-		return true;
+		return a.getTransitionTable().isDeterministic();
 	}
 
 	/**
@@ -68,6 +56,33 @@ public class Tools {
 		return -1;
 	}
 	
+	/**
+	 * Same as {@link #registersContain(int[], int)}, through the reverse index if there is one
+	 * @param registers
+	 * @param index the index of registers, or null
+	 * @param symbol
+	 * @return
+	 */
+	public static int registersContain(int[] registers, RegisterIndex index, int symbol) {
+		if(index == null)
+			return registersContain(registers, symbol);
+		return index.find(symbol);
+	}
+	
+	/**
+	 * Assign a symbol to a register, keeping the reverse index (if any) up to date
+	 * @param registers
+	 * @param index the index of registers, or null
+	 * @param register
+	 * @param symbol
+	 */
+	public static void assignRegister(int[] registers, RegisterIndex index, int register, int symbol) {
+		if(index == null)
+			registers[register] = symbol;
+		else
+			index.assign(registers, register, symbol);
+	}
+	
 	public static int registersContain(int[] fixedRegisters, int[] registers, int symbol) {
 		int i = 0;
 		for(int s : fixedRegisters) {
@@ -1,16 +1,20 @@
 package algorithms.emptiness;
 
 import algorithms.tools.ResultsContainer;
+import automata.Minimiser;
 import automata.RegisterAutomaton;
 
 /**
- * An abstract class to make test extensions easier.
+ * <p>An abstract class to make test extensions easier.</p>
+ * <p>Algorithms keep no state between or during calls (statistics aside), so
+ * several threads can decide on contexts over frozen automata at the same time.</p>
  * @author vincent
  *
  */
 public abstract class EMPDecisionAlgorithm {
 	protected final ResultsContainer rc;
 	public final String name;
+	private boolean minimising = false;
 	
 	public EMPDecisionAlgorithm(String name) {
 		rc = ResultsContainer.getContainer();
@@ -19,6 +23,36 @@ public abstract class EMPDecisionAlgorithm {
 	}
 	
 	public abstract boolean decide(RegisterAutomaton automaton);
+	
+	/**
+	 * Thread-safe if the automaton of the context is frozen, and if
+	 * statistics are not collected.
+	 * @param context
+	 * @return
+	 */
+	public boolean decide(Context context) {
+		return decide(context.automaton);
+	}
+	
+	/**
+	 * @param automaton an automaton, frozen if the context is to be shared
+	 * @return a new context, over the automaton minimised if this algorithm
+	 * is minimising (see {@link #setMinimising(boolean)})
+	 */
+	public Context createContext(RegisterAutomaton automaton) {
+		return new Context(minimising ? Minimiser.minimise(automaton) : automaton);
+	}
+	
+	/**
+	 * @param minimising if true, automata given to {@link #createContext(RegisterAutomaton)}
+	 * are trimmed and their equivalent states merged (see {@link Minimiser})
+	 */
+	public void setMinimising(boolean minimising) {
+		this.minimising = minimising;
+	}
+	public boolean isMinimising() {
+		return minimising;
+	}
 
 	@Override
 	public String toString() {
@@ -30,4 +64,16 @@ public abstract class EMPDecisionAlgorithm {
 		yieldStatistics(name, rc);
 	}
 	protected abstract void yieldStatistics(String sessionName, ResultsContainer rc);
+	
+	/**
+	 * Everything a call to an algorithm needs: the automaton, as prepared for
+	 * the algorithm. Contexts are immutable.
+	 */
+	public static class Context {
+		public final RegisterAutomaton automaton;
+		
+		public Context(RegisterAutomaton automaton) {
+			this.automaton = automaton;
+		}
+	}
 }
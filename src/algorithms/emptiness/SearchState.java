@@ -1,13 +1,12 @@
 package algorithms.emptiness;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 
+import algorithms.tools.PersistentRegisters;
 import automata.RegisterAutomaton;
 import automata.State;
+import automata.TransitionTable;
 
 /**
  * <p>A search state used for characterization of the following elements:
@@ -30,12 +29,20 @@ import automata.State;
  */
 public class SearchState {
 	public final State state;
-	public final int[] registers;
+	/**
+	 * Shared with the parent state unless a register was assigned
+	 */
+	public final PersistentRegisters registers;
 	public final RegisterAutomaton a;
 	public final int[] fullAssignment;
 	
 	public SearchState(State state, int[] registers, 
 					   RegisterAutomaton a, int[] fullAssignment) {
+		this(state, PersistentRegisters.of(registers), a, fullAssignment);
+	}
+	
+	public SearchState(State state, PersistentRegisters registers, 
+					   RegisterAutomaton a, int[] fullAssignment) {
 		this.state = state;
 		this.registers = registers;
 		this.a = a;
@@ -50,7 +57,7 @@ public class SearchState {
 		List<SearchState> adjacentSearchStates = new ArrayList<>();
 		
 		//Get the declared transitions
-		Map<Integer, List<State>> transitions = a.getTransitions(state);
+		TransitionTable t = a.getTransitionTable();
 		
 		/*
 		 * All of these transitions are made up of a label and a list of accessible 
@@ -62,28 +69,28 @@ public class SearchState {
 		 * - we check if rho points to an empty register, and if it does that register 
 		 *   becomes eligible as well.
 		 */
-		Integer irho = a.getAssignmentRegister(state);
-		int rho = irho != null ? irho : -1;
+		int rho = t.getRho(state.id);
+		int labels = Math.min(t.getNumLabels(), registers.size());
 		
-		for(Entry<Integer, List<State>> labelTr : transitions.entrySet()) {
-			int regIndex = labelTr.getKey();
-			
+		for(int regIndex = 0; regIndex < labels; regIndex++) {
 			//take a look at the register
-			if(registers[regIndex] >= 0) {
+			if(registers.get(regIndex) >= 0) {
 				//If assigned, take the same symbol, and generate the new 
-				//searchstates with it
-				for(State nextState : labelTr.getValue()) {
-					adjacentSearchStates.add(new SearchState(nextState, registers.clone(), a, fullAssignment));
+				//searchstates with it (registers are unchanged and shared)
+				int end = t.successorsEnd(state.id, regIndex);
+				for(int i = t.successorsStart(state.id, regIndex); i < end; i++) {
+					adjacentSearchStates.add(new SearchState(t.getSuccessorState(i), registers, a, fullAssignment));
 				}
 			}
 		}
 		
 		//If rho is set and the assigned register is not created
-		if(rho >= 0 && registers[rho] < 0) {
+		if(rho >= 0 && registers.get(rho) < 0) {
 			//Pick the symbol from the full assignment
-			registers[rho] = fullAssignment[rho];
-			for(State nextState : transitions.get(irho)) {
-				adjacentSearchStates.add(new SearchState(nextState, registers.clone(), a, fullAssignment));
+			PersistentRegisters assigned = registers.set(rho, fullAssignment[rho]);
+			int end = t.successorsEnd(state.id, rho);
+			for(int i = t.successorsStart(state.id, rho); i < end; i++) {
+				adjacentSearchStates.add(new SearchState(t.getSuccessorState(i), assigned, a, fullAssignment));
 			}
 		}
 		
@@ -94,7 +101,7 @@ public class SearchState {
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + Arrays.hashCode(registers);
+		result = prime * result + registers.hashCode();
 		result = prime * result + ((state == null) ? 0 : state.hashCode());
 		return result;
 	}
@@ -108,7 +115,7 @@ public class SearchState {
 		if (getClass() != obj.getClass())
 			return false;
 		SearchState other = (SearchState) obj;
-		if (!Arrays.equals(registers, other.registers))
+		if (!registers.equals(other.registers))
 			return false;
 		if (state == null) {
 			if (other.state != null)
@@ -120,6 +127,6 @@ public class SearchState {
 
 	@Override
 	public String toString() {
-		return "[" + state + ": " + Arrays.toString(registers) + "]";
+		return "[" + state + ": " + registers.toString() + "]";
 	}
 }
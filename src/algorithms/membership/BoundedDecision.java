@@ -0,0 +1,42 @@
+package algorithms.membership;
+
+/**
+ * <p>The result of {@link MBSDecisionAlgorithm#decideWithin(MBSDecisionAlgorithm.Context, java.util.List)}:
+ * the outcome, the resources used to reach it (or to give up), and the resource
+ * that ran out if the outcome is unknown.</p>
+ * <p>The statistics of the algorithm itself are those of the partial search,
+ * and are yielded as usual.</p>
+ * @author vincent
+ *
+ */
+public final class BoundedDecision {
+	public final Outcome outcome;
+	/**
+	 * The exhausted resource, null if the word was decided
+	 */
+	public final Budget.Limit limit;
+	public final long nodes;
+	public final long millis;
+	public final long peakBytes;
+
+	public BoundedDecision(Outcome outcome, Budget.Limit limit, long nodes, long millis, long peakBytes) {
+		this.outcome = outcome;
+		this.limit = limit;
+		this.nodes = nodes;
+		this.millis = millis;
+		this.peakBytes = peakBytes;
+	}
+
+	/**
+	 * @return true if the word was accepted or rejected within the budget
+	 */
+	public boolean isDecided() {
+		return outcome != Outcome.UNKNOWN;
+	}
+
+	@Override
+	public String toString() {
+		return outcome + (limit == null ? "" : " (" + limit + ")") + " after " + nodes + " nodes, "
+			   + millis + "ms, " + (peakBytes >> 10) + "KB";
+	}
+}
@@ -0,0 +1,278 @@
+package algorithms.membership;
+
+import java.util.Arrays;
+
+import testbench.Testbench;
+import algorithms.tools.OpenAddressing;
+import algorithms.tools.ProbingSet;
+import algorithms.tools.ResultsContainer;
+
+/**
+ * <p>The frontier of heuristic searches: search nodes are kept unique and
+ * popped lowest priority first. The priority of a node is computed once, when
+ * it is added (see {@link Priority}), nodes are never compared.</p>
+ * <p>Nodes are stored in buckets, one FIFO queue per distinct priority: pushing and
+ * popping are constant-time within a bucket, and only the distinct priorities are
+ * kept ordered, in a binary heap of buckets. Heuristic scores are path counts, so
+ * they are not bounded enough to index buckets directly.</p>
+ * <p>A bucket is forgotten as soon as it is emptied, its index (and its array, if
+ * small) going to the next new priority: there are never more buckets than queued
+ * nodes, however many priorities the search goes through (one per word position
+ * for A*).</p>
+ * <p>Uniqueness is checked in the same structure, with a {@link ProbingSet}
+ * of the queued nodes.</p>
+ * @author vincent
+ *
+ */
+public final class BucketQueue {
+	private static final int MIN_CAPACITY = 16;
+	private static final int MIN_BUCKET_SIZE = 4;
+	private static final int MAX_REUSED_BUCKET_SIZE = 64;
+
+	/**
+	 * The priority of search states, computed once per queued node
+	 */
+	public interface Priority {
+		/**
+		 * @param s
+		 * @return the priority of s (lowest first), or a negative number if s
+		 * cannot lead to a final configuration and should not be queued
+		 */
+		long of(SearchState s);
+	}
+
+	private final Priority priority;
+
+	//Queued nodes
+	private final ProbingSet<SearchNode> nodes = new ProbingSet<>();
+
+	//Buckets: one queue of nodes per priority, from heads[b] (included) to tails[b] (excluded)
+	private long[] keys = new long[MIN_CAPACITY];
+	private SearchNode[][] buckets = new SearchNode[MIN_CAPACITY][];
+	private int[] heads = new int[MIN_CAPACITY];
+	private int[] tails = new int[MIN_CAPACITY];
+	private int numBuckets = 0;
+	private int allocatedBuckets = 0;
+
+	//Indices of forgotten buckets, see release(int)
+	private int[] freeBuckets = new int[MIN_CAPACITY];
+	private int numFreeBuckets = 0;
+
+	//Bucket + 1 of each priority in bucketSlots, 0 for free slots
+	private long[] priorities = new long[2*MIN_CAPACITY];
+	private int[] bucketSlots = new int[2*MIN_CAPACITY];
+	private int shift = OpenAddressing.shift(2*MIN_CAPACITY);
+	private final OpenAddressing.Entries priorityEntries = new OpenAddressing.Entries() {
+		@Override
+		public boolean isFree(int slot) {
+			return bucketSlots[slot] == 0;
+		}
+
+		@Override
+		public int home(int slot) {
+			return OpenAddressing.slot(hash(priorities[slot]), shift);
+		}
+
+		@Override
+		public void move(int from, int to) {
+			priorities[to] = priorities[from];
+			bucketSlots[to] = bucketSlots[from];
+		}
+
+		@Override
+		public void free(int slot) {
+			bucketSlots[slot] = 0;
+		}
+	};
+
+	//Non-empty buckets, ordered by priority
+	private int[] heap = new int[MIN_CAPACITY];
+	private int heapSize = 0;
+
+	//Statistics
+	private static int maxSize = 0;
+	private static int maxBuckets = 0;
+
+	public BucketQueue(Priority priority) {
+		this.priority = priority;
+	}
+
+	/**
+	 * @return the node of lowest priority, which is removed from the queue
+	 */
+	public SearchNode pop() {
+		int b = heap[0];
+		SearchNode node = buckets[b][heads[b]];
+		buckets[b][heads[b]++] = null;
+		if(heads[b] == tails[b]) {
+			popBucket();
+			release(b);
+		}
+
+		nodes.remove(node);
+		return node;
+	}
+
+	/**
+	 * Queue a node, unless it cannot lead to a final configuration or an
+	 * equal node is already queued
+	 * @param node
+	 * @return true if the node was queued
+	 */
+	public boolean add(SearchNode node) {
+		long p = priority.of(node.state);
+		if(p < 0 || !nodes.add(node))
+			return false;
+
+		int b = bucket(p);
+		if(tails[b] == buckets[b].length) {
+			//Compact the popped part, or grow
+			int count = tails[b]-heads[b];
+			SearchNode[] bucket = 2*count > buckets[b].length ? new SearchNode[2*buckets[b].length] : buckets[b];
+			System.arraycopy(buckets[b], heads[b], bucket, 0, count);
+			if(bucket == buckets[b])
+				Arrays.fill(bucket, count, tails[b], null);
+			buckets[b] = bucket;
+			heads[b] = 0;
+			tails[b] = count;
+		}
+		buckets[b][tails[b]++] = node;
+		if(tails[b]-heads[b] == 1)
+			pushBucket(b);
+
+		if(Testbench.COLLECT_STATS) {
+			maxSize = Math.max(maxSize, nodes.size());
+			maxBuckets = Math.max(maxBuckets, numBuckets);
+		}
+		return true;
+	}
+
+	public boolean isEmpty() {
+		return nodes.isEmpty();
+	}
+
+	public int size() {
+		return nodes.size();
+	}
+
+	//Tools
+	private static int hash(long p) {
+		return (int) (p ^ (p >>> 32));
+	}
+
+	/**
+	 * @param p
+	 * @return the bucket of priority p, created if needed
+	 */
+	private int bucket(long p) {
+		int mask = priorities.length-1;
+		int slot = OpenAddressing.slot(hash(p), shift);
+		for(int b; (b = bucketSlots[slot]-1) >= 0; slot = (slot+1) & mask) {
+			if(priorities[slot] == p)
+				return b;
+		}
+
+		int b = numFreeBuckets > 0 ? freeBuckets[--numFreeBuckets] : allocateBucket();
+		numBuckets++;
+		keys[b] = p;
+		if(buckets[b] == null)
+			buckets[b] = new SearchNode[MIN_BUCKET_SIZE];
+
+		priorities[slot] = p;
+		bucketSlots[slot] = b+1;
+		if(2*numBuckets > priorities.length)
+			rehashPriorities();
+		return b;
+	}
+
+	/**
+	 * @return the index of a new bucket, without an array
+	 */
+	private int allocateBucket() {
+		int b = allocatedBuckets++;
+		if(b == keys.length) {
+			keys = Arrays.copyOf(keys, 2*b);
+			buckets = Arrays.copyOf(buckets, 2*b);
+			heads = Arrays.copyOf(heads, 2*b);
+			tails = Arrays.copyOf(tails, 2*b);
+			heap = Arrays.copyOf(heap, 2*b);
+			freeBuckets = Arrays.copyOf(freeBuckets, 2*b);
+		}
+		return b;
+	}
+
+	/**
+	 * Forget an empty bucket and its priority: its index is reused by the
+	 * next new priority, with its array unless the array has grown large
+	 * @param b
+	 */
+	private void release(int b) {
+		int mask = priorities.length-1;
+		int slot = OpenAddressing.slot(hash(keys[b]), shift);
+		while(bucketSlots[slot] != b+1)
+			slot = (slot+1) & mask;
+		OpenAddressing.remove(priorityEntries, slot, mask);
+
+		//Popped nodes are cleared already
+		heads[b] = tails[b] = 0;
+		if(buckets[b].length > MAX_REUSED_BUCKET_SIZE)
+			buckets[b] = null;
+		freeBuckets[numFreeBuckets++] = b;
+		numBuckets--;
+	}
+
+	private void rehashPriorities() {
+		long[] oldPriorities = priorities;
+		int[] oldSlots = bucketSlots;
+		priorities = new long[2*oldPriorities.length];
+		bucketSlots = new int[priorities.length];
+		shift--;
+		int mask = priorities.length-1;
+		for(int old = 0; old < oldSlots.length; old++) {
+			if(oldSlots[old] == 0)
+				continue;
+			int slot = OpenAddressing.slot(hash(oldPriorities[old]), shift);
+			while(bucketSlots[slot] != 0)
+				slot = (slot+1) & mask;
+			priorities[slot] = oldPriorities[old];
+			bucketSlots[slot] = oldSlots[old];
+		}
+	}
+
+	private void pushBucket(int b) {
+		int i = heapSize++;
+		while(i > 0) {
+			int parent = (i-1)/2;
+			if(keys[heap[parent]] <= keys[b])
+				break;
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = b;
+	}
+
+	private void popBucket() {
+		int last = heap[--heapSize];
+		int i = 0;
+		while(2*i+1 < heapSize) {
+			int child = 2*i+1;
+			if(child+1 < heapSize && keys[heap[child+1]] < keys[heap[child]])
+				child++;
+			if(keys[last] <= keys[heap[child]])
+				break;
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = last;
+	}
+
+	//Statistics
+	public static void yieldStatistics(String sessionName, ResultsContainer rc) {
+		if(Testbench.COLLECT_STATS) {
+			rc.addSessionNumber(sessionName, "frontier size", maxSize);
+			rc.addSessionNumber(sessionName, "priorities", maxBuckets);
+			maxSize = 0;
+			maxBuckets = 0;
+		}
+	}
+}
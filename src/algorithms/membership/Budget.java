@@ -0,0 +1,57 @@
+package algorithms.membership;
+
+/**
+ * <p>The resources a membership decision may use before it is given up, see
+ * {@link MBSDecisionAlgorithm#setBudget(Budget)}: a time, a number of nodes
+ * and an amount of live heap memory (see {@link MeteredWord}). A limit of 0 is no limit.</p>
+ * <p>Nodes are expanded configurations, charged to a {@link MeteredWord}: searches
+ * expanding configurations one by one (LDFTS, BFLGS, A*, ...) read the word once per
+ * node, searches moving whole frontiers one symbol at a time (PF-, Bitset- and
+ * Arena-BFLGS, greedy, slices) charge each configuration of a frontier as they expand
+ * it (see {@link IncrementalSearch#setMeter(java.util.List)}), on top of their reads.
+ * Either way the clock and the heap are looked at within frontiers, not only
+ * between symbols.</p>
+ * @author vincent
+ *
+ */
+public final class Budget {
+	/**
+	 * The resources of a budget
+	 */
+	public enum Limit {
+		TIME, NODES, MEMORY
+	}
+
+	public static final Budget UNLIMITED = new Budget(0, 0, 0);
+
+	public final long maxMillis;
+	public final long maxNodes;
+	public final long maxBytes;
+
+	/**
+	 * @param maxMillis the time limit, in milliseconds
+	 * @param maxNodes the maximum number of nodes
+	 * @param maxBytes the estimated heap memory limit, in bytes
+	 */
+	public Budget(long maxMillis, long maxNodes, long maxBytes) {
+		if(maxMillis < 0 || maxNodes < 0 || maxBytes < 0)
+			throw new IllegalArgumentException("Negative budget: " + maxMillis + "ms, " + maxNodes + " nodes, " + maxBytes + " bytes");
+		this.maxMillis = maxMillis;
+		this.maxNodes = maxNodes;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @return true if no resource is limited
+	 */
+	public boolean isUnlimited() {
+		return maxMillis == 0 && maxNodes == 0 && maxBytes == 0;
+	}
+
+	@Override
+	public String toString() {
+		return (maxMillis == 0 ? "-" : maxMillis + "ms") + ", "
+			   + (maxNodes == 0 ? "-" : maxNodes + " nodes") + ", "
+			   + (maxBytes == 0 ? "-" : (maxBytes >> 20) + "MB");
+	}
+}
@@ -0,0 +1,19 @@
+package algorithms.membership;
+
+/**
+ * Thrown by a {@link MeteredWord} when the search reading it has run out of
+ * one of the resources of its {@link Budget}: the search is abandoned, and the
+ * word is neither accepted nor rejected.
+ * @author vincent
+ *
+ */
+public class BudgetExceededException extends RuntimeException {
+	private static final long serialVersionUID = -4207153627349815011L;
+
+	public final Budget.Limit limit;
+
+	public BudgetExceededException(Budget.Limit limit, String message) {
+		super(message);
+		this.limit = limit;
+	}
+}
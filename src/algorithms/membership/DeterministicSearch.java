@@ -0,0 +1,67 @@
+package algorithms.membership;
+
+import algorithms.Tools;
+import automata.RegisterAutomaton;
+import automata.RegisterIndex;
+import automata.TransitionTable;
+
+/**
+ * A search in a deterministic automaton: the frontier is a single
+ * configuration, which disappears as soon as a symbol has no transition.
+ * @author vincent
+ *
+ */
+public class DeterministicSearch extends IncrementalSearch {
+	private final TransitionTable t;
+	private final int[] registers;
+	private final RegisterIndex index;
+	private int currentState;
+
+	public DeterministicSearch(RegisterAutomaton automaton) {
+		this.t = automaton.getTransitionTable();
+		this.registers = automaton.getInitialRegisters();
+		this.index = automaton.createRegisterIndex(registers);
+		this.currentState = automaton.getInitialState().id;
+	}
+
+	@Override
+	protected void step(int symbol) {
+		if(currentState < 0)
+			return;
+
+		int containingRegister = 0;
+		int assignmentRegister = 0;
+
+		//If our registers do not contain the current symbol
+		if((containingRegister = Tools.registersContain(registers, index, symbol)) < 0) {
+			//If a rho value is defined
+			if((assignmentRegister = t.getRho(currentState)) >= 0) {
+				containingRegister = assignmentRegister;
+				Tools.assignRegister(registers, index, containingRegister, symbol);
+			}
+		}
+
+		//Make transition if possible
+		int next = t.successorsStart(currentState, containingRegister);
+		if(next == t.successorsEnd(currentState, containingRegister))
+			//If we can't go any further
+			currentState = -1;
+		else
+			currentState = t.getSuccessor(next);
+	}
+
+	@Override
+	public boolean accepts() {
+		return currentState >= 0 && t.isFinal(currentState);
+	}
+
+	@Override
+	public boolean reachedFinal() {
+		return accepts();
+	}
+
+	@Override
+	public boolean isDead() {
+		return currentState < 0;
+	}
+}
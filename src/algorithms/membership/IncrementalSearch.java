@@ -0,0 +1,98 @@
+package algorithms.membership;
+
+import java.util.List;
+
+/**
+ * <p>A membership search that reads its word one symbol at a time, and that can
+ * be resumed: after a prefix has been read, {@link #accepts()} gives the verdict
+ * for that prefix, and reading more symbols continues from the same frontier
+ * instead of starting over from the initial configuration.</p>
+ * <p>Searches are obtained from {@link MBSDecisionAlgorithm#startSearch(MBSDecisionAlgorithm.Context)},
+ * they are not thread-safe.</p>
+ * @author vincent
+ *
+ */
+public abstract class IncrementalSearch {
+	private int position = 0;
+	private MeteredWord meter = null;
+
+	/**
+	 * Read the next symbol of the word
+	 * @param symbol
+	 */
+	public final void read(int symbol) {
+		step(symbol);
+		position++;
+	}
+
+	/**
+	 * Read symbols from to to (excluded) of word: this is the way to extend
+	 * the prefix read so far, given the whole word.
+	 * @param word
+	 * @param from
+	 * @param to
+	 */
+	public void read(List<Integer> word, int from, int to) {
+		for(int i = from; i < to; i++)
+			read(word.get(i));
+	}
+
+	/**
+	 * Charge the configurations this search expands to the word it reads, if it
+	 * reads a {@link MeteredWord} (see {@link MeteredWord#find(List)}): searches moving whole frontiers only read one symbol
+	 * per frontier, so this is how their budget is spent (and checked) within frontiers.
+	 * @param word the word this search is about to read
+	 */
+	public void setMeter(List<Integer> word) {
+		meter = MeteredWord.find(word);
+	}
+
+	/**
+	 * @return the word the configurations of this search are charged to, or null
+	 */
+	public MeteredWord getMeter() {
+		return meter;
+	}
+
+	/**
+	 * Charge expanded configurations to the meter, if any: searches call this
+	 * from the loops expanding their frontiers.
+	 * @param configurations
+	 * @throws BudgetExceededException if the budget of the meter has run out
+	 */
+	protected final void charge(int configurations) {
+		if(meter != null)
+			meter.count(configurations);
+	}
+
+	/**
+	 * @return the number of symbols read so far
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	/**
+	 * @return true if the word read so far is accepted
+	 */
+	public abstract boolean accepts();
+
+	/**
+	 * @return true if a final configuration was reached by reading the last
+	 * symbol (or initially, if no symbol was read): this is where monitors
+	 * report violations
+	 */
+	public abstract boolean reachedFinal();
+
+	/**
+	 * @return true if no configuration is left: the word read so far, and
+	 * all of its extensions, are rejected
+	 */
+	public abstract boolean isDead();
+
+	/**
+	 * Move the frontier by one symbol
+	 * @param symbol
+	 */
+	protected abstract void step(int symbol);
+}
@@ -1,20 +1,31 @@
 package algorithms.membership;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.RandomAccess;
 
+import algorithms.membership.arena.CountingSearch;
 import algorithms.tools.ResultsContainer;
 import automata.Automaton;
+import automata.Minimiser;
+import automata.RegisterAutomaton;
 
 /**
- * An abstract class to make test extensions easier.
+ * <p>An abstract class to make test extensions easier.</p>
+ * <p>Algorithms keep no state between or during calls (statistics aside): everything
+ * they derive from an automaton lives in a {@link Context}. The automaton given to
+ * {@link #setAutomaton(Automaton)} is only a default context for {@link #decide(List)}.</p>
  * @author vincent
  *
  */
 public abstract class MBSDecisionAlgorithm {
-	private Automaton ra;
+	private volatile Context context;
 	protected final ResultsContainer rc;
 	public final String name;
+	private boolean minimising = false;
+	private boolean canonicalising = false;
+	private boolean counting = false;
+	private volatile Budget budget = Budget.UNLIMITED;
 	
 	public MBSDecisionAlgorithm(Automaton ra, String name) {
 		setAutomaton(ra);
@@ -24,23 +35,211 @@ public abstract class MBSDecisionAlgorithm {
 	}
 	
 	public MBSDecisionAlgorithm(String name) {
-		this.ra = null;
+		this.context = null;
 		rc = ResultsContainer.getContainer();
 		rc.createSession(name);
 		this.name = name;
 	}
 	
 	public void setAutomaton(Automaton ra) {
-		this.ra = ra;
+		context = newContext(ra);
+	}
+	
+	/**
+	 * Set the automaton, minimised first if this algorithm is minimising
+	 * (see {@link #setMinimising(boolean)}).
+	 * @param ra
+	 * @return the automaton actually used by this algorithm
+	 */
+	public Automaton prepare(Automaton ra) {
+		context = createContext(ra);
+		return context.automaton;
+	}
+	
+	/**
+	 * Build a context for ra, without changing the default one: this is
+	 * the way to share an automaton between threads.
+	 * @param ra an automaton, frozen if the context is to be shared
+	 * @return a new context, over ra minimised if this algorithm is minimising
+	 */
+	public Context createContext(Automaton ra) {
+		if(minimising && ra instanceof RegisterAutomaton)
+			ra = Minimiser.minimise((RegisterAutomaton) ra);
+		return newContext(ra);
+	}
+	
+	/**
+	 * Override this to derive data from the automaton once and for all.
+	 * @param ra
+	 * @return a context over exactly ra
+	 */
+	protected Context newContext(Automaton ra) {
+		return new Context(ra);
+	}
+	
+	/**
+	 * Override this if the algorithm runs on another kind of automaton (greedy or
+	 * heuristic automata): this is the way to run several algorithms on one automaton.
+	 * @param ra
+	 * @return an automaton equivalent to ra, of the kind this algorithm expects
+	 */
+	public Automaton adapt(RegisterAutomaton ra) {
+		return ra;
+	}
+
+	/**
+	 * @return the default context, see {@link #setAutomaton(Automaton)}
+	 */
+	public Context getContext() {
+		return context;
+	}
+	
+	/**
+	 * @param minimising if true, register automata given to {@link #prepare(Automaton)}
+	 * or {@link #createContext(Automaton)} are trimmed and their equivalent states
+	 * merged (see {@link Minimiser})
+	 */
+	public void setMinimising(boolean minimising) {
+		this.minimising = minimising;
+	}
+	public boolean isMinimising() {
+		return minimising;
+	}
+	
+	/**
+	 * @param canonicalising if true, algorithms that read whole words replace
+	 * the register values their word never reads again by a single dead value,
+	 * so that configurations only differing by such values are merged (see
+	 * {@link algorithms.tools.Lookahead}). Resumed searches cannot look ahead,
+	 * and algorithms that do not support it ignore this.
+	 */
+	public void setCanonicalising(boolean canonicalising) {
+		this.canonicalising = canonicalising;
+	}
+	public boolean isCanonicalising() {
+		return canonicalising;
+	}
+	
+	/**
+	 * @param counting if true, algorithms that report the accepting runs of their
+	 * word (LDFTS, BFS, BFLGS) count them with multiplicities instead of enumerating
+	 * them (see {@link CountingSearch}), and yield them as
+	 * the "accepting runs" statistic. Other algorithms ignore this.
+	 */
+	public void setCounting(boolean counting) {
+		this.counting = counting;
+	}
+	public boolean isCounting() {
+		return counting;
+	}
+	
+	/**
+	 * @param budget the resources of each call to {@link #decideWithin(Context, List)}
+	 */
+	public void setBudget(Budget budget) {
+		this.budget = budget;
+	}
+	public Budget getBudget() {
+		return budget;
 	}
 	
 	public boolean decide(List<Integer> word) {
 		if(!(word instanceof RandomAccess))
 			System.err.println("WARNING: " + name + " received slow-access list, algorithm will perform badly");
-		return decide(ra, word);
+		return decide(context, word);
+	}
+	
+	/**
+	 * The verdict is thread-safe if the automaton of the context is frozen, and if the
+	 * options of this algorithm (canonicalising, counting, budget, ...) are not changed
+	 * meanwhile: they are shared by all calls. Statistics are not: some algorithms record
+	 * the results of their last word (error configs, accepting runs) even when
+	 * {@link testbench.Testbench#COLLECT_STATS} is off, and concurrent calls overwrite them.
+	 * @param context
+	 * @param word
+	 * @return
+	 */
+	public boolean decide(Context context, List<Integer> word) {
+		return decide(context.automaton, word);
 	}
 	
 	public abstract boolean decide(Automaton automaton, List<Integer> word);
+	
+	/**
+	 * @param word
+	 * @return the verdict on word in the default context, within the budget
+	 * @see #decideWithin(Context, List)
+	 */
+	public BoundedDecision decideWithin(List<Integer> word) {
+		return decideWithin(context, word);
+	}
+	
+	/**
+	 * Decide word within the budget of this algorithm (see {@link #setBudget(Budget)}):
+	 * the search reads a {@link MeteredWord}, and is abandoned when a resource runs out.
+	 * The heap is only looked at as nodes are charged, and memory is the live heap as of
+	 * the last collection (see {@link MeteredWord}). Thread-safe under the same conditions as
+	 * {@link #decide(Context, List)}.
+	 * @param context
+	 * @param word
+	 * @return the outcome, UNKNOWN if the budget ran out, and the resources used
+	 */
+	public BoundedDecision decideWithin(Context context, List<Integer> word) {
+		MeteredWord metered = new MeteredWord(word instanceof RandomAccess ? word : new ArrayList<>(word), budget);
+		Outcome outcome = Outcome.UNKNOWN;
+		Budget.Limit limit = null;
+		try {
+			outcome = Outcome.of(decide(context, metered));
+		} catch (BudgetExceededException e) {
+			limit = e.limit;
+		}
+		
+		return new BoundedDecision(outcome, limit, metered.getNodes(), metered.getMillis(), metered.getPeakBytes());
+	}
+	
+	/**
+	 * Count the runs of the automaton of context accepting word (that is, ending in
+	 * a final state once all of word has been read), whatever the algorithm. Runs
+	 * are those of the automaton of the context: minimising merges some of them.
+	 * @param context
+	 * @param word
+	 * @return the number of accepting runs, {@link CountingSearch#SATURATED}
+	 * if there are too many to count, or -1 if runs cannot be counted on this automaton
+	 */
+	public long countAcceptingRuns(Context context, List<Integer> word) {
+		if(!(context.automaton instanceof RegisterAutomaton))
+			return -1;
+		return CountingSearch.read((RegisterAutomaton) context.automaton, word).countAcceptingRuns();
+	}
+	
+	/**
+	 * Start a search that can be resumed after each prefix of a word, see
+	 * {@link IncrementalSearch}.
+	 * @param context
+	 * @return a search from the initial configuration, or null if this
+	 * algorithm cannot resume its searches
+	 */
+	public IncrementalSearch startSearch(Context context) {
+		return null;
+	}
+	
+	/**
+	 * @return a resumable search in the default context, or null
+	 * @see #startSearch(Context)
+	 */
+	public IncrementalSearch startSearch() {
+		return startSearch(context);
+	}
+	
+	/**
+	 * @param context
+	 * @return a monitor checking traces pushed symbol by symbol
+	 * @throws IllegalArgumentException if this algorithm cannot resume its
+	 * searches (see {@link #startSearch(Context)})
+	 */
+	public Monitor createMonitor(Context context) {
+		return new SearchMonitor(this, context);
+	}
 
 	@Override
 	public String toString() {
@@ -52,4 +251,19 @@ public abstract class MBSDecisionAlgorithm {
 		yieldStatistics(name, rc);
 	}
 	protected abstract void yieldStatistics(String sessionName, ResultsContainer rc);
+	
+	/**
+	 * <p>Everything a call to an algorithm needs besides the word: the automaton
+	 * as prepared for the algorithm, and whatever the algorithm derives from it
+	 * (compiled code, heuristic comparators, ...).</p>
+	 * <p>Contexts are immutable; one context over a frozen automaton can be shared by
+	 * a whole thread pool.</p>
+	 */
+	public static class Context {
+		public final Automaton automaton;
+		
+		public Context(Automaton automaton) {
+			this.automaton = automaton;
+		}
+	}
 }
@@ -0,0 +1,154 @@
+package algorithms.membership;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+
+import algorithms.membership.portfolio.CancellableWord;
+
+/**
+ * <p>A read-only view of a word that charges every read to a {@link Budget}:
+ * each read is a node, and the clock and the heap are looked at every
+ * {@link #CHECK_INTERVAL} nodes. Once a resource is exhausted, reads throw a
+ * {@link BudgetExceededException}, which stops the search reading the word.</p>
+ * <p>Memory is estimated as the growth of the live heap since the view was
+ * created, that is of the heap in use after the last collection of each pool:
+ * garbage is not counted, but growth is only seen once collections happen,
+ * which they do before the heap fills up. Algorithms that copy their word before searching,
+ * or that read one symbol per frontier, report their nodes themselves, see
+ * {@link #count(int)}.</p>
+ * <p>Metered words are thread-safe: the members of a portfolio and the workers of
+ * a parallel search read the same word, and spend the same budget.</p>
+ * @author vincent
+ *
+ */
+public final class MeteredWord extends AbstractList<Integer> implements RandomAccess {
+	public static final int CHECK_INTERVAL = 1 << 6;
+
+	/**
+	 * Heap pools reporting their usage after collections
+	 */
+	private static final List<MemoryPoolMXBean> HEAP_POOLS = collectedHeapPools();
+
+	private final List<Integer> word;
+	private final Budget budget;
+	private final long start;
+	private final long baseline;
+
+	//Usage
+	private final AtomicLong nodes = new AtomicLong();
+	private final AtomicLong peakBytes = new AtomicLong();
+
+	/**
+	 * @param word a word with random access
+	 * @param budget
+	 */
+	public MeteredWord(List<Integer> word, Budget budget) {
+		this.word = word;
+		this.budget = budget;
+		this.start = System.nanoTime();
+		this.baseline = liveBytes();
+	}
+
+	/**
+	 * @throws BudgetExceededException if the budget has run out
+	 */
+	@Override
+	public Integer get(int index) {
+		count(1);
+		return word.get(index);
+	}
+
+	@Override
+	public int size() {
+		return word.size();
+	}
+
+	/**
+	 * Charge nodes that were visited without reading the word
+	 * @param visited
+	 * @throws BudgetExceededException if the budget has run out
+	 */
+	public void count(int visited) {
+		long total = nodes.addAndGet(visited);
+		if(budget.maxNodes > 0 && total > budget.maxNodes)
+			throw new BudgetExceededException(Budget.Limit.NODES, "More than " + budget.maxNodes + " nodes");
+		//Whoever crosses a multiple of the interval checks
+		if(total/CHECK_INTERVAL != (total-visited)/CHECK_INTERVAL)
+			check();
+	}
+
+	/**
+	 * Look at the clock and the heap now
+	 * @throws BudgetExceededException if the budget has run out
+	 */
+	public void check() {
+		if(budget.maxMillis > 0 && getMillis() > budget.maxMillis)
+			throw new BudgetExceededException(Budget.Limit.TIME, "More than " + budget.maxMillis + "ms");
+
+		long peak = peakBytes.accumulateAndGet(liveBytes() - baseline, Math::max);
+		if(budget.maxBytes > 0 && peak > budget.maxBytes)
+			throw new BudgetExceededException(Budget.Limit.MEMORY, "More than " + budget.maxBytes + " bytes");
+	}
+
+	/**
+	 * @return the heap in use after the last collection, or the heap in use
+	 * if the collector does not tell
+	 */
+	private static long liveBytes() {
+		if(HEAP_POOLS.isEmpty()) {
+			Runtime runtime = Runtime.getRuntime();
+			return runtime.totalMemory() - runtime.freeMemory();
+		}
+
+		long bytes = 0;
+		for(MemoryPoolMXBean pool : HEAP_POOLS)
+			bytes += pool.getCollectionUsage().getUsed();
+		return bytes;
+	}
+
+	private static List<MemoryPoolMXBean> collectedHeapPools() {
+		List<MemoryPoolMXBean> pools = new ArrayList<>();
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null)
+				pools.add(pool);
+		}
+		return pools;
+	}
+
+	/**
+	 * @param word
+	 * @return the metered word read through word (itself, or the word under
+	 * {@link CancellableWord}s), or null if word is not metered
+	 */
+	public static MeteredWord find(List<Integer> word) {
+		while(word instanceof CancellableWord)
+			word = ((CancellableWord) word).getWord();
+		return word instanceof MeteredWord ? (MeteredWord) word : null;
+	}
+
+	//Access methods
+	/**
+	 * @return the word under this view, which reads are not charged for
+	 */
+	public List<Integer> getWord() {
+		return word;
+	}
+	public long getNodes() {
+		return nodes.get();
+	}
+	public long getMillis() {
+		return (System.nanoTime() - start)/1000000;
+	}
+	/**
+	 * @return the largest growth of the live heap seen so far, in bytes
+	 */
+	public long getPeakBytes() {
+		return peakBytes.get();
+	}
+}
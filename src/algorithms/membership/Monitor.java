@@ -0,0 +1,44 @@
+package algorithms.membership;
+
+/**
+ * <p>An online membership check: symbols are pushed one at a time as the trace
+ * is produced (by a tracer, typically), and the trace is never stored.</p>
+ * <p>Property automata accept violations, so a violation is reported as soon
+ * as a final configuration is reached, and the verdict does not change
+ * afterwards until {@link #reset()}.</p>
+ * @author vincent
+ *
+ */
+public interface Monitor {
+	/**
+	 * Read the next symbol of the trace.
+	 * @param symbol
+	 * @return the verdict after this symbol
+	 */
+	public Verdict onSymbol(int symbol);
+	
+	/**
+	 * @return the verdict for the trace read so far
+	 */
+	public Verdict verdict();
+	
+	/**
+	 * Start over with an empty trace.
+	 */
+	public void reset();
+	
+	public static enum Verdict {
+		/**
+		 * A final configuration was reached
+		 */
+		VIOLATED,
+		/**
+		 * No final configuration was reached yet
+		 */
+		PENDING,
+		/**
+		 * No configuration is left: no continuation of the trace can be a violation
+		 */
+		SAFE
+	}
+}
@@ -0,0 +1,19 @@
+package algorithms.membership;
+
+/**
+ * The outcome of a membership decision within a {@link Budget}: UNKNOWN if the
+ * budget ran out first.
+ * @author vincent
+ *
+ */
+public enum Outcome {
+	MEMBER, NON_MEMBER, UNKNOWN;
+
+	/**
+	 * @param member
+	 * @return the outcome of a decision that completed
+	 */
+	public static Outcome of(boolean member) {
+		return member ? MEMBER : NON_MEMBER;
+	}
+}
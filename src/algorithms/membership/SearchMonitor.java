@@ -0,0 +1,72 @@
+package algorithms.membership;
+
+/**
+ * A monitor over the resumable search of an algorithm (see {@link IncrementalSearch}):
+ * the search reads symbols as they come, and the monitor only looks at it
+ * after each symbol.
+ * @author vincent
+ *
+ */
+public class SearchMonitor implements Monitor {
+	private final MBSDecisionAlgorithm algorithm;
+	private final MBSDecisionAlgorithm.Context context;
+	
+	private IncrementalSearch search;
+	private Verdict verdict;
+	
+	/**
+	 * @param algorithm an algorithm that can resume its searches
+	 * @param context
+	 * @throws IllegalArgumentException if algorithm does not support resumable searches
+	 */
+	public SearchMonitor(MBSDecisionAlgorithm algorithm, MBSDecisionAlgorithm.Context context) {
+		this.algorithm = algorithm;
+		this.context = context;
+		reset();
+	}
+
+	@Override
+	public Verdict onSymbol(int symbol) {
+		//Verdicts other than pending are final
+		if(verdict != Verdict.PENDING)
+			return verdict;
+		
+		search.read(symbol);
+		update();
+		return verdict;
+	}
+
+	@Override
+	public Verdict verdict() {
+		return verdict;
+	}
+
+	@Override
+	public void reset() {
+		search = algorithm.startSearch(context);
+		if(search == null)
+			throw new IllegalArgumentException(algorithm + " cannot be used as a monitor");
+		
+		verdict = Verdict.PENDING;
+		update();
+	}
+	
+	/**
+	 * @return the number of symbols read since the last reset
+	 */
+	public int getPosition() {
+		return search.getPosition();
+	}
+	
+	private void update() {
+		if(search.reachedFinal())
+			verdict = Verdict.VIOLATED;
+		else if(search.isDead())
+			verdict = Verdict.SAFE;
+	}
+	
+	@Override
+	public String toString() {
+		return algorithm + " monitor (" + verdict + " after " + getPosition() + " symbols)";
+	}
+}
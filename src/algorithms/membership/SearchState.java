@@ -1,18 +1,22 @@
 package algorithms.membership;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
-import algorithms.Tools;
+import algorithms.tools.Lookahead;
+import algorithms.tools.PersistentRegisters;
 import automata.RegisterAutomaton;
 import automata.State;
+import automata.TransitionTable;
 
 /**
  * A search state used for characterization of the following elements:
  * - which state of the automaton we are in
  * - what the current value of the registers is
- * - what is left of the word we have to analyse
+ * - what is left of the word we have to analyse, as a position in the full word
+ * 
+ * All the search states of a search share the same word, which must not change
+ * during the search: only positions are compared (and hashed).
  * 
  * For the moment this is generally not automaton-polymorphic, but we're working on that.
  * @author vincent
@@ -20,62 +24,90 @@ import automata.State;
  */
 public class SearchState {
 	public final State state;
-	public final int[] registers;
-	public final List<Integer> w;
+	/**
+	 * Shared with the parent state unless a register was assigned
+	 */
+	public final PersistentRegisters registers;
+	public final List<Integer> fullWord;
+	public final int nextIdx;
 	public final RegisterAutomaton a;
 	
-	public SearchState(State state, int[] registers, List<Integer> word, RegisterAutomaton a) {
+	public SearchState(State state, int[] registers, List<Integer> fullWord, RegisterAutomaton a) {
+		this(state, PersistentRegisters.of(registers), fullWord, 0, a);
+	}
+	
+	public SearchState(State state, PersistentRegisters registers, List<Integer> fullWord, int nextIdx, RegisterAutomaton a) {
 		this.state = state;
 		this.registers = registers;
-		this.w = word;
+		this.fullWord = fullWord;
+		this.nextIdx = nextIdx;
 		this.a = a;
 	}
 	
+	/**
+	 * @return the number of symbols left to read
+	 */
+	public int remaining() {
+		return fullWord.size() - nextIdx;
+	}
+	
 	public boolean isFinal() {
-		return w.size() == 0 && state.isFinal;
+		return nextIdx == fullWord.size() && state.isFinal;
 	}
 	
 	public List<SearchState> expand() {
 		List<SearchState> adjacentSearchStates = new ArrayList<>();
 		
 		//If search state is not terminal, find the adjacent search states
-		if(w.size() > 0) {
+		if(nextIdx < fullWord.size()) {
 			//Get the next symbol
-			int symbol = w.get(0);
+			int symbol = fullWord.get(nextIdx);
 			
 			//Update the registers and find the containing register (default -1)
+			TransitionTable t = a.getTransitionTable();
 			int containingRegister = -1;
-			Integer assignmentRegister = -1;
+			int assignmentRegister = -1;
+			PersistentRegisters nextRegisters = registers;
 			
-			if((containingRegister = Tools.registersContain(registers, symbol)) < 0) {
+			if((containingRegister = registers.indexOf(symbol)) < 0) {
 				//If a rho value is defined
-				if((assignmentRegister = a.getAssignmentRegister(state)) != null) {
+				if((assignmentRegister = t.getRho(state.id)) >= 0) {
 					containingRegister = assignmentRegister;
-					registers[containingRegister] = symbol;
+					nextRegisters = registers.set(containingRegister, symbol);
 				}
 			}
 			
-			//Deduce possible transitions
-			List<State> adjacentStates = a.getNextStates(state, containingRegister);
-			
-			//Infer search states
-			if(adjacentStates != null)
-				for(State s: adjacentStates) {
-					adjacentSearchStates.add(new SearchState(s, registers.clone(), w.subList(1, w.size()), a));
-				}
+			//Deduce possible transitions and infer search states (all sharing the same registers)
+			int end = t.successorsEnd(state.id, containingRegister);
+			for(int i = t.successorsStart(state.id, containingRegister); i < end; i++) {
+				adjacentSearchStates.add(new SearchState(t.getSuccessorState(i), nextRegisters, fullWord, nextIdx+1, a));
+			}
 		}
 		
 		return adjacentSearchStates;
 	}
 
+	/**
+	 * @param lookahead the lookahead of this state's word
+	 * @return this state where registers holding dead values are canonicalised
+	 * (see {@link Lookahead#canonicalise(PersistentRegisters, int)}), this
+	 * state itself if none does
+	 */
+	public SearchState canonicalise(Lookahead lookahead) {
+		PersistentRegisters canonical = lookahead.canonicalise(registers, nextIdx);
+		if(canonical == registers)
+			return this;
+		return new SearchState(state, canonical, fullWord, nextIdx, a);
+	}
+
 	
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + Arrays.hashCode(registers);
+		result = prime * result + registers.hashCode();
 		result = prime * result + ((state == null) ? 0 : state.hashCode());
-		result = prime * result + ((w == null) ? 0 : w.hashCode());
+		result = prime * result + nextIdx;
 		return result;
 	}
 
@@ -89,22 +121,19 @@ public class SearchState {
 		if (getClass() != obj.getClass())
 			return false;
 		SearchState other = (SearchState) obj;
-		if (!Arrays.equals(registers, other.registers))
+		if (!registers.equals(other.registers))
 			return false;
 		if (state != other.state)
 			return false;
-		if (w == null) {
-			if (other.w != null)
-				return false;
-		} else if (!w.equals(other.w))
+		if (nextIdx != other.nextIdx)
 			return false;
 		return true;
 	}
 
 	@Override
 	public String toString() {
-		return state.name + " " + Arrays.toString(registers)
-				+ ", w:" + w.subList(0, Math.min(4, w.size())).toString()
+		return state.name + " " + registers.toString()
+				+ ", w:" + fullWord.subList(nextIdx, Math.min(nextIdx+4, fullWord.size())).toString()
 				+ (isFinal() ? " F" : ""); 
 	}
 	
@@ -0,0 +1,91 @@
+package algorithms.membership.arena;
+
+import java.util.Collection;
+
+import testbench.Testbench;
+import algorithms.tools.ResultsContainer;
+import automata.TransitionTable;
+
+/**
+ * <p>A search configuration reduced to three ints: the id of the automaton
+ * state, the id of the register valuation in a {@link ValuationArena}, and
+ * the position of the next symbol to read in the word.</p>
+ * <p>Equality and hashing only compare ints; the position is left out since
+ * breadth-first algorithms keep all the frontier at the same position.</p>
+ * @author vincent
+ *
+ */
+public final class ArenaConfiguration {
+	public final int state;
+	public final int valuation;
+	public final int position;
+
+	//Statistics
+	private static int nodesExpanded = 0;
+
+	public ArenaConfiguration(int state, int valuation, int position) {
+		this.state = state;
+		this.valuation = valuation;
+		this.position = position;
+	}
+
+	/**
+	 * Read symbol and add the successors of this configuration to the given collection
+	 * @param t the automaton
+	 * @param arena the arena holding this configuration's valuation
+	 * @param symbol
+	 * @param successors
+	 */
+	public void expand(TransitionTable t, ValuationArena arena, int symbol, Collection<ArenaConfiguration> successors) {
+		//Find the containing register (default -1), and update the registers
+		int nextValuation = valuation;
+		int containingRegister = arena.find(valuation, symbol);
+
+		if(containingRegister < 0) {
+			//If a rho value is defined
+			int assignmentRegister = t.getRho(state);
+			if(assignmentRegister >= 0) {
+				containingRegister = assignmentRegister;
+				nextValuation = arena.assign(valuation, assignmentRegister, symbol);
+			}
+		}
+
+		//Deduce possible transitions and infer configurations
+		int end = t.successorsEnd(state, containingRegister);
+		for(int i = t.successorsStart(state, containingRegister); i < end; i++)
+			successors.add(new ArenaConfiguration(t.getSuccessor(i), nextValuation, position+1));
+
+		if(Testbench.COLLECT_STATS)
+			nodesExpanded++;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * valuation + state;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ArenaConfiguration other = (ArenaConfiguration) obj;
+		return state == other.state && valuation == other.valuation;
+	}
+
+	@Override
+	public String toString() {
+		return "(q" + state + ", v" + valuation + ", " + position + ")";
+	}
+
+	//Stats
+	public static void yieldStatistics(String sessionName, ResultsContainer rc) {
+		if(Testbench.COLLECT_STATS) {
+			rc.addSessionNumber(sessionName, "nodes", nodesExpanded);
+			nodesExpanded = 0;
+		}
+	}
+}
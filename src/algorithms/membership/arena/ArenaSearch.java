@@ -0,0 +1,104 @@
+package algorithms.membership.arena;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import testbench.Testbench;
+import algorithms.membership.IncrementalSearch;
+import algorithms.tools.ResultsContainer;
+import automata.RegisterAutomaton;
+import automata.TransitionTable;
+
+/**
+ * <p>BFLGS on interned valuations, one frontier per symbol. A word is accepted
+ * if a final state is reached once all of it has been read.</p>
+ * <p>Live valuations are moved to a fresh arena when the arena holds more than
+ * {@link #COMPACTION_RATIO} valuations per frontier configuration.</p>
+ * @author vincent
+ *
+ */
+public class ArenaSearch extends IncrementalSearch {
+	public static final int COMPACTION_RATIO = 4;
+	static final int COMPACTION_MIN_SIZE = 1 << 12;
+
+	private final TransitionTable t;
+	private ValuationArena arena;
+	private Set<ArenaConfiguration> frontier = new HashSet<>();
+
+	//Statistics
+	private static int maxFrontierSize = 0;
+	private static int maxArenaSize = 0;
+	private static int compactions = 0;
+
+	public ArenaSearch(RegisterAutomaton automaton) {
+		this.t = automaton.getTransitionTable();
+
+		int[] initialRegisters = automaton.getInitialRegisters();
+		arena = new ValuationArena(initialRegisters.length);
+		frontier.add(new ArenaConfiguration(automaton.getInitialState().id, arena.intern(initialRegisters), 0));
+	}
+
+	@Override
+	protected void step(int symbol) {
+		if(frontier.isEmpty())
+			return;
+
+		Set<ArenaConfiguration> nextFrontier = new HashSet<>();
+		for(ArenaConfiguration c : frontier) {
+			charge(1);
+			c.expand(t, arena, symbol, nextFrontier);
+		}
+
+		if(Testbench.COLLECT_STATS) {
+			maxFrontierSize = Math.max(maxFrontierSize, nextFrontier.size());
+			maxArenaSize = Math.max(maxArenaSize, arena.size());
+		}
+
+		//Get rid of the valuations no configuration refers to anymore
+		if(arena.size() > COMPACTION_MIN_SIZE && arena.size() > COMPACTION_RATIO*nextFrontier.size()) {
+			ValuationArena fresh = new ValuationArena(arena.getWidth());
+			Set<ArenaConfiguration> moved = new HashSet<>();
+			for(ArenaConfiguration c : nextFrontier)
+				moved.add(new ArenaConfiguration(c.state, fresh.importValuation(arena, c.valuation), c.position));
+
+			arena = fresh;
+			nextFrontier = moved;
+			if(Testbench.COLLECT_STATS)
+				compactions++;
+		}
+
+		frontier = nextFrontier;
+	}
+
+	@Override
+	public boolean accepts() {
+		for(ArenaConfiguration c : frontier) {
+			if(t.isFinal(c.state))
+				return true;
+		}
+
+		return false;
+	}
+
+	@Override
+	public boolean reachedFinal() {
+		//The whole frontier is new after each symbol
+		return accepts();
+	}
+
+	@Override
+	public boolean isDead() {
+		return frontier.isEmpty();
+	}
+
+	//Stats
+	public static void yieldStatistics(String sessionName, ResultsContainer rc) {
+		rc.addSessionNumber(sessionName, "frontier size", maxFrontierSize);
+		rc.addSessionNumber(sessionName, "arena size", maxArenaSize);
+		rc.addSessionNumber(sessionName, "compactions", compactions);
+
+		maxFrontierSize = 0;
+		maxArenaSize = 0;
+		compactions = 0;
+	}
+}
@@ -0,0 +1,199 @@
+package algorithms.membership.arena;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import testbench.Testbench;
+import algorithms.membership.IncrementalSearch;
+import algorithms.tools.ResultsContainer;
+import automata.RegisterAutomaton;
+import automata.TransitionTable;
+
+/**
+ * <p>BFLGS on interned valuations (see {@link ArenaSearch}) where each frontier
+ * configuration carries its multiplicity: the number of runs of the automaton
+ * reaching it on the word read so far. Multiplicities are summed when
+ * configurations merge, so runs are counted in time polynomial in the size of
+ * the frontier, instead of being enumerated one path at a time.</p>
+ * <p>As with {@link ArenaSearch}, a word is accepted if a final state is reached
+ * once all of it has been read; its accepting runs are the runs ending in a final
+ * state. Multiplicities saturate at {@link #SATURATED}.</p>
+ * @author vincent
+ *
+ */
+public class CountingSearch extends IncrementalSearch {
+	public static final long SATURATED = Long.MAX_VALUE;
+	private static final int MIN_FRONTIER = 16;
+
+	private final TransitionTable t;
+	private ValuationArena arena;
+
+	//Frontier: configurations and their multiplicities
+	private ArenaConfiguration[] frontier = new ArenaConfiguration[MIN_FRONTIER];
+	private long[] runs = new long[MIN_FRONTIER];
+	private int size = 0;
+
+	//Next frontier
+	private ArenaConfiguration[] next = new ArenaConfiguration[MIN_FRONTIER];
+	private long[] nextRuns = new long[MIN_FRONTIER];
+	private final Map<ArenaConfiguration, Integer> nextIndex = new HashMap<>();
+	private final List<ArenaConfiguration> successors = new ArrayList<>();
+
+	//Statistics
+	private static int maxFrontierSize = 0;
+	private static int saturations = 0;
+
+	public CountingSearch(RegisterAutomaton automaton) {
+		this.t = automaton.getTransitionTable();
+
+		int[] initialRegisters = automaton.getInitialRegisters();
+		arena = new ValuationArena(initialRegisters.length);
+		frontier[0] = new ArenaConfiguration(automaton.getInitialState().id, arena.intern(initialRegisters), 0);
+		runs[0] = 1;
+		size = 1;
+	}
+
+	/**
+	 * @param automaton
+	 * @param word
+	 * @return a search that has read word, or the prefix of word after which no
+	 * configuration was left
+	 */
+	public static CountingSearch read(RegisterAutomaton automaton, List<Integer> word) {
+		CountingSearch search = new CountingSearch(automaton);
+		for(int symbol : word) {
+			if(search.isDead())
+				break;
+			search.read(symbol);
+		}
+
+		return search;
+	}
+
+	@Override
+	protected void step(int symbol) {
+		if(size == 0)
+			return;
+
+		//Every run to a configuration goes on to each of its successors
+		int nextSize = 0;
+		for(int i = 0; i < size; i++) {
+			successors.clear();
+			frontier[i].expand(t, arena, symbol, successors);
+			for(ArenaConfiguration s : successors) {
+				Integer j = nextIndex.get(s);
+				if(j != null) {
+					nextRuns[j] = add(nextRuns[j], runs[i]);
+					continue;
+				}
+
+				if(nextSize == next.length) {
+					next = Arrays.copyOf(next, 2*nextSize);
+					nextRuns = Arrays.copyOf(nextRuns, 2*nextSize);
+				}
+				nextIndex.put(s, nextSize);
+				next[nextSize] = s;
+				nextRuns[nextSize++] = runs[i];
+			}
+		}
+		nextIndex.clear();
+
+		if(Testbench.COLLECT_STATS)
+			maxFrontierSize = Math.max(maxFrontierSize, nextSize);
+
+		//Get rid of the valuations no configuration refers to anymore
+		if(arena.size() > ArenaSearch.COMPACTION_MIN_SIZE && arena.size() > ArenaSearch.COMPACTION_RATIO*nextSize) {
+			ValuationArena fresh = new ValuationArena(arena.getWidth());
+			for(int i = 0; i < nextSize; i++)
+				next[i] = new ArenaConfiguration(next[i].state, fresh.importValuation(arena, next[i].valuation), next[i].position);
+			arena = fresh;
+		}
+
+		//Swap frontiers
+		ArenaConfiguration[] configurations = frontier;
+		long[] multiplicities = runs;
+		frontier = next;
+		runs = nextRuns;
+		size = nextSize;
+		next = configurations;
+		nextRuns = multiplicities;
+		Arrays.fill(next, null);
+	}
+
+	@Override
+	public boolean accepts() {
+		for(int i = 0; i < size; i++) {
+			if(t.isFinal(frontier[i].state))
+				return true;
+		}
+
+		return false;
+	}
+
+	@Override
+	public boolean reachedFinal() {
+		//The whole frontier is new after each symbol
+		return accepts();
+	}
+
+	@Override
+	public boolean isDead() {
+		return size == 0;
+	}
+
+	/**
+	 * @return the number of runs accepting the word read so far, {@link #SATURATED} if
+	 * there are too many to count
+	 */
+	public long countAcceptingRuns() {
+		long accepting = 0;
+		for(int i = 0; i < size; i++) {
+			if(t.isFinal(frontier[i].state))
+				accepting = add(accepting, runs[i]);
+		}
+
+		return accepting;
+	}
+
+	/**
+	 * @return the number of distinct final configurations of the frontier
+	 */
+	public int countAcceptingConfigurations() {
+		int accepting = 0;
+		for(int i = 0; i < size; i++) {
+			if(t.isFinal(frontier[i].state))
+				accepting++;
+		}
+
+		return accepting;
+	}
+
+	//Tools
+	/**
+	 * @param a a multiplicity
+	 * @param b a multiplicity
+	 * @return a+b, or {@link #SATURATED} if it overflows
+	 */
+	private static long add(long a, long b) {
+		long sum = a + b;
+		if(sum < 0) {
+			if(Testbench.COLLECT_STATS)
+				saturations++;
+			return SATURATED;
+		}
+		return sum;
+	}
+
+	//Stats
+	public static void yieldStatistics(String sessionName, ResultsContainer rc) {
+		if(Testbench.COLLECT_STATS) {
+			rc.addSessionNumber(sessionName, "counting frontier size", maxFrontierSize);
+			rc.addSessionNumber(sessionName, "saturations", saturations);
+			maxFrontierSize = 0;
+			saturations = 0;
+		}
+	}
+}
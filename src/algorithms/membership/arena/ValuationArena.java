@@ -0,0 +1,231 @@
+package algorithms.membership.arena;
+
+import java.util.Arrays;
+
+import algorithms.tools.OpenAddressing;
+
+/**
+ * <p>A hash-consing arena for register valuations: every distinct register
+ * vector is stored once, in a flat array, and designated by an int handle.
+ * Two configurations have the same registers iff they have the same
+ * valuation id, so comparing and hashing them never touches the registers.</p>
+ *
+ * <p>Valuations are immutable once interned. Assigning a register
+ * ({@link #assign(int, int, int)}) interns the derived vector without
+ * building it, so nothing is allocated unless the vector is new.</p>
+ *
+ * <p>Valuations are never freed: a search that runs for a long time should
+ * move its live valuations to a fresh arena from time to time (see
+ * {@link #importValuation(ValuationArena, int)}).</p>
+ * @author vincent
+ *
+ */
+public final class ValuationArena {
+	private static final int PRIME = 31;
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final int width;
+	/**
+	 * PRIME^(width-1-r), the weight of register r in a valuation hash
+	 */
+	private final int[] weights;
+
+	//Storage: valuation v occupies values[v*width] to values[(v+1)*width-1]
+	private int[] values;
+	private int[] hashes;
+	private int size = 0;
+
+	//Open-addressing table of valuation ids, -1 for free slots
+	private int[] table;
+	private int mask;
+
+	/**
+	 * @param width the number of registers of every valuation
+	 */
+	public ValuationArena(int width) {
+		this.width = width;
+
+		weights = new int[width];
+		int w = 1;
+		for(int r = width-1; r >= 0; r--) {
+			weights[r] = w;
+			w *= PRIME;
+		}
+
+		values = new int[INITIAL_CAPACITY*Math.max(width, 1)];
+		hashes = new int[INITIAL_CAPACITY];
+		table = new int[2*INITIAL_CAPACITY];
+		Arrays.fill(table, -1);
+		mask = table.length-1;
+	}
+
+	//Interning
+	/**
+	 * @param valuation
+	 * @return the id of valuation, which is added if it is new
+	 */
+	public int intern(int[] valuation) {
+		int hash = 0;
+		for(int r = 0; r < width; r++)
+			hash = PRIME*hash + valuation[r];
+
+		int slot = OpenAddressing.mix(hash) & mask;
+		for(int id; (id = table[slot]) >= 0; slot = (slot+1) & mask) {
+			if(hashes[id] == hash && matches(id, valuation, 0))
+				return id;
+		}
+
+		int id = append(hash);
+		System.arraycopy(valuation, 0, values, id*width, width);
+		return id;
+	}
+
+	/**
+	 * Intern valuation id where register is replaced by symbol
+	 * @param id
+	 * @param register
+	 * @param symbol
+	 * @return the id of the derived valuation
+	 */
+	public int assign(int id, int register, int symbol) {
+		int old = values[id*width+register];
+		if(old == symbol)
+			return id;
+
+		int hash = hashes[id] + (symbol-old)*weights[register];
+
+		int slot = OpenAddressing.mix(hash) & mask;
+		for(int other; (other = table[slot]) >= 0; slot = (slot+1) & mask) {
+			if(hashes[other] == hash && matchesAssigned(other, id, register, symbol))
+				return other;
+		}
+
+		//The source may move if the storage grows
+		int derived = append(hash);
+		System.arraycopy(values, id*width, values, derived*width, width);
+		values[derived*width+register] = symbol;
+		return derived;
+	}
+
+	/**
+	 * Copy a valuation of another arena (with the same width) into this one
+	 * @param other
+	 * @param id
+	 * @return the id of the valuation in this arena
+	 */
+	public int importValuation(ValuationArena other, int id) {
+		int hash = other.hashes[id];
+
+		int slot = OpenAddressing.mix(hash) & mask;
+		for(int mine; (mine = table[slot]) >= 0; slot = (slot+1) & mask) {
+			if(hashes[mine] == hash && matches(mine, other.values, id*width))
+				return mine;
+		}
+
+		int imported = append(hash);
+		System.arraycopy(other.values, id*width, values, imported*width, width);
+		return imported;
+	}
+
+	//Access methods
+	public int getWidth() {
+		return width;
+	}
+	public int get(int id, int register) {
+		return values[id*width+register];
+	}
+	/**
+	 * @param id
+	 * @param symbol
+	 * @return the lowest register of valuation id containing symbol, or -1
+	 */
+	public int find(int id, int symbol) {
+		int base = id*width;
+		for(int r = 0; r < width; r++) {
+			if(values[base+r] == symbol)
+				return r;
+		}
+		return -1;
+	}
+	public int[] toArray(int id) {
+		return Arrays.copyOfRange(values, id*width, (id+1)*width);
+	}
+	/**
+	 * @return the number of distinct valuations interned so far
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * @return the approximate number of bytes used by the arena
+	 */
+	public long getMemoryFootprint() {
+		return 4L*(values.length + hashes.length + table.length + weights.length);
+	}
+
+	//Tools
+	private boolean matches(int id, int[] valuation, int offset) {
+		int base = id*width;
+		for(int r = 0; r < width; r++) {
+			if(values[base+r] != valuation[offset+r])
+				return false;
+		}
+		return true;
+	}
+
+	private boolean matchesAssigned(int candidate, int id, int register, int symbol) {
+		int cBase = candidate*width;
+		int base = id*width;
+		for(int r = 0; r < width; r++) {
+			if(values[cBase+r] != (r == register ? symbol : values[base+r]))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Reserve a new valuation id and register it in the table
+	 * @param hash
+	 * @return
+	 */
+	private int append(int hash) {
+		if(size == hashes.length)
+			grow();
+
+		int id = size++;
+		hashes[id] = hash;
+
+		if(2*size > table.length)
+			rehash();
+		else
+			insert(id);
+
+		return id;
+	}
+
+	private void insert(int id) {
+		int slot = OpenAddressing.mix(hashes[id]) & mask;
+		while(table[slot] >= 0)
+			slot = (slot+1) & mask;
+		table[slot] = id;
+	}
+
+	private void grow() {
+		hashes = Arrays.copyOf(hashes, 2*hashes.length);
+		values = Arrays.copyOf(values, hashes.length*Math.max(width, 1));
+	}
+
+	private void rehash() {
+		table = new int[2*table.length];
+		Arrays.fill(table, -1);
+		mask = table.length-1;
+
+		for(int id = 0; id < size; id++)
+			insert(id);
+	}
+
+	@Override
+	public String toString() {
+		return "Valuation arena: " + size + " valuations of " + width + " registers";
+	}
+}
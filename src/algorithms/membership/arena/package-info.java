@@ -0,0 +1,9 @@
+/**
+ * Contains the code for membership algorithms working on interned
+ * register valuations: configurations are plain (state, valuation, position)
+ * triples of ints, see {@link algorithms.membership.arena.ValuationArena}.
+ * 
+ * @author vincent
+ *
+ */
+package algorithms.membership.arena;
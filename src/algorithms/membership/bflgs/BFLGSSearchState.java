@@ -6,7 +6,9 @@ import java.util.List;
 
 import algorithms.Tools;
 import automata.RegisterAutomaton;
+import automata.RegisterIndex;
 import automata.State;
+import automata.TransitionTable;
 
 /**
  * <strong style="color: red;">This class is BFLGS-specific.</strong>
@@ -30,14 +32,29 @@ public class BFLGSSearchState {
 	public final RegisterAutomaton a;
 	
 	public final int[] registers;
+	/**
+	 * Reverse index of the registers, null if the automaton has few enough
+	 * registers to scan them
+	 */
+	public final RegisterIndex index;
+	
+	public BFLGSSearchState(State state, 
+							int[] registers, 
+							List<Integer> fullWord,
+							int nextIdx,
+							RegisterAutomaton a) {
+		this(state, registers, a.createRegisterIndex(registers), fullWord, nextIdx, a);
+	}
 	
 	public BFLGSSearchState(State state, 
 							int[] registers, 
+							RegisterIndex index,
 							List<Integer> fullWord,
 							int nextIdx,
 							RegisterAutomaton a) {
 		this.state = state;
 		this.registers = registers;
+		this.index = index;
 		this.nextIdx = nextIdx;
 		this.a = a;
 		this.fullWord = fullWord;
@@ -58,25 +75,26 @@ public class BFLGSSearchState {
 		int symbol = fullWord.get(nextIdx);
 		
 		//Update the registers and find the containing register (default -1)
+		TransitionTable t = a.getTransitionTable();
 		int containingRegister = -1;
-		Integer assignmentRegister = -1;
+		int assignmentRegister = -1;
 		
-		if((containingRegister = Tools.registersContain(registers, symbol)) < 0) {
+		if((containingRegister = Tools.registersContain(registers, index, symbol)) < 0) {
 			//If a rho value is defined
-			if((assignmentRegister = a.getAssignmentRegister(state)) != null) {
+			if((assignmentRegister = t.getRho(state.id)) >= 0) {
 				containingRegister = assignmentRegister;
-				registers[containingRegister] = symbol;
+				Tools.assignRegister(registers, index, containingRegister, symbol);
 			}
 		}
 		
-		//Deduce possible transitions
-		List<State> adjacentStates = a.getNextStates(state, containingRegister);
-		
-		//Infer search states
-		if(adjacentStates != null)
-			for(State s: adjacentStates) {
-				adjacentSearchStates.add(new BFLGSSearchState(s, registers.clone(), fullWord, nextIdx+1, a));
-			}
+		//Deduce possible transitions and infer search states
+		//(the last successor takes over the index, this state is not expanded again)
+		int end = t.successorsEnd(state.id, containingRegister);
+		for(int i = t.successorsStart(state.id, containingRegister); i < end; i++) {
+			adjacentSearchStates.add(new BFLGSSearchState(t.getSuccessorState(i), registers.clone(), 
+														  index == null || i == end-1 ? index : index.copy(), 
+														  fullWord, nextIdx+1, a));
+		}
 		
 		return adjacentSearchStates;
 	}
@@ -0,0 +1,142 @@
+package algorithms.membership.bitset;
+
+import testbench.Testbench;
+import algorithms.membership.IncrementalSearch;
+import algorithms.membership.arena.ArenaSearch;
+import algorithms.membership.arena.ValuationArena;
+import algorithms.tools.ResultsContainer;
+import automata.OptimisedRA;
+
+/**
+ * <p>Forgetful BFLGS on state sets: the frontier maps each register valuation
+ * to the set of states reached with it (see {@link MaskFrontier}). When a
+ * valuation holds the symbol, all of its states move at once (see
+ * {@link StateSetTransitions#image(long, int)}); otherwise its states are split
+ * by the register they assign, one derived valuation per register.</p>
+ * <p>As with the other forgetful searches, a word is accepted as soon as a
+ * final state is reached: once it is, the search stops and every extension
+ * of the word is accepted as well.</p>
+ * @author vincent
+ *
+ */
+public class BitsetSearch extends IncrementalSearch {
+	private static final int COMPACTION_MIN_SIZE = 1 << 12;
+
+	private final StateSetTransitions transitions;
+	private final long finalMask;
+	private final int writeOffset;
+	private ValuationArena arena;
+	private MaskFrontier frontier = new MaskFrontier();
+	private MaskFrontier nextFrontier = new MaskFrontier();
+	private boolean accepted;
+
+	//Statistics
+	private static int maxFrontierSize = 0;
+	private static int maxConfigurations = 0;
+	private static int compactions = 0;
+
+	/**
+	 * @param a
+	 * @param transitions the state set transitions of a
+	 */
+	public BitsetSearch(OptimisedRA a, StateSetTransitions transitions) {
+		this.transitions = transitions;
+		this.finalMask = transitions.getFinalMask();
+		this.writeOffset = transitions.getWriteableOffset();
+
+		int[] initialRegisters = a.getInitialRegisters();
+		arena = new ValuationArena(initialRegisters.length);
+		frontier.add(arena.intern(initialRegisters), 1L << a.getInitialState().id);
+		accepted = a.getInitialState().isFinal;
+	}
+
+	@Override
+	protected void step(int symbol) {
+		if(accepted)
+			return;
+
+		//Fixed registers hold the symbol for every valuation
+		int fixedRegister = transitions.findFixedRegister(symbol);
+
+		for(int entry = 0; entry < frontier.size(); entry++) {
+			int valuation = frontier.getValuation(entry);
+			long states = frontier.getMask(entry);
+			charge(Long.bitCount(states));
+
+			int containingRegister = fixedRegister;
+			if(containingRegister < 0 && (containingRegister = arena.find(valuation, symbol)) >= 0)
+				containingRegister += writeOffset;
+			if(containingRegister >= 0) {
+				//All states read the symbol from the same register
+				long next = transitions.image(states, containingRegister);
+				if(next != 0L)
+					nextFrontier.add(valuation, next);
+				accepted |= (next & finalMask) != 0L;
+				continue;
+			}
+
+			//Group states by assigned register
+			long pending = states & transitions.getAssigningMask();
+			while(pending != 0L) {
+				int register = transitions.getRho(Long.numberOfTrailingZeros(pending));
+				long group = pending & transitions.getRhoMask(register);
+				pending &= ~group;
+
+				long next = transitions.image(group, register + writeOffset);
+				if(next != 0L)
+					nextFrontier.add(arena.assign(valuation, register, symbol), next);
+				accepted |= (next & finalMask) != 0L;
+			}
+		}
+
+		if(Testbench.COLLECT_STATS) {
+			maxFrontierSize = Math.max(maxFrontierSize, nextFrontier.size());
+			maxConfigurations = Math.max(maxConfigurations, nextFrontier.countConfigurations());
+		}
+
+		//Get rid of the valuations no configuration refers to anymore
+		if(arena.size() > COMPACTION_MIN_SIZE && arena.size() > ArenaSearch.COMPACTION_RATIO*nextFrontier.size()) {
+			ValuationArena fresh = new ValuationArena(arena.getWidth());
+			frontier.clear();
+			for(int entry = 0; entry < nextFrontier.size(); entry++)
+				frontier.add(fresh.importValuation(arena, nextFrontier.getValuation(entry)),
+							 nextFrontier.getMask(entry));
+
+			arena = fresh;
+			nextFrontier.clear();
+			compactions++;
+			return;
+		}
+
+		MaskFrontier swap = frontier;
+		frontier = nextFrontier;
+		nextFrontier = swap;
+		nextFrontier.clear();
+	}
+
+	@Override
+	public boolean accepts() {
+		return accepted;
+	}
+
+	@Override
+	public boolean reachedFinal() {
+		return accepted;
+	}
+
+	@Override
+	public boolean isDead() {
+		return !accepted && frontier.size() == 0;
+	}
+
+	//Stats
+	public static void yieldStatistics(String sessionName, ResultsContainer rc) {
+		rc.addSessionNumber(sessionName, "frontier size", maxFrontierSize);
+		rc.addSessionNumber(sessionName, "configurations", maxConfigurations);
+		rc.addSessionNumber(sessionName, "compactions", compactions);
+
+		maxFrontierSize = 0;
+		maxConfigurations = 0;
+		compactions = 0;
+	}
+}
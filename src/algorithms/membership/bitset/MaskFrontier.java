@@ -0,0 +1,132 @@
+package algorithms.membership.bitset;
+
+import java.util.Arrays;
+
+import algorithms.tools.OpenAddressing;
+
+/**
+ * <p>A frontier of state sets, one per register valuation: entries map a
+ * valuation id (see {@link algorithms.membership.arena.ValuationArena}) to a
+ * long mask of states, and adding states to a valuation that is already
+ * there merges the masks.</p>
+ * <p>As with {@link algorithms.membership.obflgs.ConfigurationTable}, entries
+ * are found back through an open-addressed table (linear probing), and
+ * frontiers are meant to be reused from one symbol to the next.</p>
+ * @author vincent
+ *
+ */
+public final class MaskFrontier {
+	private static final int MIN_CAPACITY = 16;
+
+	private int[] valuations;
+	private long[] masks;
+	/**
+	 * Entry number + 1 in each slot, 0 if the slot is free
+	 */
+	private int[] slots;
+	/**
+	 * Slot of each entry, so that clearing does not scan the whole table
+	 */
+	private int[] entrySlots;
+	private int shift;
+	private int size = 0;
+
+	public MaskFrontier() {
+		valuations = new int[MIN_CAPACITY];
+		masks = new long[MIN_CAPACITY];
+		entrySlots = new int[MIN_CAPACITY];
+		slots = new int[2*MIN_CAPACITY];
+		shift = OpenAddressing.shift(slots.length);
+	}
+
+	/**
+	 * Add states to the set of valuation
+	 * @param valuation
+	 * @param states
+	 */
+	public void add(int valuation, long states) {
+		int slot = hash(valuation);
+		for(int entry; (entry = slots[slot]-1) >= 0; slot = (slot+1) & (slots.length-1)) {
+			if(valuations[entry] == valuation) {
+				masks[entry] |= states;
+				return;
+			}
+		}
+
+		if(ensureCapacity()) {
+			slot = hash(valuation);
+			while(slots[slot] != 0)
+				slot = (slot+1) & (slots.length-1);
+		}
+
+		int entry = size++;
+		slots[slot] = entry+1;
+		entrySlots[entry] = slot;
+		valuations[entry] = valuation;
+		masks[entry] = states;
+	}
+
+	/**
+	 * Remove all entries, keeping the allocated space.
+	 */
+	public void clear() {
+		for(int entry = 0; entry < size; entry++)
+			slots[entrySlots[entry]] = 0;
+		size = 0;
+	}
+
+	//Access methods
+	/**
+	 * @return the number of valuations in the frontier
+	 */
+	public int size() {
+		return size;
+	}
+	public int getValuation(int entry) {
+		return valuations[entry];
+	}
+	public long getMask(int entry) {
+		return masks[entry];
+	}
+	/**
+	 * @return the number of (state, valuation) configurations in the frontier
+	 */
+	public int countConfigurations() {
+		int count = 0;
+		for(int entry = 0; entry < size; entry++)
+			count += Long.bitCount(masks[entry]);
+		return count;
+	}
+
+	//Tools
+	private int hash(int valuation) {
+		return OpenAddressing.slot(valuation, shift);
+	}
+
+	/**
+	 * Make room for one more entry: doubles the entries if they are full,
+	 * and the slots if the load factor would exceed 1/2.
+	 * @return true if the slots were rebuilt
+	 */
+	private boolean ensureCapacity() {
+		if(size == entrySlots.length) {
+			valuations = Arrays.copyOf(valuations, 2*valuations.length);
+			masks = Arrays.copyOf(masks, 2*masks.length);
+			entrySlots = Arrays.copyOf(entrySlots, 2*entrySlots.length);
+		}
+
+		if(2*(size+1) <= slots.length)
+			return false;
+
+		slots = new int[2*slots.length];
+		shift--;
+		for(int entry = 0; entry < size; entry++) {
+			int slot = hash(valuations[entry]);
+			while(slots[slot] != 0)
+				slot = (slot+1) & (slots.length-1);
+			slots[slot] = entry+1;
+			entrySlots[entry] = slot;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,151 @@
+package algorithms.membership.bitset;
+
+import automata.OptimisedRA;
+import automata.TransitionTable;
+
+/**
+ * <p>The transition relation of an automaton of at most {@link #MAX_STATES}
+ * states, precomputed on state sets: a set of states is a long where bit q
+ * stands for state q, and the successors of a whole set on a label are
+ * obtained with one table lookup per byte of the set (see
+ * {@link #image(long, int)}).</p>
+ * <p>Labels and rho follow the register layout of {@link OptimisedRA}: rho
+ * designates a writeable register, read on label rho + {@link #getWriteableOffset()}.
+ * Tables are immutable once built, they can be shared between searches
+ * and threads.</p>
+ * @author vincent
+ *
+ */
+public final class StateSetTransitions {
+	public static final int MAX_STATES = Long.SIZE;
+	private static final int CHUNK_BITS = 8;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+	private final int numLabels;
+	private final int writeOffset;
+	private final OptimisedRA a;
+	private final int chunks;
+	/**
+	 * images[(label*chunks + c)*CHUNK_SIZE + b] is the union of the successors
+	 * on label of the states whose bits are set in b, shifted to chunk c
+	 */
+	private final long[] images;
+	private final long finalMask;
+	private final long assigningMask;
+	private final long[] rhoMasks;
+	private final int[] rho;
+
+	public StateSetTransitions(OptimisedRA a) {
+		TransitionTable t = a.getTransitionTable();
+		int numStates = t.getNumStates();
+		if(numStates > MAX_STATES)
+			throw new IllegalArgumentException("State sets need at most " + MAX_STATES
+											   + " states, this automaton has " + numStates);
+
+		numLabels = t.getNumLabels();
+		writeOffset = a.getWriteableOffset();
+		this.a = a;
+		chunks = Math.max((numStates+CHUNK_BITS-1)/CHUNK_BITS, 1);
+
+		//Successor masks of single states
+		long[] successors = new long[numStates*numLabels];
+		for(int q = 0; q < numStates; q++) {
+			for(int l = 0; l < numLabels; l++) {
+				int end = t.successorsEnd(q, l);
+				for(int i = t.successorsStart(q, l); i < end; i++)
+					successors[q*numLabels+l] |= 1L << t.getSuccessor(i);
+			}
+		}
+
+		//Images of every byte: each entry adds its lowest state to a smaller entry
+		images = new long[numLabels*chunks*CHUNK_SIZE];
+		for(int l = 0; l < numLabels; l++) {
+			for(int c = 0; c < chunks; c++) {
+				int base = (l*chunks + c)*CHUNK_SIZE;
+				for(int b = 1; b < CHUNK_SIZE; b++) {
+					int q = c*CHUNK_BITS + Integer.numberOfTrailingZeros(b);
+					long image = q < numStates ? successors[q*numLabels+l] : 0L;
+					images[base+b] = images[base + (b & (b-1))] | image;
+				}
+			}
+		}
+
+		//Final states and assignments
+		long finals = 0L;
+		long assigning = 0L;
+		rho = new int[numStates];
+		rhoMasks = new long[Math.max(numLabels-writeOffset, 0)];
+		for(int q = 0; q < numStates; q++) {
+			if(t.isFinal(q))
+				finals |= 1L << q;
+
+			rho[q] = t.getRho(q);
+			//States assigning a register without transitions on it die anyway
+			if(rho[q] >= 0 && rho[q] < rhoMasks.length) {
+				assigning |= 1L << q;
+				rhoMasks[rho[q]] |= 1L << q;
+			}
+		}
+		finalMask = finals;
+		assigningMask = assigning;
+	}
+
+	/**
+	 * @param states
+	 * @param label
+	 * @return the set of successors of states on label
+	 */
+	public long image(long states, int label) {
+		if(label < 0 || label >= numLabels)
+			return 0L;
+
+		long result = 0L;
+		int base = label*chunks*CHUNK_SIZE;
+		for(; states != 0; states >>>= CHUNK_BITS, base += CHUNK_SIZE)
+			result |= images[base + (int) (states & (CHUNK_SIZE-1))];
+
+		return result;
+	}
+
+	/**
+	 * @param symbol
+	 * @return the label of the fixed register holding symbol, or -1
+	 */
+	public int findFixedRegister(int symbol) {
+		return a.findFixedRegister(symbol);
+	}
+
+	//Access methods
+	public int getWriteableOffset() {
+		return writeOffset;
+	}
+	public long getFinalMask() {
+		return finalMask;
+	}
+	/**
+	 * @return the set of states where rho is defined (and has transitions)
+	 */
+	public long getAssigningMask() {
+		return assigningMask;
+	}
+	/**
+	 * @param register a writeable register
+	 * @return the set of states assigning register
+	 */
+	public long getRhoMask(int register) {
+		return rhoMasks[register];
+	}
+	/**
+	 * @param q
+	 * @return the writeable register assigned in q, or -1
+	 */
+	public int getRho(int q) {
+		return rho[q];
+	}
+	/**
+	 * @return the approximate number of bytes used by the tables
+	 */
+	public long getMemoryFootprint() {
+		return 8L*(images.length + rhoMasks.length) + 4L*rho.length;
+	}
+}
@@ -0,0 +1,10 @@
+/**
+ * Contains the code for bit-parallel membership: configurations sharing a
+ * register valuation are grouped, and their states are stored as the bits of
+ * a long, so that automata of at most 64 states are simulated a whole state
+ * set at a time.
+ * 
+ * @author vincent
+ *
+ */
+package algorithms.membership.bitset;
@@ -0,0 +1,248 @@
+package algorithms.membership.compiled;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.NotFoundException;
+import automata.RegisterAutomaton;
+import automata.TransitionTable;
+
+/**
+ * <p>Compiles deterministic register automata into bytecode with javassist.
+ * Each automaton becomes one class implementing {@link CompiledAutomaton},
+ * where:
+ * <ul>
+ * <li>the current state is an int local variable,</li>
+ * <li>each register is an int local variable, so that looking a symbol up
+ * is a chain of inlined comparisons,</li>
+ * <li>the transition function (rho included) is a switch on the state,
+ * then on the containing register.</li>
+ * </ul></p>
+ * <p>Compiled classes are cached by automaton encoding (states, rho, transitions
+ * and initial registers, see {@link #encode(RegisterAutomaton)}), so an automaton
+ * is only compiled once per JVM even if it is loaded several times. Fingerprints
+ * (hashes of encodings) only name the generated classes.</p>
+ * @author vincent
+ *
+ */
+public class BytecodeCompiler {
+	private static final String CLASS_PREFIX = "algorithms.membership.compiled.generated.CompiledRA_";
+
+	private static final Map<Encoding, CompiledAutomaton> cache = new HashMap<>();
+
+	//Statistics
+	private static int compilations = 0;
+	private static int cacheHits = 0;
+
+	/**
+	 * @param a a deterministic automaton
+	 * @return the compiled form of a, from the cache if possible
+	 * @throws IllegalArgumentException if a is not deterministic
+	 * @throws CompilationException if javassist could not build the class
+	 */
+	public static synchronized CompiledAutomaton compile(RegisterAutomaton a) throws CompilationException {
+		TransitionTable t = a.getTransitionTable();
+		if(!t.isDeterministic())
+			throw new IllegalArgumentException("Only deterministic automata can be compiled");
+
+		Encoding encoding = new Encoding(encode(a));
+		CompiledAutomaton compiled = cache.get(encoding);
+		if(compiled != null) {
+			cacheHits++;
+			return compiled;
+		}
+
+		compiled = build(encoding.fingerprint(), a);
+		cache.put(encoding, compiled);
+		compilations++;
+		return compiled;
+	}
+
+	private static CompiledAutomaton build(String fingerprint, RegisterAutomaton a) throws CompilationException {
+		ClassPool pool = ClassPool.getDefault();
+		//Two automata may share a fingerprint: the compilation count tells their classes apart
+		CtClass cc = pool.makeClass(CLASS_PREFIX + fingerprint + "_" + compilations);
+
+		try {
+			cc.addInterface(pool.get(CompiledAutomaton.class.getName()));
+			cc.addConstructor(CtNewConstructor.defaultConstructor(cc));
+			cc.addMethod(CtNewMethod.make(generateDecide(a), cc));
+			cc.addMethod(CtNewMethod.make("public String getFingerprint() { return \"" + fingerprint + "\"; }", cc));
+
+			Class<?> c = cc.toClass(BytecodeCompiler.class.getClassLoader(),
+									BytecodeCompiler.class.getProtectionDomain());
+			return (CompiledAutomaton) c.getDeclaredConstructor().newInstance();
+		} catch (CannotCompileException | NotFoundException | ReflectiveOperationException e) {
+			throw new CompilationException("Could not compile automaton " + fingerprint + ": " + e.getMessage(), e);
+		} finally {
+			cc.detach();
+		}
+	}
+
+	//Code generation
+	/**
+	 * Generate the source of the decision method, in the subset of Java
+	 * understood by the javassist compiler (no generics, no autoboxing).
+	 * @param a
+	 * @return
+	 */
+	public static String generateDecide(RegisterAutomaton a) {
+		TransitionTable t = a.getTransitionTable();
+		int[] registers = a.getInitialRegisters();
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("public boolean decide(java.util.List w) {\n");
+		sb.append("\tint q = ").append(a.getInitialState().id).append(";\n");
+		for(int r = 0; r < registers.length; r++)
+			sb.append("\tint r").append(r).append(" = ").append(registers[r]).append(";\n");
+		sb.append("\tint n = w.size();\n");
+		sb.append("\tfor(int i = 0; i < n; i++) {\n");
+		sb.append("\t\tint s = ((Integer) w.get(i)).intValue();\n");
+
+		//Containing register: lowest first, as in a linear scan
+		sb.append("\t\tint c = -1;\n");
+		for(int r = 0; r < registers.length; r++) {
+			sb.append(r == 0 ? "\t\tif" : "\t\telse if");
+			sb.append("(s == r").append(r).append(") c = ").append(r).append(";\n");
+		}
+
+		//Transition function
+		sb.append("\t\tswitch(q) {\n");
+		for(int q = 0; q < t.getNumStates(); q++) {
+			int rho = t.getRho(q);
+			boolean hasTransitions = false;
+			for(int l = 0; l < registers.length && !hasTransitions; l++)
+				hasTransitions = t.successorsStart(q, l) < t.successorsEnd(q, l);
+			if(!hasTransitions)
+				continue;
+
+			sb.append("\t\tcase ").append(q).append(":\n");
+			if(rho >= 0)
+				sb.append("\t\t\tif(c < 0) { r").append(rho).append(" = s; c = ").append(rho).append("; }\n");
+			sb.append("\t\t\tswitch(c) {\n");
+			for(int l = 0; l < registers.length; l++) {
+				if(t.successorsStart(q, l) < t.successorsEnd(q, l))
+					sb.append("\t\t\tcase ").append(l).append(": q = ")
+					  .append(t.getSuccessor(t.successorsStart(q, l))).append("; break;\n");
+			}
+			sb.append("\t\t\tdefault: return false;\n");
+			sb.append("\t\t\t}\n");
+			sb.append("\t\t\tbreak;\n");
+		}
+		sb.append("\t\tdefault: return false;\n");
+		sb.append("\t\t}\n");
+		sb.append("\t}\n");
+
+		//Acceptance
+		sb.append("\tswitch(q) {\n");
+		boolean hasFinal = false;
+		for(int q = 0; q < t.getNumStates(); q++) {
+			if(t.isFinal(q)) {
+				sb.append("\tcase ").append(q).append(":\n");
+				hasFinal = true;
+			}
+		}
+		if(hasFinal)
+			sb.append("\t\treturn true;\n");
+		sb.append("\tdefault:\n");
+		sb.append("\t\treturn false;\n");
+		sb.append("\t}\n");
+		sb.append("}\n");
+
+		return sb.toString();
+	}
+
+	/**
+	 * @param a
+	 * @return everything the generated code depends on, as a sequence of ints
+	 */
+	public static int[] encode(RegisterAutomaton a) {
+		TransitionTable t = a.getTransitionTable();
+		int[] registers = a.getInitialRegisters();
+
+		int size = 3 + registers.length + t.getNumStates()*(2 + registers.length);
+		for(int q = 0; q < t.getNumStates(); q++)
+			for(int l = 0; l < registers.length; l++)
+				size += t.successorsEnd(q, l) - t.successorsStart(q, l);
+
+		int[] encoding = new int[size];
+		int k = 0;
+		encoding[k++] = t.getNumStates();
+		encoding[k++] = registers.length;
+		encoding[k++] = a.getInitialState().id;
+		for(int r : registers)
+			encoding[k++] = r;
+		for(int q = 0; q < t.getNumStates(); q++) {
+			encoding[k++] = t.isFinal(q) ? 1 : 0;
+			encoding[k++] = t.getRho(q);
+			for(int l = 0; l < registers.length; l++) {
+				int end = t.successorsEnd(q, l);
+				encoding[k++] = end - t.successorsStart(q, l);
+				for(int i = t.successorsStart(q, l); i < end; i++)
+					encoding[k++] = t.getSuccessor(i);
+			}
+		}
+
+		return encoding;
+	}
+
+	/**
+	 * @param a
+	 * @return a 64 bit hash (in hexadecimal) of the encoding of a
+	 */
+	public static String fingerprint(RegisterAutomaton a) {
+		return fingerprint(encode(a));
+	}
+
+	private static String fingerprint(int[] encoding) {
+		long h = 0xcbf29ce484222325L;
+		for(int value : encoding)
+			h = (h ^ value) * 0x100000001b3L;
+		return Long.toHexString(h);
+	}
+
+	/**
+	 * Cache key: equal only for identical encodings, so that fingerprint
+	 * collisions cannot hand out the class of another automaton.
+	 */
+	private static final class Encoding {
+		private final int[] values;
+		private final int hash;
+
+		private Encoding(int[] values) {
+			this.values = values;
+			this.hash = Arrays.hashCode(values);
+		}
+
+		private String fingerprint() {
+			return BytecodeCompiler.fingerprint(values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Encoding && Arrays.equals(values, ((Encoding) o).values);
+		}
+	}
+
+	//Statistics
+	public static synchronized int getCacheSize() {
+		return cache.size();
+	}
+	public static synchronized int getCompilations() {
+		return compilations;
+	}
+	public static synchronized int getCacheHits() {
+		return cacheHits;
+	}
+}
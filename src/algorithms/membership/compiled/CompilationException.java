@@ -0,0 +1,14 @@
+package algorithms.membership.compiled;
+
+public class CompilationException extends Exception {
+	private static final long serialVersionUID = 3981764209155738144L;
+
+	public CompilationException(String message) {
+		super(message);
+	}
+
+	public CompilationException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
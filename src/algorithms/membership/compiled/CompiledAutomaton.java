@@ -0,0 +1,25 @@
+package algorithms.membership.compiled;
+
+import java.util.List;
+
+/**
+ * <p>The interface implemented by the classes generated by {@link BytecodeCompiler}.
+ * A generated class hard-codes a single deterministic automaton: its state
+ * is an int, its registers are local variables and its transition function
+ * is a switch.</p>
+ * <p>Generated classes are stateless, instances can be shared.</p>
+ * @author vincent
+ *
+ */
+public interface CompiledAutomaton {
+	/**
+	 * @param word
+	 * @return true if the automaton accepts word
+	 */
+	public boolean decide(List<Integer> word);
+	
+	/**
+	 * @return the fingerprint of the automaton this class was generated from
+	 */
+	public String getFingerprint();
+}
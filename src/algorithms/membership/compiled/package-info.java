@@ -0,0 +1,8 @@
+/**
+ * Contains the compiler turning deterministic register automata into
+ * bytecode (through javassist), and the interface of the generated classes.
+ * 
+ * @author vincent
+ *
+ */
+package algorithms.membership.compiled;
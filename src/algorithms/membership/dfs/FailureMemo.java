@@ -0,0 +1,102 @@
+package algorithms.membership.dfs;
+
+import algorithms.tools.OpenAddressing;
+
+/**
+ * <p>A bounded memo of failed configurations: (state, registers, position)
+ * triples from which the rest of the word cannot be accepted. Each
+ * configuration has a single slot, where it replaces whatever was there:
+ * the memo never grows beyond its capacity, and forgetting a configuration
+ * only costs exploring it again.</p>
+ * <p>Configurations are stored as rows of ints (position + 1, state, then
+ * the registers), so lookups compare them exactly.</p>
+ * @author vincent
+ *
+ */
+public final class FailureMemo {
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+	private static final int MIN_CAPACITY = 1 << 6;
+
+	private static int capacity = DEFAULT_CAPACITY;
+
+	private final int width;
+	private final int[] rows;
+	private final int shift;
+
+	/**
+	 * @param registers the number of registers of a configuration
+	 * @param expected the expected number of failed configurations: the
+	 * memo holds up to the nearest power of two, within its capacity
+	 * (a long, as it is often the product of the length of a word and
+	 * of a number of states)
+	 */
+	public FailureMemo(int registers, long expected) {
+		//(at least two slots, so that hashes can be shifted)
+		int slots = 2;
+		while(slots < Math.max(expected, MIN_CAPACITY) && slots < capacity)
+			slots <<= 1;
+
+		this.width = registers+2;
+		this.rows = new int[slots*width];
+		this.shift = OpenAddressing.shift(slots);
+	}
+
+	/**
+	 * @param state
+	 * @param registers
+	 * @param position
+	 * @return true if the configuration is known to fail
+	 */
+	public boolean contains(int state, int[] registers, int position) {
+		int base = slot(state, registers, position)*width;
+		if(rows[base] != position+1 || rows[base+1] != state)
+			return false;
+		for(int r = 0; r < registers.length; r++) {
+			if(rows[base+2+r] != registers[r])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Remember that a configuration fails, forgetting the one in its slot
+	 * @param state
+	 * @param registers
+	 * @param position
+	 */
+	public void add(int state, int[] registers, int position) {
+		int base = slot(state, registers, position)*width;
+		rows[base] = position+1;
+		rows[base+1] = state;
+		System.arraycopy(registers, 0, rows, base+2, registers.length);
+	}
+
+	/**
+	 * @return the number of configurations the memo can hold
+	 */
+	public int getSlots() {
+		return rows.length/width;
+	}
+
+	//Tools
+	private int slot(int state, int[] registers, int position) {
+		int hash = 31*position + state;
+		for(int r : registers)
+			hash = 31*hash + r;
+
+		return OpenAddressing.slot(hash, shift);
+	}
+
+	//Access methods
+	/**
+	 * @param slots the largest number of slots of a memo, rounded up to a power of two
+	 */
+	public static void setCapacity(int slots) {
+		if(slots < 1)
+			throw new IllegalArgumentException("Memo capacity must be positive: " + slots);
+		capacity = slots;
+	}
+	public static int getCapacity() {
+		return capacity;
+	}
+}
@@ -0,0 +1,169 @@
+package algorithms.membership.dfs;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import testbench.Testbench;
+import algorithms.Tools;
+import algorithms.membership.MeteredWord;
+import algorithms.tools.ResultsContainer;
+import automata.RegisterAutomaton;
+import automata.RegisterIndex;
+import automata.TransitionTable;
+
+/**
+ * <p>Depth-first membership that stops at the first accepting configuration.
+ * As with {@link algorithms.Membership#ldftsCheck}, a word is accepted if a final
+ * state is reached once all of it has been read.</p>
+ * <p>Since every transition reads one symbol, the depth of the search is the
+ * position in the word: the stack is a set of primitive arrays with one frame
+ * per position (the state, the range of successors left to try, and the
+ * register assigned on the way down), and a single register file is updated
+ * going down and restored going up. Memory is proportional to the length of
+ * the word, whatever the number of paths.</p>
+ * <p>Configurations from which the search failed are remembered in a
+ * {@link FailureMemo}, so that paths joining again (as in diamond chains)
+ * are not explored twice.</p>
+ * <p>The word is copied before the search starts, so the search checks the
+ * interrupt status of its thread from time to time instead (an interrupted
+ * search throws a {@link CancellationException}), and reports its nodes to
+ * its word if it is a {@link MeteredWord}.</p>
+ * @author vincent
+ *
+ */
+public class MemoisedDfs {
+	private static final int CHECK_MASK = (1 << 12) - 1;
+
+	private final TransitionTable t;
+	private final int initialState;
+	private final int[] registers;
+	private final RegisterIndex index;
+	private final int[] word;
+	private final MeteredWord meter;
+	private final FailureMemo memo;
+
+	//Frames, one per position
+	private final int[] states;
+	private final int[] cursors;
+	private final int[] ends;
+	private final int[] assigned;
+	private final int[] replaced;
+
+	//Statistics
+	private static int nodes = 0;
+	private static int memoHits = 0;
+	private static int memoSlots = 0;
+
+	public MemoisedDfs(RegisterAutomaton a, List<Integer> word) {
+		this.t = a.getTransitionTable();
+		this.initialState = a.getInitialState().id;
+		this.registers = a.getInitialRegisters();
+		this.index = a.createRegisterIndex(registers);
+
+		//The search moves back and forth in the word: it is copied once,
+		//without charging the copy to the budget
+		this.meter = MeteredWord.find(word);
+		List<Integer> source = meter == null ? word : meter.getWord();
+		this.word = new int[source.size()];
+		int i = 0;
+		for(int symbol : source)
+			this.word[i++] = symbol;
+
+		//Room for one failure per state and position, within the capacity
+		this.memo = new FailureMemo(registers.length, (this.word.length+1L)*t.getNumStates());
+
+		states = new int[this.word.length+1];
+		cursors = new int[this.word.length];
+		ends = new int[this.word.length];
+		assigned = new int[this.word.length];
+		replaced = new int[this.word.length];
+	}
+
+	/**
+	 * @return true if the word is accepted
+	 * @throws CancellationException if the thread of the search was interrupted
+	 * @throws algorithms.membership.BudgetExceededException if the budget of its word ran out
+	 */
+	public boolean run() {
+		int n = word.length;
+		int d = 0;
+		int visited = 0;
+		boolean entering = true;
+		states[0] = initialState;
+
+		if(Testbench.COLLECT_STATS)
+			memoSlots = Math.max(memoSlots, memo.getSlots());
+
+		while(d >= 0) {
+			if(entering) {
+				int q = states[d];
+				if(Testbench.COLLECT_STATS)
+					nodes++;
+				if((++visited & CHECK_MASK) == 0) {
+					if(Thread.currentThread().isInterrupted())
+						throw new CancellationException();
+					if(meter != null)
+						meter.count(CHECK_MASK+1);
+				}
+
+				//Leaves: the word has been read
+				if(d == n) {
+					if(t.isFinal(q))
+						return true;
+					d--;
+					entering = false;
+					continue;
+				}
+
+				if(memo.contains(q, registers, d)) {
+					if(Testbench.COLLECT_STATS)
+						memoHits++;
+					d--;
+					entering = false;
+					continue;
+				}
+
+				//Find the containing register (default -1), and update the registers
+				int symbol = word[d];
+				int label = Tools.registersContain(registers, index, symbol);
+				assigned[d] = -1;
+				if(label < 0 && (label = t.getRho(q)) >= 0) {
+					assigned[d] = label;
+					replaced[d] = registers[label];
+					Tools.assignRegister(registers, index, label, symbol);
+				}
+
+				cursors[d] = t.successorsStart(q, label);
+				ends[d] = t.successorsEnd(q, label);
+			}
+
+			if(cursors[d] < ends[d]) {
+				//Go down to the next successor
+				states[d+1] = t.getSuccessor(cursors[d]++);
+				d++;
+				entering = true;
+			} else {
+				//All successors failed: restore the registers and remember the failure
+				if(assigned[d] >= 0)
+					Tools.assignRegister(registers, index, assigned[d], replaced[d]);
+				memo.add(states[d], registers, d);
+				d--;
+				entering = false;
+			}
+		}
+
+		return false;
+	}
+
+	//Stats
+	public static void yieldStatistics(String sessionName, ResultsContainer rc) {
+		if(Testbench.COLLECT_STATS) {
+			rc.addSessionNumber(sessionName, "nodes", nodes);
+			rc.addSessionNumber(sessionName, "memo hits", memoHits);
+			rc.addSessionNumber(sessionName, "memo slots", memoSlots);
+			nodes = 0;
+			memoHits = 0;
+			memoSlots = 0;
+		}
+	}
+}
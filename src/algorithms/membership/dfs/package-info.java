@@ -0,0 +1,9 @@
+/**
+ * Contains the code for depth-first membership with early termination,
+ * remembering the configurations from which the word was already known
+ * to be rejected.
+ * 
+ * @author vincent
+ *
+ */
+package algorithms.membership.dfs;
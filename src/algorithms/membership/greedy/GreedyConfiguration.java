@@ -5,7 +5,9 @@ import java.util.Arrays;
 import java.util.List;
 
 import testbench.Testbench;
+import algorithms.tools.Lookahead;
 import algorithms.tools.ResultsContainer;
+import automata.RegisterIndex;
 import automata.greedy.GreedyRA;
 import automata.greedy.GreedyState;
 
@@ -14,56 +16,91 @@ public class GreedyConfiguration {
 	public final GreedyState state;
 	public final GreedyRA a;
 	public final int[] registers;
+	/**
+	 * Reverse index of the registers, null if the automaton has few enough
+	 * registers to scan them
+	 */
+	public final RegisterIndex index;
 	
 	//Status
 	private boolean dead = false;
 	private final int lastUpdateStep;
 	
-	//Caching
-	private final int hc = 0; 
+	//Caching (registers only change when the configuration is expanded, and dies)
+	private final int hc;
 	
 	//Statistics
 	private static int nodesExpanded = 0;
+	private static int registersCanonicalised = 0;
 	
 	public GreedyConfiguration(GreedyState state, 
 								int[] registers, 
 								GreedyRA a,
 								int lastUpdateStep) {
+		this(state, registers, a.createRegisterIndex(registers), a, lastUpdateStep);
+	}
+	
+	public GreedyConfiguration(GreedyState state, 
+								int[] registers, 
+								RegisterIndex index,
+								GreedyRA a,
+								int lastUpdateStep) {
 		this.state = state;
 		this.registers = registers;
+		this.index = index;
 		this.a = a;
 		this.lastUpdateStep = lastUpdateStep;
+		this.hc = 31*(31*state.hashCode() + Arrays.hashCode(registers)) + lastUpdateStep;
 	}
 	
 	//Tools
 	public List<GreedyConfiguration> expand(int symbol, int step, int previousSymbol) {
+		return expand(symbol, step, previousSymbol, null);
+	}
+	
+	/**
+	 * @param symbol
+	 * @param step the position of symbol in the word
+	 * @param previousSymbol
+	 * @param lookahead the lookahead of the word, to canonicalise the registers of
+	 * the successors (see {@link Lookahead}), or null
+	 * @return
+	 */
+	public List<GreedyConfiguration> expand(int symbol, int step, int previousSymbol, Lookahead lookahead) {
 		//If search state is not terminal, find the adjacent search states
 		List<GreedyConfiguration> adjacentSearchStates = new ArrayList<>();
 		
 		//Update the registers and find the containing register (default -1)
-		Integer containingRegister = Integer.valueOf(-1);
+		int containingRegister = -1;
 		int assignmentRegister = -1;
 		
-		if((containingRegister = a.findContainingRegister(registers, symbol)) < 0) {
+		if((containingRegister = a.findContainingRegister(registers, index, symbol)) < 0) {
 			//If a rho value is defined
 			if((assignmentRegister = state.getAssignmentRegister()) >= 0) {
-				containingRegister = Integer.valueOf(assignmentRegister + a.getWriteableOffset());
-				registers[assignmentRegister] = symbol;
+				containingRegister = assignmentRegister + a.getWriteableOffset();
+				assign(assignmentRegister, symbol);
 			}
 		} else {
 			//If we found a transition to make that does not include rho, we will
 			// have to update the rho values that were skipped, if any.
 			if(step > lastUpdateStep+1)
-				registers[state.getAssignmentRegister()] = previousSymbol;
+				assign(state.getAssignmentRegister(), previousSymbol);
 		}
 		
 		//Deduce possible transitions
 		List<GreedyState> adjacentStates = state.getNextStates(containingRegister);
 		
+		//Successors only differing by values the word never reads again are the same
+		if(lookahead != null && adjacentStates != null)
+			canonicalise(lookahead, step+1);
+		
 		//Infer configurations
+		//(the last one takes over the index, this configuration is dead from now on)
 		if(adjacentStates != null)
-			for(GreedyState s: adjacentStates) 
-				adjacentSearchStates.add(new GreedyConfiguration(s, registers.clone(), a, step));
+			for(int i = 0; i < adjacentStates.size(); i++) 
+				adjacentSearchStates.add(new GreedyConfiguration(adjacentStates.get(i), registers.clone(), 
+																  index == null || i == adjacentStates.size()-1 ? index : index.copy(), 
+																  a, step));
 		
 		dead = true; //Do not expand this configuration again!
 		if(Testbench.COLLECT_STATS)
@@ -71,6 +108,24 @@ public class GreedyConfiguration {
 		return adjacentSearchStates;
 	}
 
+	private void canonicalise(Lookahead lookahead, int position) {
+		int deadValue = lookahead.getDeadValue();
+		for(int r = 0; r < registers.length; r++) {
+			if(registers[r] != deadValue && !lookahead.isLive(registers[r], position)) {
+				assign(r, deadValue);
+				if(Testbench.COLLECT_STATS)
+					registersCanonicalised++;
+			}
+		}
+	}
+
+	private void assign(int register, int symbol) {
+		if(index == null)
+			registers[register] = symbol;
+		else
+			index.assign(registers, register, symbol);
+	}
+
 	//Generics
 	@Override
 	public int hashCode() {
@@ -91,6 +146,9 @@ public class GreedyConfiguration {
 			return false;
 		if (state != other.state)
 			return false;
+		//Registers are updated lazily: the step of the last update is part of the configuration
+		if (lastUpdateStep != other.lastUpdateStep)
+			return false;
 		return true;
 	}
 	@Override
@@ -121,7 +179,9 @@ public class GreedyConfiguration {
 	public static void yieldStatistics(String sessionName, ResultsContainer rc) {
 		if(Testbench.COLLECT_STATS) {
 			rc.addSessionNumber(sessionName, "nodes", nodesExpanded);
+			rc.addSessionNumber(sessionName, "canonical registers", registersCanonicalised);
 			nodesExpanded=0;
+			registersCanonicalised=0;
 		}
 	}
 }
@@ -1,29 +1,72 @@
 package algorithms.membership.greedy;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
 
+import algorithms.tools.OpenAddressing;
+import algorithms.tools.ProbingSet;
 import algorithms.tools.ResultsContainer;
 import testbench.Testbench;
 
 /**
- * The frontier that implements the behaviour for greedy search.
+ * <p>The frontier that implements the behaviour for greedy search.</p>
+ * <p>Configurations are unique: every live configuration is kept once in a
+ * {@link ProbingSet}, and equal configurations are dropped on insertion.</p>
+ * <p>Configurations waiting for symbols are stored in one bucket per symbol,
+ * in a primitive open-addressed map from symbols to arrays (see
+ * {@link OpenAddressing}). A configuration
+ * waiting for several symbols is in several buckets: once it is expanded
+ * through one of them, it is dead in the others, and dead configurations are
+ * compacted out of a bucket before it grows.</p>
  * @author vincent
  *
  */
 public class GreedyFrontier {
+	private static final int MIN_CAPACITY = 16;
+	private static final int MIN_BUCKET_SIZE = 4;
+
 	//unstables
-	public final List<GreedyConfiguration> unstables;
+	private final List<GreedyConfiguration> unstables = new ArrayList<>();
 	//stables
-	public final List<GreedyConfiguration> onRhoStates;
-	public final Map<Integer, List<GreedyConfiguration>> symbolNeeders;
-	
+	private final List<GreedyConfiguration> onRhoStates = new ArrayList<>();
+	//symbolNeeders: bucket of symbols[slot] in buckets[slot] (null for free slots), bucketSizes[slot] long
+	private int[] symbols = new int[MIN_CAPACITY];
+	private GreedyConfiguration[][] buckets = new GreedyConfiguration[MIN_CAPACITY][];
+	private int[] bucketSizes = new int[MIN_CAPACITY];
+	private int shift = OpenAddressing.shift(MIN_CAPACITY);
+	private int numBuckets = 0;
+	private final OpenAddressing.Entries bucketEntries = new OpenAddressing.Entries() {
+		@Override
+		public boolean isFree(int slot) {
+			return buckets[slot] == null;
+		}
+
+		@Override
+		public int home(int slot) {
+			return OpenAddressing.slot(symbols[slot], shift);
+		}
+
+		@Override
+		public void move(int from, int to) {
+			symbols[to] = symbols[from];
+			buckets[to] = buckets[from];
+			bucketSizes[to] = bucketSizes[from];
+		}
+
+		@Override
+		public void free(int slot) {
+			buckets[slot] = null;
+			bucketSizes[slot] = 0;
+		}
+	};
+
+	//Live configurations
+	private final ProbingSet<GreedyConfiguration> configurations = new ProbingSet<>();
+
+	//The configurations of the last filter
+	private final List<GreedyConfiguration> active = new ArrayList<>();
+
 	public int terminalGoals = 0;
 
 	//Statistics collection (see testbench)
@@ -34,17 +77,21 @@ public class GreedyFrontier {
 	private static int maxActiveSize = 0;
 	private static int ignoredConfigs = 0;
 	private static int deadConfigs = 0;
+	private static int duplicateConfigs = 0;
 	private static int maxSNSize = 0;
 	private static int emptyActiveFrontiers = 0;
-	
-	public GreedyFrontier() {
-		unstables = new LinkedList<>();
-		onRhoStates = new LinkedList<>();
-		symbolNeeders = new HashMap<>();
-	}
-	
+
 	//Read&Write
 	public void add(GreedyConfiguration gc) {
+		//Configurations without successors are not stored
+		boolean stored = !gc.state.isStable() || gc.state.isRhoCompatible()
+				|| !gc.state.getOutgoingRegisters().isEmpty();
+		if(stored && !configurations.add(gc)) {
+			if(Testbench.COLLECT_STATS)
+				duplicateConfigs++;
+			return;
+		}
+
 		//If unstable, add to unstables
 		if(!gc.state.isStable()) {
 			unstables.add(gc);
@@ -53,7 +100,7 @@ public class GreedyFrontier {
 				unstableCounter++;
 			return;
 		}
-		
+
 		//If stable with s-outgoing rho, add to onRho
 		if(gc.state.isRhoCompatible()) {
 			onRhoStates.add(gc);
@@ -62,150 +109,186 @@ public class GreedyFrontier {
 				rhoCompCounter++;
 			return;
 		}
-		
+
 		//If s-outgoing symbols
-		boolean needsSymbols = false;
-		for(Integer s : gc.getOutgoingSymbols()) {
-			if(!symbolNeeders.containsKey(s))
-				symbolNeeders.put(s, new LinkedList<GreedyConfiguration>());
-			symbolNeeders.get(s).add(gc);
-			size++;
-			if(Testbench.COLLECT_STATS)
-				symbolNeedCounter++;
-			needsSymbols = true;
-		}
-		
-		if(needsSymbols)
+		if(stored) {
+			for(Integer s : gc.getOutgoingSymbols()) {
+				if(addToBucket(s, gc)) {
+					size++;
+					if(Testbench.COLLECT_STATS)
+						symbolNeedCounter++;
+				}
+			}
 			return;
-		
+		}
+
 		if(Testbench.COLLECT_STATS)
 			ignoredConfigs++;
-		
+
 		if(gc.isFinal()) {
 			terminalGoals++;
 		}
 	}
-	public Iterable<GreedyConfiguration> filter(Integer symbol) {
-		return new ConfigurationFilter(symbol);
+	/**
+	 * Take the configurations that must be expanded on reading symbol out of
+	 * the frontier: unstable configurations, configurations waiting for symbol,
+	 * and configurations with a rho transition.
+	 * @param symbol
+	 * @return the configurations to expand, in a list that is reused by the next call
+	 */
+	public List<GreedyConfiguration> filter(int symbol) {
+		active.clear();
+		take(unstables);
+
+		int slot = findBucket(symbol);
+		if(slot >= 0) {
+			GreedyConfiguration[] bucket = buckets[slot];
+			int bucketSize = bucketSizes[slot];
+			OpenAddressing.remove(bucketEntries, slot, symbols.length-1);
+			numBuckets--;
+			if(Testbench.COLLECT_STATS)
+				maxSNSize = Math.max(bucketSize, maxSNSize);
+
+			for(int i = 0; i < bucketSize; i++)
+				take(bucket[i]);
+		}
+
+		take(onRhoStates);
+
+		if(Testbench.COLLECT_STATS) {
+			maxActiveSize = Math.max(active.size(), maxActiveSize);
+			emptyActiveFrontiers += active.isEmpty() ? 1 : 0;
+		}
+		return active;
 	}
 	/**
 	 * Copy the contents of the other frontier into this one.
 	 * @param otherFrontier
 	 */
 	public void absorb(GreedyFrontier otherFrontier) {
-		unstables.addAll(otherFrontier.unstables);
-		onRhoStates.addAll(otherFrontier.onRhoStates);
-		
-		for(Entry<Integer, List<GreedyConfiguration>> e: otherFrontier.symbolNeeders.entrySet()) {
-			if(!symbolNeeders.containsKey(e.getKey()))
-				symbolNeeders.put(e.getKey(), e.getValue());
-			else
-				symbolNeeders.get(e.getKey()).addAll(e.getValue());
-		}
-		
+		for(GreedyConfiguration gc : otherFrontier.configurations)
+			add(gc);
+
 		terminalGoals += otherFrontier.terminalGoals;
 	}
-	
-	//Tools
-	public class ConfigurationFilter implements Iterable<GreedyConfiguration> {
-		private final Integer nextSymbol;
-		
-		public ConfigurationFilter(Integer symbol) {
-			this.nextSymbol = symbol;
-		}
+	public boolean isEmpty() {
+		return configurations.isEmpty();
+	}
+	/**
+	 * Count the number of final configurations in the greedy frontier
+	 * @return
+	 */
+	public int getNumFinalConfigurations() {
+		int finals = 0;
+		for(GreedyConfiguration gc : configurations)
+			if(gc.isFinal()) finals++;
 
-		@Override
-		public Iterator<GreedyConfiguration> iterator() {
-			
-			return new Iterator<GreedyConfiguration>() {
-				private List<List<GreedyConfiguration>> collections;
-				private Iterator<GreedyConfiguration> currentIt;
-				private GreedyConfiguration nextItem;
-				
-				//Stats
-				private int activeSize = 0;
-
-				@Override
-				public boolean hasNext() {
-					if(collections == null) {
-						collections = new LinkedList<>();
-						List<GreedyConfiguration> snSet = symbolNeeders.remove(nextSymbol);
-						if(snSet != null) {
-							collections.add(snSet);
-							if(Testbench.COLLECT_STATS)
-								maxSNSize = Math.max(snSet.size(), maxSNSize);
-						}
-						collections.add(onRhoStates);
-						
-						currentIt = unstables.iterator();
-					}
-					
-					//Discard dead configurations, as these were already considered in the past
-					while(true) {
-						if(currentIt.hasNext()) {
-							//Current iterator is not empty, but are components alive?
-							nextItem = currentIt.next();
-							currentIt.remove();
-							
-							if(!nextItem.isDead())
-								return true;
-							else if(Testbench.COLLECT_STATS)
-								deadConfigs++;
-						} else {
-							//Current iterator is empty
-							if(collections.size()==0) {
-								if(Testbench.COLLECT_STATS) {
-									maxActiveSize = Math.max(activeSize, maxActiveSize);
-									emptyActiveFrontiers += activeSize == 0 ? 1 : 0;
-								}
-								return false;
-							}
-							else {
-								List<GreedyConfiguration> nextCollection = collections.get(0);
-								collections.remove(0);
-								currentIt = nextCollection.iterator();
-							}
-						}
-					}
-				}
+		return terminalGoals + finals;
+	}
 
-				@Override
-				public GreedyConfiguration next() {
-					if(Testbench.COLLECT_STATS)
-						activeSize++;
-					
-					return nextItem;
-				}
+	//Tools
+	private void take(List<GreedyConfiguration> configs) {
+		for(GreedyConfiguration gc : configs)
+			take(gc);
+		configs.clear();
+	}
 
-				@Override
-				public void remove() {}
-			};
+	/**
+	 * Move a configuration to the active list, unless it is dead (it was already
+	 * expanded) or already taken (through another symbol)
+	 * @param gc
+	 */
+	private void take(GreedyConfiguration gc) {
+		if(gc.isDead() || !configurations.remove(gc)) {
+			if(Testbench.COLLECT_STATS)
+				deadConfigs++;
+			return;
 		}
-		
+		active.add(gc);
 	}
-	public boolean isEmpty() {
-		return unstables.isEmpty() && onRhoStates.isEmpty() && symbolNeeders.isEmpty();
+
+	/**
+	 * @param symbol
+	 * @return the slot of the bucket of symbol, or -1
+	 */
+	private int findBucket(int symbol) {
+		int mask = symbols.length-1;
+		for(int slot = OpenAddressing.slot(symbol, shift); buckets[slot] != null; slot = (slot+1) & mask) {
+			if(symbols[slot] == symbol)
+				return slot;
+		}
+		return -1;
 	}
+
 	/**
-	 * Count the number of final configurations in the greedy frontier
-	 * @return
+	 * @param symbol
+	 * @param gc
+	 * @return false if gc was just added to the bucket of symbol (it waits for
+	 * the same symbol through several registers)
 	 */
-	public int getNumFinalConfigurations() {
-		Set<GreedyConfiguration> goalGCs = new HashSet<>();
-		
-		for(GreedyConfiguration gc: unstables)
-			if(!gc.isDead() && gc.isFinal()) goalGCs.add(gc);
-		
-		for(GreedyConfiguration gc: onRhoStates)
-			if(!gc.isDead() && gc.isFinal()) goalGCs.add(gc);
-		
-		for(Entry<Integer, List<GreedyConfiguration>> e: symbolNeeders.entrySet())
-			for(GreedyConfiguration gc: e.getValue())
-				if(!gc.isDead() && gc.isFinal()) goalGCs.add(gc);
-		
-		return terminalGoals + goalGCs.size();
+	private boolean addToBucket(int symbol, GreedyConfiguration gc) {
+		int mask = symbols.length-1;
+		int slot = OpenAddressing.slot(symbol, shift);
+		for(; buckets[slot] != null; slot = (slot+1) & mask) {
+			if(symbols[slot] == symbol)
+				break;
+		}
+
+		if(buckets[slot] == null) {
+			symbols[slot] = symbol;
+			buckets[slot] = new GreedyConfiguration[MIN_BUCKET_SIZE];
+			bucketSizes[slot] = 0;
+			if(2*(++numBuckets) > symbols.length) {
+				rehashBuckets();
+				slot = findBucket(symbol);
+			}
+		}
+
+		GreedyConfiguration[] bucket = buckets[slot];
+		int bucketSize = bucketSizes[slot];
+		if(bucketSize > 0 && bucket[bucketSize-1] == gc)
+			return false;
+
+		if(bucketSize == bucket.length) {
+			//Compact dead configurations out, or grow
+			int live = 0;
+			for(int i = 0; i < bucketSize; i++)
+				if(!bucket[i].isDead())
+					bucket[live++] = bucket[i];
+			Arrays.fill(bucket, live, bucketSize, null);
+			if(Testbench.COLLECT_STATS)
+				deadConfigs += bucketSize - live;
+
+			bucketSize = live;
+			if(2*live > bucket.length)
+				buckets[slot] = bucket = Arrays.copyOf(bucket, 2*bucket.length);
+		}
+		bucket[bucketSize++] = gc;
+		bucketSizes[slot] = bucketSize;
+		return true;
 	}
-	
+
+	private void rehashBuckets() {
+		int[] oldSymbols = symbols;
+		GreedyConfiguration[][] oldBuckets = buckets;
+		int[] oldSizes = bucketSizes;
+		symbols = new int[2*oldSymbols.length];
+		buckets = new GreedyConfiguration[symbols.length][];
+		bucketSizes = new int[symbols.length];
+		shift--;
+		int mask = symbols.length-1;
+		for(int old = 0; old < oldSymbols.length; old++) {
+			if(oldBuckets[old] == null)
+				continue;
+			int slot = OpenAddressing.slot(oldSymbols[old], shift);
+			while(buckets[slot] != null)
+				slot = (slot+1) & mask;
+			symbols[slot] = oldSymbols[old];
+			buckets[slot] = oldBuckets[old];
+			bucketSizes[slot] = oldSizes[old];
+		}
+	}
+
 	//Statistics
 	public static void yieldStatistics(String sessionName, ResultsContainer rc) {
 		rc.addSessionNumber(sessionName, "max fsize", size);
@@ -217,13 +300,15 @@ public class GreedyFrontier {
 		rc.addSessionNumber(sessionName, "symbol needers", symbolNeedCounter);
 		rc.addSessionNumber(sessionName, "ignored nodes", ignoredConfigs);
 		rc.addSessionNumber(sessionName, "dead nodes", deadConfigs);
-		
+		rc.addSessionNumber(sessionName, "duplicate nodes", duplicateConfigs);
+
 		rhoCompCounter = 0;
 		symbolNeedCounter = 0;
 		unstableCounter = 0;
 		maxActiveSize = 0;
 		ignoredConfigs = 0;
 		deadConfigs = 0;
+		duplicateConfigs = 0;
 		size = 0;
 		maxSNSize = 0;
 		emptyActiveFrontiers = 0;
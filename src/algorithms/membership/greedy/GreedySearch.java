@@ -0,0 +1,80 @@
+package algorithms.membership.greedy;
+
+import algorithms.membership.IncrementalSearch;
+import algorithms.tools.Lookahead;
+import automata.greedy.GreedyRA;
+
+/**
+ * <p>Greedy search, one symbol at a time: only the configurations of the
+ * frontier that can read the symbol (see {@link GreedyFrontier#filter(int)})
+ * are expanded, the others wait for their symbols.</p>
+ * <p>A word is accepted if the initial state is final, or if the frontier holds
+ * a final configuration once all of it has been read.</p>
+ * <p>If the whole word is known in advance, its {@link Lookahead} can be given
+ * so that registers holding values the word never reads again are canonicalised.</p>
+ * @author vincent
+ *
+ */
+public class GreedySearch extends IncrementalSearch {
+	private final GreedyFrontier frontier = new GreedyFrontier();
+	private final boolean initialFinal;
+	private final Lookahead lookahead;
+	private int previousSymbol = 0;
+	private boolean finalReached;
+
+	public GreedySearch(GreedyRA a) {
+		this(a, null);
+	}
+
+	/**
+	 * @param a
+	 * @param lookahead the lookahead of the word that will be read, or null
+	 */
+	public GreedySearch(GreedyRA a, Lookahead lookahead) {
+		this.lookahead = lookahead;
+		GreedyConfiguration initialConfig =
+				new GreedyConfiguration(a.getInitialState(), a.getInitialRegisters(), a, -1);
+
+		initialFinal = initialConfig.isFinal();
+		finalReached = initialFinal;
+		if(!initialFinal)
+			frontier.add(initialConfig);
+	}
+
+	@Override
+	protected void step(int symbol) {
+		finalReached = false;
+		if(frontier.isEmpty())
+			return;
+
+		//Expand the configurations that can read the symbol: they are taken out of
+		//the frontier, so their successors can go straight back in (automatic filtering)
+		for(GreedyConfiguration gc : frontier.filter(symbol)) {
+			charge(1);
+			for(GreedyConfiguration nextGC : gc.expand(symbol, getPosition(), previousSymbol, lookahead)) {
+				frontier.add(nextGC);
+				finalReached |= nextGC.isFinal();
+			}
+		}
+
+		previousSymbol = symbol;
+	}
+
+	@Override
+	public boolean accepts() {
+		if(initialFinal)
+			return true;
+
+		return !frontier.isEmpty() && frontier.getNumFinalConfigurations() > 0;
+	}
+
+	@Override
+	public boolean reachedFinal() {
+		return finalReached;
+	}
+
+	@Override
+	public boolean isDead() {
+		return !initialFinal && frontier.isEmpty();
+	}
+}
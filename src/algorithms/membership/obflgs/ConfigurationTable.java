@@ -0,0 +1,209 @@
+package algorithms.membership.obflgs;
+
+import java.util.Arrays;
+
+import algorithms.tools.OpenAddressing;
+
+/**
+ * <p>A set of BFLGS configurations stored without objects: each configuration
+ * is a row of ints (the state id, then the writeable registers) packed in one
+ * array, and rows are found back through an open-addressed table of row
+ * numbers (linear probing).</p>
+ * <p>Tables are meant to be reused from one symbol to the next: {@link #clear()}
+ * only resets the slots that are in use, and arrays are only reallocated when
+ * the frontier grows beyond its largest size so far.</p>
+ * @author vincent
+ *
+ */
+public final class ConfigurationTable {
+	private static final int MIN_CAPACITY = 16;
+
+	private final int width;
+
+	/**
+	 * Configurations, width ints per row
+	 */
+	private int[] rows;
+	/**
+	 * Row number + 1 in each slot, 0 if the slot is free
+	 */
+	private int[] slots;
+	/**
+	 * Slot of each row, so that clearing does not scan the whole table
+	 */
+	private int[] rowSlots;
+	private int shift;
+	private int size = 0;
+
+	/**
+	 * @param registers number of (writeable) registers in a configuration
+	 */
+	public ConfigurationTable(int registers) {
+		this.width = registers+1;
+		this.rows = new int[MIN_CAPACITY*width];
+		this.rowSlots = new int[MIN_CAPACITY];
+		this.slots = new int[2*MIN_CAPACITY];
+		this.shift = OpenAddressing.shift(slots.length);
+	}
+
+	/**
+	 * @param state
+	 * @param registers
+	 * @return false if the configuration was already in the table
+	 */
+	public boolean add(int state, int[] registers) {
+		ensureCapacity();
+
+		int hash = state;
+		for(int r : registers)
+			hash = 31*hash + r;
+
+		int slot = hash(hash);
+		for(int row; (row = slots[slot]-1) >= 0; slot = (slot+1) & (slots.length-1)) {
+			int base = row*width;
+			boolean equal = rows[base] == state;
+			for(int r = 0; r < registers.length && equal; r++)
+				equal = rows[base+1+r] == registers[r];
+			if(equal)
+				return false;
+		}
+
+		int base = append(slot);
+		rows[base] = state;
+		System.arraycopy(registers, 0, rows, base+1, registers.length);
+		return true;
+	}
+
+	/**
+	 * Add the configuration made of the given state and of the registers of
+	 * a row of source, where register assigned holds symbol.
+	 * @param state
+	 * @param source
+	 * @param row
+	 * @param assigned the assigned register, or -1 to keep registers unchanged
+	 * @param symbol
+	 * @return false if the configuration was already in the table
+	 */
+	public boolean add(int state, ConfigurationTable source, int row, int assigned, int symbol) {
+		int[] from = source.rows;
+		int fromBase = row*width;
+		int registers = width-1;
+		ensureCapacity();
+
+		int hash = state;
+		for(int r = 0; r < registers; r++)
+			hash = 31*hash + (r == assigned ? symbol : from[fromBase+1+r]);
+
+		int slot = hash(hash);
+		for(int other; (other = slots[slot]-1) >= 0; slot = (slot+1) & (slots.length-1)) {
+			int base = other*width;
+			boolean equal = rows[base] == state;
+			for(int r = 0; r < registers && equal; r++)
+				equal = rows[base+1+r] == (r == assigned ? symbol : from[fromBase+1+r]);
+			if(equal)
+				return false;
+		}
+
+		int base = append(slot);
+		rows[base] = state;
+		System.arraycopy(from, fromBase+1, rows, base+1, registers);
+		if(assigned >= 0)
+			rows[base+1+assigned] = symbol;
+		return true;
+	}
+
+	/**
+	 * Remove all configurations, keeping the allocated space.
+	 */
+	public void clear() {
+		for(int row = 0; row < size; row++)
+			slots[rowSlots[row]] = 0;
+		size = 0;
+	}
+
+	//Access methods
+	public int size() {
+		return size;
+	}
+
+	public int getState(int row) {
+		return rows[row*width];
+	}
+
+	public int getRegister(int row, int r) {
+		return rows[row*width+1+r];
+	}
+
+	/**
+	 * @param row
+	 * @param symbol
+	 * @return the lowest register of the given row that holds symbol, or -1
+	 */
+	public int findRegister(int row, int symbol) {
+		int base = row*width+1;
+		for(int r = 0; r < width-1; r++) {
+			if(rows[base+r] == symbol)
+				return r;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the number of configurations the table can hold without growing
+	 */
+	public int getCapacity() {
+		return rowSlots.length;
+	}
+
+	//Tools
+	private int hash(int hash) {
+		return OpenAddressing.slot(hash, shift);
+	}
+
+	/**
+	 * Make room for one more configuration: doubles the rows if they are full,
+	 * and the slots if the load factor would exceed 1/2.
+	 */
+	private void ensureCapacity() {
+		if(size == rowSlots.length) {
+			rows = Arrays.copyOf(rows, 2*rows.length);
+			rowSlots = Arrays.copyOf(rowSlots, 2*rowSlots.length);
+		}
+
+		if(2*(size+1) > slots.length)
+			rehash();
+	}
+
+	/**
+	 * Reserve a row for a new configuration, stored in the given free slot
+	 * @param slot
+	 * @return the first index of the row
+	 */
+	private int append(int slot) {
+		int row = size++;
+		slots[slot] = row+1;
+		rowSlots[row] = slot;
+		return row*width;
+	}
+
+	/**
+	 * Double the number of slots and place all rows again
+	 */
+	private void rehash() {
+		slots = new int[2*slots.length];
+		shift--;
+
+		for(int row = 0; row < size; row++) {
+			int base = row*width;
+			int hash = rows[base];
+			for(int r = 1; r < width; r++)
+				hash = 31*hash + rows[base+r];
+
+			int slot = hash(hash);
+			while(slots[slot] != 0)
+				slot = (slot+1) & (slots.length-1);
+			slots[slot] = row+1;
+			rowSlots[row] = slot;
+		}
+	}
+}
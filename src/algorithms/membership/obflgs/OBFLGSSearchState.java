@@ -5,7 +5,9 @@ import java.util.Arrays;
 import java.util.List;
 
 import automata.OptimisedRA;
+import automata.RegisterIndex;
 import automata.State;
+import automata.TransitionTable;
 
 /**
  * <strong style="color: red;">This class is BFLGS-specific.</strong>
@@ -29,14 +31,29 @@ public class OBFLGSSearchState {
 	public final OptimisedRA a;
 	
 	public final int[] registers;
+	/**
+	 * Reverse index of the registers, null if the automaton has few enough
+	 * registers to scan them
+	 */
+	public final RegisterIndex index;
+	
+	public OBFLGSSearchState(State state, 
+							int[] registers, 
+							List<Integer> fullWord,
+							int nextIdx,
+							OptimisedRA a) {
+		this(state, registers, a.createRegisterIndex(registers), fullWord, nextIdx, a);
+	}
 	
 	public OBFLGSSearchState(State state, 
 							int[] registers, 
+							RegisterIndex index,
 							List<Integer> fullWord,
 							int nextIdx,
 							OptimisedRA a) {
 		this.state = state;
 		this.registers = registers;
+		this.index = index;
 		this.nextIdx = nextIdx;
 		this.a = a;
 		this.fullWord = fullWord;
@@ -57,25 +74,29 @@ public class OBFLGSSearchState {
 		int symbol = fullWord.get(nextIdx);
 		
 		//Update the registers and find the containing register (default -1)
+		TransitionTable t = a.getTransitionTable();
 		int containingRegister = -1;
-		Integer assignmentRegister = -1;
+		int assignmentRegister = -1;
 		
-		if((containingRegister = a.findContainingRegister(registers, symbol)) < 0) {
+		if((containingRegister = a.findContainingRegister(registers, index, symbol)) < 0) {
 			//If a rho value is defined
-			if((assignmentRegister = a.getAssignmentRegister(state)) != null) {
+			if((assignmentRegister = t.getRho(state.id)) >= 0) {
 				containingRegister = assignmentRegister + a.getWriteableOffset();
-				registers[assignmentRegister] = symbol;
+				if(index == null)
+					registers[assignmentRegister] = symbol;
+				else
+					index.assign(registers, assignmentRegister, symbol);
 			}
 		}
 		
-		//Deduce possible transitions
-		List<State> adjacentStates = a.getNextStates(state, containingRegister);
-		
-		//Infer search states
-		if(adjacentStates != null)
-			for(State s: adjacentStates) {
-				adjacentSearchStates.add(new OBFLGSSearchState(s, registers.clone(), fullWord, nextIdx+1, a));
-			}
+		//Deduce possible transitions and infer search states
+		//(the last successor takes over the index, this state is not expanded again)
+		int end = t.successorsEnd(state.id, containingRegister);
+		for(int i = t.successorsStart(state.id, containingRegister); i < end; i++) {
+			adjacentSearchStates.add(new OBFLGSSearchState(t.getSuccessorState(i), registers.clone(), 
+														  index == null || i == end-1 ? index : index.copy(), 
+														  fullWord, nextIdx+1, a));
+		}
 		
 		return adjacentSearchStates;
 	}
@@ -111,7 +132,7 @@ public class OBFLGSSearchState {
 
 	@Override
 	public String toString() {
-		return state.name + "(" + nextIdx + ") " + Arrays.toString(a.getFixedRegisters()) + Arrays.toString(registers)
+		return state.name + "(" + nextIdx + ") " + Arrays.toString(a.getFixedSymbols()) + Arrays.toString(registers)
 				+ ", w:" + fullWord.subList(nextIdx, Math.min(nextIdx+4, fullWord.size())).toString(); 
 	}
 	
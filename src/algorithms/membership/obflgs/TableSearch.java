@@ -0,0 +1,111 @@
+package algorithms.membership.obflgs;
+
+import testbench.Testbench;
+import algorithms.membership.IncrementalSearch;
+import algorithms.tools.ResultsContainer;
+import automata.OptimisedRA;
+import automata.TransitionTable;
+
+/**
+ * <p>Forgetful BFLGS on two {@link ConfigurationTable}s swapped between symbols:
+ * once the tables have grown to the largest frontier, nothing is allocated per
+ * symbol.</p>
+ * <p>As with {@link OBFLGSSearchState}, a word is accepted as soon as a final
+ * state is reached: once it is, the search stops and every extension of the
+ * word is accepted as well.</p>
+ * @author vincent
+ *
+ */
+public class TableSearch extends IncrementalSearch {
+	private final TransitionTable t;
+	private final OptimisedRA a;
+	private final int writeOffset;
+
+	private ConfigurationTable frontier;
+	private ConfigurationTable nextFrontier;
+	private boolean accepted;
+
+	//Statistics
+	private static int maxFrontierSize = 0;
+	private static int maxCapacity = 0;
+
+	public TableSearch(OptimisedRA a) {
+		this.t = a.getTransitionTable();
+		this.a = a;
+		this.writeOffset = a.getWriteableOffset();
+
+		int[] initialRegisters = a.getInitialRegisters();
+		frontier = new ConfigurationTable(initialRegisters.length);
+		nextFrontier = new ConfigurationTable(initialRegisters.length);
+		frontier.add(a.getInitialState().id, initialRegisters);
+		accepted = a.getInitialState().isFinal;
+	}
+
+	@Override
+	protected void step(int symbol) {
+		if(accepted)
+			return;
+
+		//The same for all configurations
+		int fixedRegister = a.findFixedRegister(symbol);
+		for(int row = 0; row < frontier.size(); row++) {
+			charge(1);
+			int state = frontier.getState(row);
+
+			//Find the containing register (default -1), fixed registers first
+			int containingRegister;
+			int assignmentRegister = -1;
+			if(fixedRegister >= 0)
+				containingRegister = fixedRegister;
+			else if((containingRegister = frontier.findRegister(row, symbol)) >= 0)
+				containingRegister += writeOffset;
+			else if((assignmentRegister = t.getRho(state)) >= 0)
+				containingRegister = assignmentRegister + writeOffset;
+
+			//Add successors, with the assigned register if any
+			int end = t.successorsEnd(state, containingRegister);
+			for(int i = t.successorsStart(state, containingRegister); i < end; i++) {
+				int next = t.getSuccessor(i);
+				if(t.isFinal(next)) {
+					accepted = true;
+					return;
+				}
+				nextFrontier.add(next, frontier, row, assignmentRegister, symbol);
+			}
+		}
+
+		if(Testbench.COLLECT_STATS) {
+			maxFrontierSize = Math.max(maxFrontierSize, nextFrontier.size());
+			maxCapacity = Math.max(maxCapacity, nextFrontier.getCapacity());
+		}
+
+		ConfigurationTable swap = frontier;
+		frontier = nextFrontier;
+		nextFrontier = swap;
+		nextFrontier.clear();
+	}
+
+	@Override
+	public boolean accepts() {
+		return accepted;
+	}
+
+	@Override
+	public boolean reachedFinal() {
+		return accepted;
+	}
+
+	@Override
+	public boolean isDead() {
+		return !accepted && frontier.size() == 0;
+	}
+
+	//Stats
+	public static void yieldStatistics(String sessionName, ResultsContainer rc) {
+		rc.addSessionNumber(sessionName, "frontier size", maxFrontierSize);
+		rc.addSessionNumber(sessionName, "table capacity", maxCapacity);
+
+		maxFrontierSize = 0;
+		maxCapacity = 0;
+	}
+}
@@ -0,0 +1,266 @@
+package algorithms.membership.pbflgs;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import testbench.Testbench;
+import algorithms.membership.SearchState;
+import algorithms.tools.OpenAddressing;
+import algorithms.tools.ResultsContainer;
+
+/**
+ * <p>Expands a BFLGS frontier by one symbol. Small frontiers are expanded
+ * sequentially; from {@link #getThreshold()} configurations on, the level is
+ * expanded on a fork-join pool in three phases:
+ * <ul>
+ * <li>the frontier is split into chunks, and each chunk is expanded into its
+ * own sets, one per partition of the hash space,</li>
+ * <li>each partition is merged (and deduplicated) by one task, independently
+ * of the others since equal configurations always fall in the same partition,</li>
+ * <li>merged partitions are copied side by side into the next frontier.</li>
+ * </ul></p>
+ * <p>Configurations are immutable and only read the automaton, which should
+ * be frozen (see {@link automata.RegisterAutomaton#freeze()}).</p>
+ * <p>Workers do not share the interrupt status of the thread expanding the level:
+ * they check it themselves, and abandon the level with a {@link CancellationException}
+ * once that thread is interrupted (see {@link algorithms.membership.portfolio.CancellableWord}).</p>
+ * @author vincent
+ *
+ */
+public class LevelExpander {
+	public static final int DEFAULT_THRESHOLD = 1 << 11;
+	/**
+	 * Number of chunks per worker, so that workers finishing early can steal some
+	 */
+	private static final int CHUNKS_PER_WORKER = 4;
+
+	private static volatile int threshold = DEFAULT_THRESHOLD;
+	private static ForkJoinPool commonPool = null;
+
+	private final ForkJoinPool pool;
+	private final int partitionBits;
+	private final int levelThreshold;
+
+	//Statistics
+	private static int parallelLevels = 0;
+	private static int sequentialLevels = 0;
+
+	public LevelExpander() {
+		this(getCommonPool());
+	}
+
+	public LevelExpander(ForkJoinPool pool) {
+		this.pool = pool;
+		this.levelThreshold = threshold;
+
+		//At least one partition per worker, as a power of two
+		int bits = 0;
+		while((1 << bits) < pool.getParallelism())
+			bits++;
+		this.partitionBits = bits;
+	}
+
+	/**
+	 * @param frontier configurations that all have the same position in the word
+	 * @return the distinct successors of the frontier
+	 */
+	public SearchState[] expand(SearchState[] frontier) {
+		if(frontier.length < levelThreshold) {
+			if(Testbench.COLLECT_STATS)
+				sequentialLevels++;
+
+			HashSet<SearchState> next = new HashSet<>();
+			for(SearchState s : frontier)
+				next.addAll(s.expand());
+			return next.toArray(new SearchState[next.size()]);
+		}
+
+		if(Testbench.COLLECT_STATS)
+			parallelLevels++;
+
+		Level level = new Level(frontier, Thread.currentThread());
+		pool.invoke(level);
+		return level.next;
+	}
+
+	private int partitionOf(SearchState s) {
+		if(partitionBits == 0)
+			return 0;
+
+		//High bits: sets use the low bits for their buckets
+		return OpenAddressing.slot(s.hashCode(), 32 - partitionBits);
+	}
+
+	/**
+	 * @param caller
+	 * @throws CancellationException if caller was interrupted
+	 */
+	private static void checkCancelled(Thread caller) {
+		if(caller.isInterrupted())
+			throw new CancellationException();
+	}
+
+	//Tasks
+	private class Level extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final SearchState[] frontier;
+		private final Thread caller;
+		private SearchState[] next;
+
+		private Level(SearchState[] frontier, Thread caller) {
+			this.frontier = frontier;
+			this.caller = caller;
+		}
+
+		@Override
+		protected void compute() {
+			int partitions = 1 << partitionBits;
+
+			//Expand chunks
+			int numChunks = Math.min(pool.getParallelism()*CHUNKS_PER_WORKER, frontier.length);
+			List<Chunk> chunks = new ArrayList<>(numChunks);
+			for(int c = 0; c < numChunks; c++)
+				chunks.add(new Chunk(frontier, (int) ((long) frontier.length*c/numChunks),
+										(int) ((long) frontier.length*(c+1)/numChunks), partitions, caller));
+			invokeAll(chunks);
+			checkCancelled(caller);
+
+			//Merge each partition
+			List<Merge> merges = new ArrayList<>(partitions);
+			for(int p = 0; p < partitions; p++)
+				merges.add(new Merge(chunks, p));
+			invokeAll(merges);
+
+			//Copy partitions side by side
+			int size = 0;
+			for(Merge m : merges) {
+				m.offset = size;
+				size += m.merged.size();
+			}
+			next = new SearchState[size];
+			List<Copy> copies = new ArrayList<>(partitions);
+			for(Merge m : merges)
+				copies.add(new Copy(m, next));
+			invokeAll(copies);
+		}
+	}
+
+	private class Chunk extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final SearchState[] frontier;
+		private final int from;
+		private final int to;
+		private final List<HashSet<SearchState>> partitions;
+		private final Thread caller;
+
+		private Chunk(SearchState[] frontier, int from, int to, int numPartitions, Thread caller) {
+			this.frontier = frontier;
+			this.from = from;
+			this.to = to;
+			this.caller = caller;
+			this.partitions = new ArrayList<>(numPartitions);
+			for(int p = 0; p < numPartitions; p++)
+				partitions.add(new HashSet<SearchState>());
+		}
+
+		@Override
+		protected void compute() {
+			for(int i = from; i < to; i++) {
+				checkCancelled(caller);
+				for(SearchState s : frontier[i].expand())
+					partitions.get(partitionOf(s)).add(s);
+			}
+		}
+	}
+
+	private static class Merge extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<Chunk> chunks;
+		private final int partition;
+		private HashSet<SearchState> merged;
+		private int offset;
+
+		private Merge(List<Chunk> chunks, int partition) {
+			this.chunks = chunks;
+			this.partition = partition;
+		}
+
+		@Override
+		protected void compute() {
+			//Add everything to the largest set
+			merged = chunks.get(0).partitions.get(partition);
+			for(Chunk c : chunks) {
+				HashSet<SearchState> set = c.partitions.get(partition);
+				if(set.size() > merged.size())
+					merged = set;
+			}
+
+			for(Chunk c : chunks) {
+				HashSet<SearchState> set = c.partitions.get(partition);
+				if(set != merged)
+					merged.addAll(set);
+			}
+		}
+	}
+
+	private static class Copy extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Merge merge;
+		private final SearchState[] next;
+
+		private Copy(Merge merge, SearchState[] next) {
+			this.merge = merge;
+			this.next = next;
+		}
+
+		@Override
+		protected void compute() {
+			int i = merge.offset;
+			for(SearchState s : merge.merged)
+				next[i++] = s;
+		}
+	}
+
+	//Access methods
+	/**
+	 * @return the frontier size from which levels are expanded in parallel
+	 */
+	public static int getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Set the frontier size from which levels are expanded in parallel
+	 * (applies to expanders created afterwards).
+	 * @param threshold
+	 */
+	public static void setThreshold(int threshold) {
+		if(threshold < 1)
+			throw new IllegalArgumentException("The parallelism threshold must be positive");
+		LevelExpander.threshold = threshold;
+	}
+
+	private static synchronized ForkJoinPool getCommonPool() {
+		if(commonPool == null)
+			commonPool = new ForkJoinPool();
+		return commonPool;
+	}
+
+	//Stats
+	public static void yieldStatistics(String sessionName, ResultsContainer rc) {
+		if(Testbench.COLLECT_STATS) {
+			rc.addSessionNumber(sessionName, "parallel levels", parallelLevels);
+			rc.addSessionNumber(sessionName, "sequential levels", sequentialLevels);
+			parallelLevels = 0;
+			sequentialLevels = 0;
+		}
+	}
+}
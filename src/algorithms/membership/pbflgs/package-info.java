@@ -0,0 +1,8 @@
+/**
+ * Contains the code for Breadth-First Local Graph Search membership where each
+ * level of the frontier is expanded in parallel, on a fork-join pool.
+ * 
+ * @author vincent
+ *
+ */
+package algorithms.membership.pbflgs;
@@ -0,0 +1,49 @@
+package algorithms.membership.portfolio;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CancellationException;
+
+/**
+ * <p>A read-only view of a word that stops the algorithm reading it once its
+ * thread has been interrupted: every algorithm reads its word as it goes deeper
+ * into its search, so this is where a member of a portfolio notices that the
+ * race is over.</p>
+ * <p>Algorithms that copy their word before searching must check the interrupt
+ * status of their thread themselves (see {@link algorithms.membership.dfs.MemoisedDfs}).</p>
+ * @author vincent
+ *
+ */
+public final class CancellableWord extends AbstractList<Integer> implements RandomAccess {
+	private final List<Integer> word;
+
+	/**
+	 * @param word a word with random access
+	 */
+	public CancellableWord(List<Integer> word) {
+		this.word = word;
+	}
+
+	/**
+	 * @throws CancellationException if the current thread was interrupted
+	 */
+	@Override
+	public Integer get(int index) {
+		if(Thread.currentThread().isInterrupted())
+			throw new CancellationException();
+		return word.get(index);
+	}
+
+	@Override
+	public int size() {
+		return word.size();
+	}
+
+	/**
+	 * @return the word under this view
+	 */
+	public List<Integer> getWord() {
+		return word;
+	}
+}
@@ -0,0 +1,260 @@
+package algorithms.membership.portfolio;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import algorithms.membership.BudgetExceededException;
+import algorithms.membership.MBSDecisionAlgorithm;
+import algorithms.tools.ResultsContainer;
+import automata.Automaton;
+import automata.RegisterAutomaton;
+
+/**
+ * <p>Membership by a portfolio of algorithms: each member decides the word on
+ * its own thread, over its own version of one frozen automaton (see
+ * {@link MBSDecisionAlgorithm#adapt(RegisterAutomaton)}), and the first member to
+ * answer gives the verdict. The other members are then interrupted, and stop
+ * the next time they read their word (see {@link CancellableWord}).</p>
+ * <p>Which algorithm is fastest depends on the shape of the automaton (see
+ * {@link automata.gen.RootBranchGenerator} against diamond chains): the
+ * winner of each word is recorded, see {@link #getLastWinner()} and the "wins"
+ * statistics. Members only have to agree on acceptance: mixing algorithms that
+ * accept as soon as a final state is reached with algorithms that accept at the
+ * end of the word is only sound for properties whose final states cannot be left.</p>
+ * <p>The members of this algorithm are read when contexts are built. Members race
+ * on other threads, so they are only thread-safe if statistics are not collected:
+ * this algorithm only yields its wins. The threads of a portfolio are kept between
+ * words, and released once it is idle.</p>
+ * @author vincent
+ *
+ */
+public class PortfolioAlgorithm extends MBSDecisionAlgorithm {
+	private static final long KEEP_ALIVE_MILLIS = 1000;
+
+	private MBSDecisionAlgorithm[] members;
+	private volatile MBSDecisionAlgorithm lastWinner = null;
+	/**
+	 * The context of the last automaton given to {@link #decide(Automaton, List)}
+	 */
+	private volatile PortfolioContext lastContext = null;
+	/**
+	 * Member threads, as many as the concurrent races need
+	 */
+	private final ThreadPoolExecutor pool;
+
+	//Statistics
+	private final Map<String, Integer> wins = new HashMap<>();
+
+	/**
+	 * @param name
+	 * @param members the default members of the portfolio
+	 */
+	public PortfolioAlgorithm(String name, MBSDecisionAlgorithm... members) {
+		super(name);
+		setMembers(members);
+
+		//Not a fixed pool: a portfolio may race within a member of another one
+		pool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS,
+									  new SynchronousQueue<Runnable>(), new MemberThreads(name));
+	}
+
+	/**
+	 * Building a context freezes and adapts the automaton for every member:
+	 * the context of the last automaton is kept for the next words.
+	 */
+	@Override
+	public boolean decide(Automaton automaton, List<Integer> word) {
+		PortfolioContext c = lastContext;
+		if(c == null || c.source != automaton) {
+			c = (PortfolioContext) newContext(automaton);
+			lastContext = c;
+		}
+		return decide(c, word);
+	}
+
+	/**
+	 * Returns once every member has stopped.
+	 * @throws BudgetExceededException if the budget of a metered word ran out before any member answered
+	 * @throws IllegalStateException if no member could decide word
+	 */
+	@Override
+	public boolean decide(Context c, List<Integer> word) {
+		final PortfolioContext pc = (PortfolioContext) c;
+		final int n = pc.members.length;
+		final List<Integer> cancellable = new CancellableWord(word instanceof RandomAccess ? word : new ArrayList<>(word));
+
+		//The race: first answer, running threads, and threads still to stop
+		final AtomicInteger winner = new AtomicInteger(-1);
+		final AtomicReferenceArray<Thread> runners = new AtomicReferenceArray<>(n);
+		final boolean[] verdicts = new boolean[n];
+		final Throwable[] failures = new Throwable[n];
+		final CountDownLatch finished = new CountDownLatch(n);
+
+		for(int m = 0; m < n; m++) {
+			final int member = m;
+			pool.execute(new Runnable() {
+				@Override
+				public void run() {
+					runners.set(member, Thread.currentThread());
+					try {
+						//(the race may be over already)
+						if(winner.get() >= 0)
+							return;
+
+						verdicts[member] = pc.members[member].decide(pc.contexts[member], cancellable);
+						if(winner.compareAndSet(-1, member))
+							cancelOthers(runners, member);
+					} catch (CancellationException e) {
+						//Another member answered first
+					} catch (RuntimeException | Error e) {
+						failures[member] = e;
+					} finally {
+						runners.set(member, null);
+						Thread.interrupted();
+						finished.countDown();
+					}
+				}
+			});
+		}
+
+		//Cancelled members stop at their next read: wait for them before the next word
+		boolean interrupted = false;
+		while(finished.getCount() > 0) {
+			try {
+				finished.await();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if(interrupted)
+			Thread.currentThread().interrupt();
+
+		int w = winner.get();
+		if(w < 0) {
+			//Members reading a metered word share its budget
+			for(Throwable failure : failures)
+				if(failure instanceof BudgetExceededException)
+					throw (BudgetExceededException) failure;
+
+			IllegalStateException e = new IllegalStateException("No member of " + name + " could decide the word");
+			for(Throwable failure : failures)
+				if(failure != null)
+					e.addSuppressed(failure);
+			throw e;
+		}
+
+		lastWinner = pc.members[w];
+		synchronized(wins) {
+			Integer count = wins.get(lastWinner.name);
+			wins.put(lastWinner.name, count == null ? 1 : count+1);
+		}
+		return verdicts[w];
+	}
+
+	/**
+	 * Every member reads a frozen automaton, built once and adapted to its kind.
+	 */
+	@Override
+	protected Context newContext(Automaton a) {
+		RegisterAutomaton frozen = ((RegisterAutomaton) a).freeze();
+
+		MBSDecisionAlgorithm[] chosen = members.clone();
+		MBSDecisionAlgorithm.Context[] contexts = new MBSDecisionAlgorithm.Context[chosen.length];
+		for(int m = 0; m < chosen.length; m++)
+			contexts[m] = chosen[m].createContext(chosen[m].adapt(frozen).freeze());
+
+		return new PortfolioContext(a, frozen, chosen, contexts);
+	}
+
+	//Access methods
+	/**
+	 * @param members the algorithms racing on each word, which must agree on
+	 * the acceptance of words
+	 * @throws IllegalArgumentException if there is no member, or a null one
+	 */
+	public void setMembers(MBSDecisionAlgorithm... members) {
+		if(members.length == 0)
+			throw new IllegalArgumentException("A portfolio needs at least one member");
+		for(int m = 0; m < members.length; m++) {
+			if(members[m] == null)
+				throw new IllegalArgumentException("Member " + m + " of the portfolio is null");
+		}
+		this.members = members.clone();
+		lastContext = null;
+	}
+	public MBSDecisionAlgorithm[] getMembers() {
+		return members.clone();
+	}
+	/**
+	 * @return the member that gave the last verdict of this algorithm, or null
+	 */
+	public MBSDecisionAlgorithm getLastWinner() {
+		return lastWinner;
+	}
+
+	//Tools
+	private static void cancelOthers(AtomicReferenceArray<Thread> runners, int winner) {
+		for(int m = 0; m < runners.length(); m++) {
+			Thread runner = runners.get(m);
+			if(m != winner && runner != null)
+				runner.interrupt();
+		}
+	}
+
+	/**
+	 * Daemon threads: an idle portfolio never keeps the testbench alive
+	 */
+	private static final class MemberThreads implements ThreadFactory {
+		private final String name;
+		private final AtomicInteger count = new AtomicInteger();
+
+		private MemberThreads(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	//Statistics
+	@Override
+	protected void yieldStatistics(String sessionName, ResultsContainer rc) {
+		synchronized(wins) {
+			for(MBSDecisionAlgorithm member : members) {
+				Integer count = wins.get(member.name);
+				rc.addSessionNumber(sessionName, "wins " + member.name, count == null ? 0 : count);
+			}
+			wins.clear();
+		}
+	}
+
+	//Contexts
+	private static final class PortfolioContext extends MBSDecisionAlgorithm.Context {
+		private final Automaton source;
+		private final MBSDecisionAlgorithm[] members;
+		private final MBSDecisionAlgorithm.Context[] contexts;
+
+		private PortfolioContext(Automaton source, Automaton automaton, MBSDecisionAlgorithm[] members,
+								 MBSDecisionAlgorithm.Context[] contexts) {
+			super(automaton);
+			this.source = source;
+			this.members = members;
+			this.contexts = contexts;
+		}
+	}
+}
@@ -0,0 +1,9 @@
+/**
+ * Contains the code for portfolio membership: several algorithms race on
+ * the same word, the first one to answer gives the verdict and the others
+ * are cancelled.
+ *
+ * @author vincent
+ *
+ */
+package algorithms.membership.portfolio;
@@ -0,0 +1,133 @@
+package algorithms.membership.slicing;
+
+import algorithms.tools.OpenAddressing;
+
+/**
+ * <p>The slice of each object of a trace: a map from object ids to slice
+ * numbers, in a primitive open-addressed table (see {@link OpenAddressing}:
+ * entries are moved back on removal, so that objects can be evicted).</p>
+ * @author vincent
+ *
+ */
+public final class SliceTable {
+	private static final int MIN_CAPACITY = 16;
+
+	private int[] objects;
+	//Slice + 1 of objects[slot], 0 if the slot is free
+	private int[] slices;
+	private int shift;
+	private int size = 0;
+	private final OpenAddressing.Entries entries = new OpenAddressing.Entries() {
+		@Override
+		public boolean isFree(int slot) {
+			return slices[slot] == 0;
+		}
+
+		@Override
+		public int home(int slot) {
+			return hash(objects[slot]);
+		}
+
+		@Override
+		public void move(int from, int to) {
+			objects[to] = objects[from];
+			slices[to] = slices[from];
+		}
+
+		@Override
+		public void free(int slot) {
+			slices[slot] = 0;
+		}
+	};
+
+	public SliceTable() {
+		objects = new int[MIN_CAPACITY];
+		slices = new int[MIN_CAPACITY];
+		shift = OpenAddressing.shift(MIN_CAPACITY);
+	}
+
+	/**
+	 * @param object
+	 * @return the slice of object, or -1
+	 */
+	public int get(int object) {
+		int slot = hash(object);
+		for(int slice; (slice = slices[slot]) > 0; slot = (slot+1) & (objects.length-1)) {
+			if(objects[slot] == object)
+				return slice-1;
+		}
+		return -1;
+	}
+
+	/**
+	 * Set the slice of object
+	 * @param object
+	 * @param slice
+	 */
+	public void put(int object, int slice) {
+		int slot = hash(object);
+		for(; slices[slot] > 0; slot = (slot+1) & (objects.length-1)) {
+			if(objects[slot] == object) {
+				slices[slot] = slice+1;
+				return;
+			}
+		}
+
+		objects[slot] = object;
+		slices[slot] = slice+1;
+		if(2*(++size) > objects.length)
+			rehash();
+	}
+
+	/**
+	 * @param object
+	 * @return the slice object was in, or -1 if it was in none
+	 */
+	public int remove(int object) {
+		int mask = objects.length-1;
+		int slot = hash(object);
+		for(; objects[slot] != object || slices[slot] == 0; slot = (slot+1) & mask) {
+			if(slices[slot] == 0)
+				return -1;
+		}
+		int slice = slices[slot]-1;
+
+		OpenAddressing.remove(entries, slot, mask);
+		size--;
+		return slice;
+	}
+
+	/**
+	 * @return the number of objects in a slice
+	 */
+	public int size() {
+		return size;
+	}
+
+	//Tools
+	private int hash(int object) {
+		return OpenAddressing.slot(object, shift);
+	}
+
+	/**
+	 * Double the number of slots and place all objects again
+	 */
+	private void rehash() {
+		int[] oldObjects = objects;
+		int[] oldSlices = slices;
+		objects = new int[2*oldObjects.length];
+		slices = new int[2*oldObjects.length];
+		shift--;
+
+		for(int old = 0; old < oldObjects.length; old++) {
+			if(oldSlices[old] == 0)
+				continue;
+
+			int slot = hash(oldObjects[old]);
+			while(slices[slot] != 0)
+				slot = (slot+1) & (objects.length-1);
+			objects[slot] = oldObjects[old];
+			slices[slot] = oldSlices[old];
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package algorithms.membership.slicing;
+
+import java.util.List;
+
+import algorithms.membership.IncrementalSearch;
+import algorithms.membership.MBSDecisionAlgorithm;
+import algorithms.tools.ResultsContainer;
+import automata.Automaton;
+import automata.RegisterAutomaton;
+
+/**
+ * <p>Membership by slices of the trace (see {@link SlicingSearch}): each object
+ * is checked by its own search of another algorithm, and a word is accepted if
+ * one of its slices is accepted by that algorithm.</p>
+ * <p>The values held by the initial registers of the automaton are constants
+ * (method codes, return values); any other value of the trace is an object id.
+ * The settings of this algorithm are read when contexts are built.</p>
+ * @author vincent
+ *
+ */
+public class SlicingAlgorithm extends MBSDecisionAlgorithm {
+	public static final int DEFAULT_EVENT_LENGTH = 3;
+
+	private MBSDecisionAlgorithm sliceAlgorithm;
+	private int eventLength = DEFAULT_EVENT_LENGTH;
+	private int[] finalizeCodes = new int[0];
+
+	/**
+	 * @param name
+	 * @param sliceAlgorithm the default algorithm of slices
+	 */
+	public SlicingAlgorithm(String name, MBSDecisionAlgorithm sliceAlgorithm) {
+		super(name);
+		this.sliceAlgorithm = sliceAlgorithm;
+	}
+
+	@Override
+	public boolean decide(Automaton automaton, List<Integer> word) {
+		return decide(newContext(automaton), word);
+	}
+
+	@Override
+	public boolean decide(Context c, List<Integer> word) {
+		IncrementalSearch search = startSearch(c);
+		search.setMeter(word);
+		for(int symbol : word)
+			search.read(symbol);
+
+		return search.accepts();
+	}
+
+	@Override
+	public IncrementalSearch startSearch(Context c) {
+		SliceContext sc = (SliceContext) c;
+		return new SlicingSearch(sc.algorithm, sc.sliceContext, sc.constants, sc.eventLength, sc.finalizeCodes);
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the algorithm of slices cannot resume its searches
+	 */
+	@Override
+	protected Context newContext(Automaton a) {
+		MBSDecisionAlgorithm.Context sliceContext = sliceAlgorithm.createContext(a);
+		if(sliceAlgorithm.startSearch(sliceContext) == null)
+			throw new IllegalArgumentException(sliceAlgorithm + " cannot check slices");
+
+		return new SliceContext(a, sliceAlgorithm, sliceContext,
+				((RegisterAutomaton) a).getInitialRegisters(), eventLength, finalizeCodes.clone());
+	}
+
+	//Access methods
+	/**
+	 * @param sliceAlgorithm the algorithm of each slice, which must be able to resume
+	 * its searches (see {@link MBSDecisionAlgorithm#startSearch(Context)})
+	 * @throws IllegalArgumentException if sliceAlgorithm is null
+	 */
+	public void setSliceAlgorithm(MBSDecisionAlgorithm sliceAlgorithm) {
+		if(sliceAlgorithm == null)
+			throw new IllegalArgumentException("Slices need an algorithm");
+		this.sliceAlgorithm = sliceAlgorithm;
+	}
+	public MBSDecisionAlgorithm getSliceAlgorithm() {
+		return sliceAlgorithm;
+	}
+	/**
+	 * @param eventLength the number of symbols of an event (object id first, method code second)
+	 */
+	public void setEventLength(int eventLength) {
+		if(eventLength < 2)
+			throw new IllegalArgumentException("Events hold at least an object and a method: " + eventLength);
+		this.eventLength = eventLength;
+	}
+	public int getEventLength() {
+		return eventLength;
+	}
+	/**
+	 * @param finalizeCodes the method codes after which an object has no more events:
+	 * slices are evicted when their root is finalised
+	 */
+	public void setFinalizeCodes(int... finalizeCodes) {
+		this.finalizeCodes = finalizeCodes.clone();
+	}
+	public int[] getFinalizeCodes() {
+		return finalizeCodes.clone();
+	}
+
+	//Statistics
+	@Override
+	protected void yieldStatistics(String sessionName, ResultsContainer rc) {
+		SlicingSearch.yieldStatistics(sessionName, rc);
+	}
+
+	//Contexts
+	private static final class SliceContext extends MBSDecisionAlgorithm.Context {
+		private final MBSDecisionAlgorithm algorithm;
+		private final MBSDecisionAlgorithm.Context sliceContext;
+		private final int[] constants;
+		private final int eventLength;
+		private final int[] finalizeCodes;
+
+		private SliceContext(Automaton automaton, MBSDecisionAlgorithm algorithm,
+							 MBSDecisionAlgorithm.Context sliceContext,
+							 int[] constants, int eventLength, int[] finalizeCodes) {
+			super(automaton);
+			this.algorithm = algorithm;
+			this.sliceContext = sliceContext;
+			this.constants = constants;
+			this.eventLength = eventLength;
+			this.finalizeCodes = finalizeCodes;
+		}
+	}
+}
@@ -0,0 +1,264 @@
+package algorithms.membership.slicing;
+
+import java.util.Arrays;
+import java.util.List;
+
+import testbench.Testbench;
+import algorithms.membership.IncrementalSearch;
+import algorithms.membership.MBSDecisionAlgorithm;
+import algorithms.tools.ResultsContainer;
+
+/**
+ * <p>Membership by slices: the trace is a sequence of events of a fixed
+ * length (object id, method code, value, as written by the translators), and
+ * each event is read by the search of the slice of its object only. A word is
+ * accepted if one of its slices is.</p>
+ * <p>The first event of an object starts a slice, rooted at that object. Objects
+ * appearing for the first time as the value of an event (iterators returned by
+ * a collection, say) are attached to the slice of the event: their own events
+ * go to the same search. This is sound for properties that bind the object of
+ * their first event in a register and skip the events of all other objects.</p>
+ * <p>When the root of a slice is finalised (its method code is one of the
+ * finalisation codes), no more events can come for it: the verdict of the slice
+ * is kept, and the slice is evicted with all its objects.</p>
+ * @author vincent
+ *
+ */
+public class SlicingSearch extends IncrementalSearch {
+	private static final int MIN_SLICES = 16;
+
+	private final MBSDecisionAlgorithm algorithm;
+	private final MBSDecisionAlgorithm.Context context;
+	private final int[] constants;
+	private final int eventLength;
+	private final int[] finalizeCodes;
+
+	//Objects
+	private final SliceTable table = new SliceTable();
+
+	//Slices: search, root and attached objects, null searches for dead slices
+	private IncrementalSearch[] searches = new IncrementalSearch[MIN_SLICES];
+	private boolean[] accepting = new boolean[MIN_SLICES];
+	private int[] roots = new int[MIN_SLICES];
+	private int[][] attached = new int[MIN_SLICES][];
+	private int[] attachedSizes = new int[MIN_SLICES];
+	private int[] freeSlices = new int[MIN_SLICES];
+	private int numFreeSlices = 0;
+	private int numSlices = 0;
+
+	//Verdicts
+	private int acceptingSlices = 0;
+	private boolean evictedAccepting = false;
+	private boolean finalReached = false;
+
+	//Current event
+	private int offset = 0;
+	private int object;
+	private int slice;
+	private boolean finalizing;
+
+	//Statistics
+	private static int maxSlices = 0;
+	private static int maxObjects = 0;
+	private static int evictions = 0;
+	private static int deadSlices = 0;
+
+	/**
+	 * @param algorithm the algorithm of each slice, which must be able to resume its searches
+	 * @param context the context of slice searches
+	 * @param constants the values of the automaton that are not object ids
+	 * @param eventLength the number of symbols of an event
+	 * @param finalizeCodes the method codes after which an object has no events
+	 */
+	public SlicingSearch(MBSDecisionAlgorithm algorithm, MBSDecisionAlgorithm.Context context,
+						 int[] constants, int eventLength, int[] finalizeCodes) {
+		this.algorithm = algorithm;
+		this.context = context;
+		this.constants = constants;
+		this.eventLength = eventLength;
+		this.finalizeCodes = finalizeCodes;
+	}
+
+	@Override
+	protected void step(int symbol) {
+		finalReached = false;
+
+		if(offset == 0) {
+			//The object of the event
+			object = symbol;
+			slice = table.get(symbol);
+			if(slice < 0)
+				slice = newSlice(symbol);
+			finalizing = false;
+		} else if(offset == 1 && contains(finalizeCodes, symbol)) {
+			finalizing = true;
+		} else if(!contains(constants, symbol) && table.get(symbol) < 0) {
+			attach(symbol);
+		}
+
+		IncrementalSearch search = searches[slice];
+		if(search != null) {
+			search.read(symbol);
+			finalReached = search.reachedFinal();
+		}
+
+		if(++offset == eventLength) {
+			offset = 0;
+			endEvent();
+		}
+	}
+
+	@Override
+	public boolean accepts() {
+		return evictedAccepting || acceptingSlices > 0;
+	}
+
+	@Override
+	public boolean reachedFinal() {
+		return finalReached;
+	}
+
+	/**
+	 * Slices are charged to the same word as this search
+	 */
+	@Override
+	public void setMeter(List<Integer> word) {
+		super.setMeter(word);
+		for(IncrementalSearch search : searches) {
+			if(search != null)
+				search.setMeter(word);
+		}
+	}
+
+	/**
+	 * Objects that were never seen start new slices, so sliced searches never die.
+	 */
+	@Override
+	public boolean isDead() {
+		return false;
+	}
+
+	/**
+	 * @return the number of slices that have not been evicted
+	 */
+	public int countSlices() {
+		return numSlices;
+	}
+
+	//Tools
+	private int newSlice(int root) {
+		int s;
+		if(numFreeSlices > 0)
+			s = freeSlices[--numFreeSlices];
+		else {
+			s = numSlices;
+			if(s == searches.length) {
+				searches = Arrays.copyOf(searches, 2*s);
+				accepting = Arrays.copyOf(accepting, 2*s);
+				roots = Arrays.copyOf(roots, 2*s);
+				attached = Arrays.copyOf(attached, 2*s);
+				attachedSizes = Arrays.copyOf(attachedSizes, 2*s);
+				freeSlices = Arrays.copyOf(freeSlices, 2*s);
+			}
+		}
+		numSlices++;
+
+		searches[s] = algorithm.startSearch(context);
+		searches[s].setMeter(getMeter());
+		accepting[s] = searches[s].accepts();
+		if(accepting[s])
+			acceptingSlices++;
+		roots[s] = root;
+		attachedSizes[s] = 0;
+		table.put(root, s);
+
+		if(Testbench.COLLECT_STATS) {
+			maxSlices = Math.max(maxSlices, numSlices);
+			maxObjects = Math.max(maxObjects, table.size());
+		}
+		return s;
+	}
+
+	private void attach(int object) {
+		if(attached[slice] == null)
+			attached[slice] = new int[4];
+		else if(attachedSizes[slice] == attached[slice].length)
+			attached[slice] = Arrays.copyOf(attached[slice], 2*attachedSizes[slice]);
+		attached[slice][attachedSizes[slice]++] = object;
+		table.put(object, slice);
+
+		if(Testbench.COLLECT_STATS)
+			maxObjects = Math.max(maxObjects, table.size());
+	}
+
+	/**
+	 * Update the verdict of the slice of the event that was just read, and evict it
+	 * if its root was finalised
+	 */
+	private void endEvent() {
+		IncrementalSearch search = searches[slice];
+		boolean accepts = search != null && search.accepts();
+		if(accepts != accepting[slice]) {
+			accepting[slice] = accepts;
+			acceptingSlices += accepts ? 1 : -1;
+		}
+
+		//Dead slices keep their objects, so that their events are still ignored
+		if(search != null && search.isDead()) {
+			searches[slice] = null;
+			if(Testbench.COLLECT_STATS)
+				deadSlices++;
+		}
+
+		//Finalised objects have no more events (and their ids may be reused)
+		if(finalizing) {
+			if(roots[slice] == object)
+				evict(slice);
+			else
+				table.remove(object);
+		}
+	}
+
+	private void evict(int s) {
+		if(accepting[s]) {
+			evictedAccepting = true;
+			accepting[s] = false;
+			acceptingSlices--;
+		}
+
+		//(attached objects that were finalised may have been reused by other slices)
+		table.remove(roots[s]);
+		for(int i = 0; i < attachedSizes[s]; i++)
+			if(table.get(attached[s][i]) == s)
+				table.remove(attached[s][i]);
+		searches[s] = null;
+		attached[s] = null;
+		attachedSizes[s] = 0;
+
+		freeSlices[numFreeSlices++] = s;
+		numSlices--;
+		if(Testbench.COLLECT_STATS)
+			evictions++;
+	}
+
+	private static boolean contains(int[] values, int value) {
+		for(int v : values)
+			if(v == value)
+				return true;
+		return false;
+	}
+
+	//Stats
+	public static void yieldStatistics(String sessionName, ResultsContainer rc) {
+		if(Testbench.COLLECT_STATS) {
+			rc.addSessionNumber(sessionName, "slices", maxSlices);
+			rc.addSessionNumber(sessionName, "objects", maxObjects);
+			rc.addSessionNumber(sessionName, "evictions", evictions);
+			rc.addSessionNumber(sessionName, "dead slices", deadSlices);
+			maxSlices = 0;
+			maxObjects = 0;
+			evictions = 0;
+			deadSlices = 0;
+		}
+	}
+}
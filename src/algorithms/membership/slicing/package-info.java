@@ -0,0 +1,9 @@
+/**
+ * Contains the code for sliced membership: the events of a trace are
+ * dispatched by the object they are about, and each object (with the objects
+ * it creates) is checked by its own small search, as parametric monitors do.
+ * 
+ * @author vincent
+ *
+ */
+package algorithms.membership.slicing;
@@ -0,0 +1,149 @@
+package algorithms.tools;
+
+import java.util.List;
+
+/**
+ * <p>What a word still has to read: for each value of the word, the position
+ * of its last occurrence. A value is dead at position p if it does not occur
+ * from p onwards (its next occurrence would be past the end of the word): a
+ * register holding a dead value will never be read again, so its exact
+ * content no longer matters.</p>
+ * <p>Canonicalising a configuration replaces every dead value of its registers
+ * by {@link #getDeadValue()}, a value that never occurs in the word. Configurations
+ * that only differ by dead values then become equal, and frontiers can merge
+ * them.</p>
+ * <p>The word is read once, in order, so it can be streamed (see
+ * {@link testbench.lister.LargeFileLister}). Positions are kept in a primitive
+ * open-addressed table (linear probing).</p>
+ * @author vincent
+ *
+ */
+public final class Lookahead {
+	private static final int MIN_CAPACITY = 16;
+
+	private final int length;
+	private final int deadValue;
+
+	//Last position + 1 of keys[slot], 0 if the slot is free
+	private int[] keys;
+	private int[] lastPositions;
+	private int shift;
+	private int size = 0;
+
+	public Lookahead(List<Integer> word) {
+		keys = new int[MIN_CAPACITY];
+		lastPositions = new int[MIN_CAPACITY];
+		shift = OpenAddressing.shift(MIN_CAPACITY);
+
+		int position = 0;
+		for(int symbol : word)
+			put(symbol, position++);
+		length = position;
+
+		//A value the word never reads: empty registers (-1) whenever possible
+		int value = -1;
+		while(lastOccurrence(value) >= 0)
+			value--;
+		deadValue = value;
+	}
+
+	/**
+	 * @param value
+	 * @return the position of the last occurrence of value in the word, or -1
+	 */
+	public int lastOccurrence(int value) {
+		int slot = hash(value);
+		for(int last; (last = lastPositions[slot]) > 0; slot = (slot+1) & (keys.length-1)) {
+			if(keys[slot] == value)
+				return last-1;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param value
+	 * @param position
+	 * @return true if value occurs in the word at position or after
+	 */
+	public boolean isLive(int value, int position) {
+		return value != deadValue && lastOccurrence(value) >= position;
+	}
+
+	/**
+	 * @param registers
+	 * @param position the position of the next symbol to read
+	 * @return registers where dead values are replaced by {@link #getDeadValue()},
+	 * registers themselves if they hold no dead value
+	 */
+	public PersistentRegisters canonicalise(PersistentRegisters registers, int position) {
+		PersistentRegisters canonical = registers;
+		for(int r = 0; r < registers.size(); r++) {
+			int value = registers.get(r);
+			if(value != deadValue && lastOccurrence(value) < position)
+				canonical = canonical.set(r, deadValue);
+		}
+		return canonical;
+	}
+
+	//Access methods
+	/**
+	 * @return the value standing for all dead values, which the word never reads
+	 */
+	public int getDeadValue() {
+		return deadValue;
+	}
+	/**
+	 * @return the length of the word
+	 */
+	public int getLength() {
+		return length;
+	}
+	/**
+	 * @return the number of distinct values of the word
+	 */
+	public int countValues() {
+		return size;
+	}
+
+	//Tools
+	private int hash(int value) {
+		return OpenAddressing.slot(value, shift);
+	}
+
+	private void put(int value, int position) {
+		int slot = hash(value);
+		for(; lastPositions[slot] > 0; slot = (slot+1) & (keys.length-1)) {
+			if(keys[slot] == value) {
+				lastPositions[slot] = position+1;
+				return;
+			}
+		}
+
+		keys[slot] = value;
+		lastPositions[slot] = position+1;
+		if(2*(++size) > keys.length)
+			rehash();
+	}
+
+	/**
+	 * Double the number of slots and place all values again
+	 */
+	private void rehash() {
+		int[] oldKeys = keys;
+		int[] oldPositions = lastPositions;
+		keys = new int[2*oldKeys.length];
+		lastPositions = new int[2*oldKeys.length];
+		shift--;
+
+		for(int old = 0; old < oldKeys.length; old++) {
+			if(oldPositions[old] == 0)
+				continue;
+
+			int slot = hash(oldKeys[old]);
+			while(lastPositions[slot] != 0)
+				slot = (slot+1) & (keys.length-1);
+			keys[slot] = oldKeys[old];
+			lastPositions[slot] = oldPositions[old];
+		}
+	}
+}
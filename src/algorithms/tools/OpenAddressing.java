@@ -0,0 +1,104 @@
+package algorithms.tools;
+
+/**
+ * <p>The toolkit of the primitive open-addressed tables of the searches:
+ * tables have a power-of-two number of slots, are kept at most half full,
+ * and resolve collisions by linear probing.</p>
+ * <ul>
+ * <li>The home slot of a key is made of the high bits of a multiplicative
+ * hash (see {@link #slot(int, int)}), which spreads the consecutive values of
+ * traces, states and register valuations over the whole table. Tables indexed
+ * by the low bits of hashes use {@link #mix(int)} instead.</li>
+ * <li>Removing an entry moves back the entries of its probe sequence (see
+ * {@link #remove(Entries, int, int)}): tables need no tombstones, so entries
+ * can be evicted for ever without degrading lookups.</li>
+ * </ul>
+ * <p>Tables of objects can use a {@link ProbingSet} directly.</p>
+ * @author vincent
+ *
+ */
+public final class OpenAddressing {
+	private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+	/**
+	 * The slots of a table, as seen by {@link OpenAddressing#remove(Entries, int, int)}
+	 */
+	public interface Entries {
+		boolean isFree(int slot);
+		/**
+		 * @param slot a used slot
+		 * @return the home slot of the entry in slot
+		 */
+		int home(int slot);
+		/**
+		 * Move the entry of a slot to a free one
+		 * @param from
+		 * @param to
+		 */
+		void move(int from, int to);
+		void free(int slot);
+	}
+
+	private OpenAddressing() {
+	}
+
+	/**
+	 * @param slots a power of two, at least 2
+	 * @return the shift turning hashes into slots of a table of that many slots
+	 */
+	public static int shift(int slots) {
+		return 32 - Integer.numberOfTrailingZeros(slots);
+	}
+
+	/**
+	 * @param hash
+	 * @param shift see {@link #shift(int)}
+	 * @return the home slot of hash
+	 */
+	public static int slot(int hash, int shift) {
+		//High bits of a multiplicative hash
+		return (hash * GOLDEN_RATIO) >>> shift;
+	}
+
+	/**
+	 * @param hash
+	 * @return hash with its high bits folded into its low bits, for tables
+	 * indexed by masking
+	 */
+	public static int mix(int hash) {
+		int h = hash * GOLDEN_RATIO;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Free a slot, moving back the next entries that could not be found
+	 * past the hole anymore
+	 * @param entries
+	 * @param slot a used slot
+	 * @param mask the number of slots - 1
+	 */
+	public static void remove(Entries entries, int slot, int mask) {
+		int hole = slot;
+		for(int next = (hole+1) & mask; !entries.isFree(next); next = (next+1) & mask) {
+			if(fillsHole(next, entries.home(next), hole, mask)) {
+				entries.move(next, hole);
+				hole = next;
+			}
+		}
+		entries.free(hole);
+	}
+
+	/**
+	 * The step of {@link #remove(Entries, int, int)}, for tables that cannot afford
+	 * an {@link Entries} view (one per copied index, ...)
+	 * @param slot a used slot after the hole, in the same probe run
+	 * @param home the home slot of the entry in slot
+	 * @param hole
+	 * @param mask
+	 * @return true if the entry in slot must be moved back into the hole: its home
+	 * is not between the hole and slot, so it is only found through the hole
+	 */
+	public static boolean fillsHole(int slot, int home, int hole, int mask) {
+		return ((slot - home) & mask) >= ((slot - hole) & mask);
+	}
+}
@@ -0,0 +1,200 @@
+package algorithms.tools;
+
+import java.util.Arrays;
+
+/**
+ * <p>An immutable register vector sharing its structure with the vector
+ * it was derived from. Since a transition changes at most one register (the
+ * rho assignment), a derived vector only stores the changed slot and a
+ * pointer to its parent: successors of a configuration never copy the
+ * registers.</p>
+ *
+ * <p>Chains of changes are flattened back into a plain array once they get
+ * longer than {@link #MAX_CHAIN_LENGTH}, which bounds the cost of reading a
+ * register.</p>
+ *
+ * <p>{@link #hashCode()}, {@link #equals(Object)} and {@link #toString()}
+ * behave like {@link Arrays#hashCode(int[])}, {@link Arrays#equals(int[], int[])}
+ * and {@link Arrays#toString(int[])} on the corresponding array.</p>
+ * @author vincent
+ *
+ */
+public final class PersistentRegisters {
+	/**
+	 * Maximum number of changes stacked on top of a flat array
+	 */
+	public static final int MAX_CHAIN_LENGTH = 8;
+
+	//Flat vectors have values, derived ones have a parent and a changed slot
+	private final int[] values;
+	private final PersistentRegisters parent;
+	private final int register;
+	private final int symbol;
+	private final int chainLength;
+
+	/**
+	 * 31^(size-1-r), the weight of register r in the hash, shared by a whole family
+	 */
+	private final int[] weights;
+	private final int hash;
+
+	private PersistentRegisters(int[] values, int[] weights) {
+		this.values = values;
+		this.parent = null;
+		this.register = -1;
+		this.symbol = 0;
+		this.chainLength = 0;
+		this.weights = weights;
+		this.hash = Arrays.hashCode(values);
+	}
+
+	private PersistentRegisters(PersistentRegisters parent, int register, int symbol, int old) {
+		this.values = null;
+		this.parent = parent;
+		this.register = register;
+		this.symbol = symbol;
+		this.chainLength = parent.chainLength+1;
+		this.weights = parent.weights;
+		this.hash = parent.hash + (symbol-old)*weights[register];
+	}
+
+	/**
+	 * @param registers
+	 * @return a persistent copy of the given registers
+	 */
+	public static PersistentRegisters of(int[] registers) {
+		int[] weights = new int[registers.length];
+		int w = 1;
+		for(int r = registers.length-1; r >= 0; r--) {
+			weights[r] = w;
+			w *= 31;
+		}
+
+		return new PersistentRegisters(registers.clone(), weights);
+	}
+
+	//Access methods
+	public int size() {
+		return weights.length;
+	}
+
+	public int get(int r) {
+		PersistentRegisters v = this;
+		while(v.values == null) {
+			if(v.register == r)
+				return v.symbol;
+			v = v.parent;
+		}
+		return v.values[r];
+	}
+
+	/**
+	 * @param symbol
+	 * @return the lowest register containing symbol, or -1
+	 */
+	public int indexOf(int symbol) {
+		//Registers changed along the chain
+		int found = Integer.MAX_VALUE;
+		PersistentRegisters v = this;
+		for(; v.values == null; v = v.parent) {
+			if(v.symbol == symbol && v.register < found && !isShadowed(v))
+				found = v.register;
+		}
+
+		//Registers still holding their flat value
+		for(int r = 0; r < found && r < v.values.length; r++) {
+			if(v.values[r] == symbol && !isChanged(r, v))
+				return r;
+		}
+
+		return found == Integer.MAX_VALUE ? -1 : found;
+	}
+
+	/**
+	 * @param r
+	 * @param symbol
+	 * @return a vector where register r holds symbol, sharing its structure with this one
+	 */
+	public PersistentRegisters set(int r, int symbol) {
+		int old = get(r);
+		if(old == symbol)
+			return this;
+
+		if(chainLength < MAX_CHAIN_LENGTH)
+			return new PersistentRegisters(this, r, symbol, old);
+
+		int[] flat = toArray();
+		flat[r] = symbol;
+		return new PersistentRegisters(flat, weights);
+	}
+
+	public int[] toArray() {
+		PersistentRegisters v = this;
+		while(v.values == null)
+			v = v.parent;
+
+		int[] result = v.values.clone();
+		for(int r = 0; r < result.length; r++) {
+			if(isChanged(r, v))
+				result[r] = get(r);
+		}
+		return result;
+	}
+
+	//Tools
+	/**
+	 * @param change a change in the chain of this vector
+	 * @return true if a more recent change overwrites the same register
+	 */
+	private boolean isShadowed(PersistentRegisters change) {
+		for(PersistentRegisters v = this; v != change; v = v.parent) {
+			if(v.register == change.register)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @param r
+	 * @param flat the flat vector at the bottom of this vector's chain
+	 * @return true if register r was changed since flat
+	 */
+	private boolean isChanged(int r, PersistentRegisters flat) {
+		for(PersistentRegisters v = this; v != flat; v = v.parent) {
+			if(v.register == r)
+				return true;
+		}
+		return false;
+	}
+
+	//Generics
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		PersistentRegisters other = (PersistentRegisters) obj;
+		if (hash != other.hash || size() != other.size())
+			return false;
+		if (values != null && other.values != null)
+			return Arrays.equals(values, other.values);
+		for(int r = 0; r < size(); r++) {
+			if(get(r) != other.get(r))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+}
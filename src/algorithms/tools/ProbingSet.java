@@ -0,0 +1,134 @@
+package algorithms.tools;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>A set of objects in an open-addressed table (see {@link OpenAddressing}),
+ * for frontiers that keep their nodes unique: equal elements are dropped on
+ * insertion, and elements are removed by identity, without boxing or
+ * allocating entries.</p>
+ * @author vincent
+ *
+ * @param <E>
+ */
+public final class ProbingSet<E> implements Iterable<E> {
+	private static final int MIN_CAPACITY = 16;
+
+	//Elements, null for free slots
+	private Object[] elements = new Object[MIN_CAPACITY];
+	private int shift = OpenAddressing.shift(MIN_CAPACITY);
+	private int size = 0;
+
+	private final OpenAddressing.Entries entries = new OpenAddressing.Entries() {
+		@Override
+		public boolean isFree(int slot) {
+			return elements[slot] == null;
+		}
+
+		@Override
+		public int home(int slot) {
+			return OpenAddressing.slot(elements[slot].hashCode(), shift);
+		}
+
+		@Override
+		public void move(int from, int to) {
+			elements[to] = elements[from];
+		}
+
+		@Override
+		public void free(int slot) {
+			elements[slot] = null;
+		}
+	};
+
+	/**
+	 * @param e
+	 * @return false if an equal element is already in the set
+	 */
+	public boolean add(E e) {
+		int mask = elements.length-1;
+		int slot = OpenAddressing.slot(e.hashCode(), shift);
+		for(Object other; (other = elements[slot]) != null; slot = (slot+1) & mask) {
+			if(other.equals(e))
+				return false;
+		}
+
+		elements[slot] = e;
+		if(2*(++size) > elements.length)
+			rehash();
+		return true;
+	}
+
+	/**
+	 * @param e
+	 * @return false if e itself was not in the set
+	 */
+	public boolean remove(E e) {
+		int mask = elements.length-1;
+		int slot = OpenAddressing.slot(e.hashCode(), shift);
+		for(; elements[slot] != e; slot = (slot+1) & mask) {
+			if(elements[slot] == null)
+				return false;
+		}
+
+		OpenAddressing.remove(entries, slot, mask);
+		size--;
+		return true;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			private int slot = advance(0);
+
+			private int advance(int from) {
+				while(from < elements.length && elements[from] == null)
+					from++;
+				return from;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return slot < elements.length;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public E next() {
+				if(!hasNext())
+					throw new NoSuchElementException();
+				E e = (E) elements[slot];
+				slot = advance(slot+1);
+				return e;
+			}
+		};
+	}
+
+	//Tools
+	/**
+	 * Double the number of slots and place all elements again
+	 */
+	private void rehash() {
+		Object[] old = elements;
+		elements = new Object[2*old.length];
+		shift--;
+		int mask = elements.length-1;
+		for(Object e : old) {
+			if(e == null)
+				continue;
+			int slot = OpenAddressing.slot(e.hashCode(), shift);
+			while(elements[slot] != null)
+				slot = (slot+1) & mask;
+			elements[slot] = e;
+		}
+	}
+}
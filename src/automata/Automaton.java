@@ -2,4 +2,11 @@ package automata;
 
 public abstract class Automaton {
 
+	/**
+	 * An automaton that is shared between threads (several words or traces
+	 * checked at the same time) must be frozen first: the frozen version
+	 * cannot be modified, and is safe to publish to other threads.
+	 * @return an immutable version of this automaton, of the same kind
+	 */
+	public abstract Automaton freeze();
 }
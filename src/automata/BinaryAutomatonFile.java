@@ -0,0 +1,222 @@
+package automata;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+
+/**
+ * <p>The binary automaton format (.fmb), a compiled counterpart of the .fma
+ * text format which is loaded by memory-mapping the file.</p>
+ *
+ * <p>Layout (big endian):
+ * <ul>
+ * <li>header: magic "FMB1", version, number of states, registers, labels and
+ * transitions, initial state id</li>
+ * <li>state table: for each state, a final flag byte, its rho value (-1 for none)
+ * and its name (length, then UTF-8 bytes)</li>
+ * <li>register table: the initial register values (-1 for empty)</li>
+ * <li>transition arrays: the offsets and successors of the {@link TransitionTable}</li>
+ * </ul></p>
+ * @author vincent
+ *
+ */
+public class BinaryAutomatonFile {
+	public static final int MAGIC = 0x464D4231; //"FMB1"
+	public static final int VERSION = 1;
+	public static final String EXTENSION = "fmb";
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int HEADER_SIZE = 7*4;
+
+	//Contents
+	public final TransitionTable table;
+	public final int initialState;
+	public final int[] registers;
+
+	private BinaryAutomatonFile(TransitionTable table, int initialState, int[] registers) {
+		this.table = table;
+		this.initialState = initialState;
+		this.registers = registers;
+	}
+
+	//Paths
+	/**
+	 * @param fmaPath
+	 * @return the path of the binary file corresponding to a text automaton
+	 */
+	public static String binaryPath(String fmaPath) {
+		if(fmaPath.endsWith("." + EXTENSION))
+			return fmaPath;
+		if(fmaPath.endsWith(".fma"))
+			return fmaPath.substring(0, fmaPath.length()-3) + EXTENSION;
+		return fmaPath + "." + EXTENSION;
+	}
+
+	/**
+	 * The binary file should be preferred if it exists and is at least as
+	 * recent as the text file (or if there is no text file at all).
+	 * @param fmaPath
+	 * @return
+	 */
+	public static boolean isUpToDate(String fmaPath) {
+		if(fmaPath.endsWith("." + EXTENSION))
+			return new File(fmaPath).exists();
+
+		File binary = new File(binaryPath(fmaPath));
+		File text = new File(fmaPath);
+
+		return binary.exists() && (!text.exists() || binary.lastModified() >= text.lastModified());
+	}
+
+	//Reading
+	/**
+	 * Load a binary automaton, checking it fully: a damaged or truncated file
+	 * is reported as a {@link ParseException}, so that loaders can fall back
+	 * to the text file.
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 * @throws ParseException
+	 */
+	public static BinaryAutomatonFile load(String path) throws IOException, ParseException {
+		File file = new File(path);
+		if(!file.exists())
+			throw new FileNotFoundException(path);
+
+		try(RandomAccessFile raf = new RandomAccessFile(file, "r");
+			FileChannel channel = raf.getChannel()) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			//Header
+			if(buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC)
+				throw new ParseException("Not a binary automaton file: " + path, 0);
+			int version = buffer.getInt();
+			if(version != VERSION)
+				throw new ParseException("Unsupported binary automaton version " + version
+										 + " (expected " + VERSION + ")", 4);
+
+			int numStates = buffer.getInt();
+			int numRegisters = buffer.getInt();
+			int numLabels = buffer.getInt();
+			int numTransitions = buffer.getInt();
+			int initialState = buffer.getInt();
+
+			check(numStates > 0 && numRegisters >= 0 && numLabels >= 0 && numTransitions >= 0,
+				  "Negative counts", buffer);
+			check(initialState >= 0 && initialState < numStates, "Initial state out of range", buffer);
+			//Each state takes at least 7 bytes, the tables 4 bytes per entry
+			long numOffsets = (long) numStates*numLabels + 1;
+			check(7L*numStates + 4L*(numRegisters + numOffsets + numTransitions) <= buffer.remaining(),
+				  "Truncated file", buffer);
+
+			//State table
+			State[] states = new State[numStates];
+			int[] rho = new int[numStates];
+			for(int q = 0; q < numStates; q++) {
+				check(buffer.remaining() >= 7, "Truncated state table", buffer);
+				boolean isFinal = buffer.get() != 0;
+				rho[q] = buffer.getInt();
+				check(rho[q] >= -1 && rho[q] < numRegisters, "Rho of state " + q + " out of range", buffer);
+				byte[] name = new byte[buffer.getShort() & 0xFFFF];
+				check(buffer.remaining() >= name.length, "Truncated state table", buffer);
+				buffer.get(name);
+
+				states[q] = new State(new String(name, UTF8), isFinal, q);
+			}
+
+			//The names may have eaten into the tables
+			check(4L*(numRegisters + numOffsets + numTransitions) == buffer.remaining(),
+				  "Tables do not match the counts", buffer);
+
+			//Register table
+			int[] registers = new int[numRegisters];
+			buffer.asIntBuffer().get(registers);
+			buffer.position(buffer.position() + 4*numRegisters);
+
+			//Transition arrays
+			int[] offsets = new int[(int) numOffsets];
+			buffer.asIntBuffer().get(offsets);
+			buffer.position(buffer.position() + 4*offsets.length);
+			check(offsets[0] == 0 && offsets[offsets.length-1] == numTransitions,
+				  "Offsets do not span the transitions", buffer);
+			for(int slot = 0; slot+1 < offsets.length; slot++)
+				check(offsets[slot] <= offsets[slot+1], "Decreasing offset at slot " + slot, buffer);
+
+			int[] successors = new int[numTransitions];
+			buffer.asIntBuffer().get(successors);
+			for(int successor : successors)
+				check(successor >= 0 && successor < numStates, "Successor " + successor + " out of range", buffer);
+
+			return new BinaryAutomatonFile(new TransitionTable(states, rho, numLabels, offsets, successors),
+										   initialState, registers);
+		}
+	}
+
+	private static void check(boolean condition, String message, ByteBuffer buffer) throws ParseException {
+		if(!condition)
+			throw new ParseException(message, buffer.position());
+	}
+
+	//Writing
+	/**
+	 * Write the compiled form of an automaton to a binary file
+	 * @param ra
+	 * @param path
+	 * @throws IOException
+	 */
+	public static void write(RegisterAutomaton ra, String path) throws IOException {
+		TransitionTable table = ra.getTransitionTable();
+		State[] states = ra.getStates();
+		int[] registers = ra.getInitialRegisters();
+		int[] offsets = table.getOffsets();
+		int[] successors = table.getSuccessors();
+
+		//Compute the size of the file
+		byte[][] names = new byte[states.length][];
+		long size = HEADER_SIZE;
+		for(int q = 0; q < states.length; q++) {
+			names[q] = states[q].name.getBytes(UTF8);
+			if(names[q].length > 0xFFFF)
+				throw new IOException("State name too long: " + states[q].name);
+			size += 1 + 4 + 2 + names[q].length;
+		}
+		size += 4L*(registers.length + offsets.length + successors.length);
+
+		File file = new File(path);
+		if(file.exists() && !file.delete())
+			throw new IOException("Could not replace " + path);
+
+		try(RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			FileChannel channel = raf.getChannel()) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(states.length);
+			buffer.putInt(registers.length);
+			buffer.putInt(table.getNumLabels());
+			buffer.putInt(successors.length);
+			buffer.putInt(ra.getInitialState().id);
+
+			for(int q = 0; q < states.length; q++) {
+				buffer.put((byte) (states[q].isFinal ? 1 : 0));
+				buffer.putInt(table.getRho(q));
+				buffer.putShort((short) names[q].length);
+				buffer.put(names[q]);
+			}
+
+			for(int r : registers)
+				buffer.putInt(r);
+			for(int o : offsets)
+				buffer.putInt(o);
+			for(int s : successors)
+				buffer.putInt(s);
+		}
+	}
+}
@@ -0,0 +1,415 @@
+package automata;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>A linear-time parser for the .fma text format.</p>
+ *
+ * <p>The file is read as a stream of bytes and tokenised in place (no
+ * <code>String.split</code>, no string per token). State names are resolved
+ * through an open-addressing hash index, and transitions are collected in
+ * flat arrays which are turned into a {@link TransitionTable} by a counting
+ * sort, keeping the order of the file for each (state, label).</p>
+ *
+ * <p>Format reminder:
+ * <ul>
+ * <li>states, one per line: <code>name [rho|_ [F]]</code>, then <code>-</code></li>
+ * <li>the initial state name</li>
+ * <li>the initial registers (<code>#</code> for empty), then <code>-</code></li>
+ * <li>transitions, one per line: <code>source labels destination</code>,
+ * where labels are <code>*</code> or a comma-separated list</li>
+ * </ul>
+ * Registers and labels are numbered from 1 in the file. Lines starting with
+ * <code>--</code> are comments.</p>
+ * @author vincent
+ *
+ */
+public class FMAParser {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int MAX_TOKENS = 3;
+
+	//Input
+	private final String path;
+	private InputStream in;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int bufferPos = 0;
+	private int bufferEnd = 0;
+
+	//Current line and its tokens
+	private byte[] line = new byte[256];
+	private int lineLength = 0;
+	private int lineNumber = 0;
+	private final int[] tokenStart = new int[MAX_TOKENS+1];
+	private final int[] tokenEnd = new int[MAX_TOKENS+1];
+	private int numTokens = 0;
+
+	//State index
+	private final List<State> stateList = new ArrayList<>();
+	private final List<byte[]> stateNames = new ArrayList<>();
+	private int[] rhos = new int[16];
+	private int[] index = new int[16];
+
+	//Transitions
+	private int[] sources = new int[256];
+	private int[] labels = new int[256];
+	private int[] destinations = new int[256];
+	private int numTransitions = 0;
+	private int numLabels = 0;
+
+	//Results
+	private State[] states;
+	private int initialState;
+	private int[] registers;
+	private TransitionTable table;
+	private long parseNanos = 0L;
+
+	public FMAParser(String path) {
+		this.path = path;
+		Arrays.fill(index, -1);
+	}
+
+	/**
+	 * Parse the file. Results are available through the accessors.
+	 * @throws FileNotFoundException
+	 * @throws ParseException
+	 */
+	public void parse() throws FileNotFoundException, ParseException {
+		long start = System.nanoTime();
+		in = new FileInputStream(path);
+
+		try {
+			parseStates();
+			parseRegisters();
+			parseTransitions();
+		} catch (IOException e) {
+			throw new ParseException("Could not read " + path + ": " + e.getMessage(), lineNumber);
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {}
+		}
+
+		table = buildTable();
+		parseNanos = System.nanoTime() - start;
+	}
+
+	//Sections
+	private void parseStates() throws IOException, ParseException {
+		while(nextLine()) {
+			switch(numTokens) {
+			case 1:
+				if(tokenIs(0, "-")) {
+					if(stateList.isEmpty())
+						throw new ParseException("No states found in automaton description", lineNumber);
+					states = new State[stateList.size()];
+					stateList.toArray(states);
+					return;
+				}
+				addState(0, -1, false);
+				break;
+			case 2:
+				addState(0, parseInt(1)-1, false);
+				break;
+			case 3:
+				addState(0, tokenIs(1, "_") ? -1 : parseInt(1)-1, tokenIs(2, "F"));
+				break;
+			default:
+				throw new ParseException("Unrecognised line", lineNumber);
+			}
+		}
+
+		throw new ParseException("File incomplete", lineNumber);
+	}
+
+	private void parseRegisters() throws IOException, ParseException {
+		if(!nextLine())
+			throw new ParseException("Expected declaration of initial state", lineNumber);
+		initialState = lookup(tokenStart[0], tokenEnd[0]);
+		if(initialState < 0)
+			throw new ParseException("Could not resolve reference to initial state " + token(0), lineNumber);
+
+		if(!nextLine())
+			throw new ParseException("Incomplete source file: no registers", lineNumber);
+		//Register lines may hold any number of tokens
+		List<Integer> values = new ArrayList<>();
+		int pos = 0;
+		while(pos < lineLength) {
+			while(pos < lineLength && isBlank(line[pos]))
+				pos++;
+			int end = pos;
+			while(end < lineLength && !isBlank(line[end]))
+				end++;
+			if(end > pos)
+				values.add(end == pos+1 && line[pos] == '#' ? -1 : parseInt(pos, end));
+			pos = end;
+		}
+		registers = new int[values.size()];
+		for(int i = 0; i < registers.length; i++)
+			registers[i] = values.get(i);
+
+		if(!nextLine() || numTokens != 1 || !tokenIs(0, "-"))
+			throw new ParseException("Expected '-' after register declaration", lineNumber);
+	}
+
+	private void parseTransitions() throws IOException, ParseException {
+		while(nextLine()) {
+			if(numTokens != 3)
+				throw new ParseException("Expected three tokens", lineNumber);
+
+			//Lookup states
+			int state1 = lookup(tokenStart[0], tokenEnd[0]);
+			int state2 = lookup(tokenStart[2], tokenEnd[2]);
+			if(state1 < 0 || state2 < 0)
+				throw new ParseException("Could not resolve reference to states " + token(0) + ", " + token(2), lineNumber);
+
+			//Handle multi-labels
+			if(tokenIs(1, "*")) {
+				for(int l = 0; l < registers.length; l++)
+					addTransition(state1, l, state2);
+			} else {
+				int pos = tokenStart[1];
+				while(pos < tokenEnd[1]) {
+					int end = pos;
+					while(end < tokenEnd[1] && line[end] != ',')
+						end++;
+					addTransition(state1, parseInt(pos, end)-1, state2);
+					pos = end+1;
+				}
+			}
+		}
+	}
+
+	//Building
+	private void addState(int nameToken, int rho, boolean isFinal) throws ParseException {
+		int id = stateList.size();
+		byte[] name = Arrays.copyOfRange(line, tokenStart[nameToken], tokenEnd[nameToken]);
+		//References to a duplicated name resolve to its first declaration
+		boolean duplicate = lookup(tokenStart[nameToken], tokenEnd[nameToken]) >= 0;
+
+		stateList.add(new State(new String(name, UTF8), isFinal, id));
+		stateNames.add(name);
+		if(id >= rhos.length)
+			rhos = Arrays.copyOf(rhos, 2*rhos.length);
+		rhos[id] = rho;
+
+		//Index the name
+		if(2*(id+1) > index.length)
+			rehash();
+		if(!duplicate)
+			insert(id);
+	}
+
+	private void addTransition(int source, int label, int destination) {
+		//Labels below 1 designate no register and can never be taken
+		if(label < 0)
+			return;
+
+		if(numTransitions == sources.length) {
+			sources = Arrays.copyOf(sources, 2*numTransitions);
+			labels = Arrays.copyOf(labels, 2*numTransitions);
+			destinations = Arrays.copyOf(destinations, 2*numTransitions);
+		}
+
+		sources[numTransitions] = source;
+		labels[numTransitions] = label;
+		destinations[numTransitions] = destination;
+		numTransitions++;
+		numLabels = Math.max(numLabels, label+1);
+	}
+
+	/**
+	 * Counting sort of the transitions by (source, label), stable
+	 * @return
+	 */
+	private TransitionTable buildTable() {
+		int[] offsets = new int[states.length*numLabels+1];
+		for(int t = 0; t < numTransitions; t++)
+			offsets[sources[t]*numLabels+labels[t]+1]++;
+		for(int slot = 0; slot < states.length*numLabels; slot++)
+			offsets[slot+1] += offsets[slot];
+
+		int[] fill = Arrays.copyOf(offsets, offsets.length-1);
+		int[] successors = new int[numTransitions];
+		for(int t = 0; t < numTransitions; t++)
+			successors[fill[sources[t]*numLabels+labels[t]]++] = destinations[t];
+
+		return new TransitionTable(states, Arrays.copyOf(rhos, states.length), numLabels, offsets, successors);
+	}
+
+	//Name index
+	private int lookup(int from, int to) {
+		int mask = index.length-1;
+		for(int slot = hash(line, from, to) & mask; index[slot] >= 0; slot = (slot+1) & mask) {
+			byte[] name = stateNames.get(index[slot]);
+			if(name.length == to-from && rangeEquals(name, from))
+				return index[slot];
+		}
+		return -1;
+	}
+
+	private void insert(int id) {
+		byte[] name = stateNames.get(id);
+		int mask = index.length-1;
+		int slot = hash(name, 0, name.length) & mask;
+		while(index[slot] >= 0)
+			slot = (slot+1) & mask;
+		index[slot] = id;
+	}
+
+	private void rehash() {
+		int[] oldIndex = index;
+		index = new int[2*oldIndex.length];
+		Arrays.fill(index, -1);
+		for(int id : oldIndex) {
+			if(id >= 0)
+				insert(id);
+		}
+	}
+
+	private static int hash(byte[] bytes, int from, int to) {
+		int h = 0x811C9DC5;
+		for(int i = from; i < to; i++)
+			h = (h ^ bytes[i]) * 0x01000193;
+		return h ^ (h >>> 16);
+	}
+
+	private boolean rangeEquals(byte[] name, int from) {
+		for(int i = 0; i < name.length; i++) {
+			if(name[i] != line[from+i])
+				return false;
+		}
+		return true;
+	}
+
+	//Tokenizer
+	/**
+	 * Read the next line which is neither blank nor a comment, and
+	 * find its first tokens.
+	 * @return false at the end of the file
+	 * @throws IOException
+	 */
+	private boolean nextLine() throws IOException {
+		while(readLine()) {
+			lineNumber++;
+			if(lineLength >= 2 && line[0] == '-' && line[1] == '-')
+				continue;
+
+			numTokens = 0;
+			int pos = 0;
+			while(numTokens <= MAX_TOKENS) {
+				while(pos < lineLength && isBlank(line[pos]))
+					pos++;
+				if(pos == lineLength)
+					break;
+				tokenStart[numTokens] = pos;
+				while(pos < lineLength && !isBlank(line[pos]))
+					pos++;
+				tokenEnd[numTokens++] = pos;
+			}
+
+			if(numTokens > 0)
+				return true;
+		}
+		return false;
+	}
+
+	private boolean readLine() throws IOException {
+		lineLength = 0;
+		while(true) {
+			if(bufferPos == bufferEnd) {
+				bufferEnd = in.read(buffer, 0, buffer.length);
+				bufferPos = 0;
+				if(bufferEnd <= 0) {
+					bufferEnd = 0;
+					return lineLength > 0;
+				}
+			}
+
+			byte b = buffer[bufferPos++];
+			if(b == '\n')
+				return true;
+			if(b == '\r')
+				continue;
+
+			if(lineLength == line.length)
+				line = Arrays.copyOf(line, 2*line.length);
+			line[lineLength++] = b;
+		}
+	}
+
+	private static boolean isBlank(byte b) {
+		return b == ' ' || b == '\t';
+	}
+
+	private boolean tokenIs(int token, String s) {
+		if(tokenEnd[token]-tokenStart[token] != s.length())
+			return false;
+		for(int i = 0; i < s.length(); i++) {
+			if(line[tokenStart[token]+i] != s.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	private String token(int token) {
+		return new String(line, tokenStart[token], tokenEnd[token]-tokenStart[token], UTF8);
+	}
+
+	private int parseInt(int token) throws ParseException {
+		return parseInt(tokenStart[token], tokenEnd[token]);
+	}
+
+	private int parseInt(int from, int to) throws ParseException {
+		boolean negative = from < to && line[from] == '-';
+		int pos = negative ? from+1 : from;
+		if(pos == to)
+			throw new ParseException("Expected a number", lineNumber);
+
+		int value = 0;
+		for(; pos < to; pos++) {
+			int digit = line[pos] - '0';
+			if(digit < 0 || digit > 9)
+				throw new ParseException("Expected a number, got " + new String(line, from, to-from, UTF8), lineNumber);
+			value = 10*value + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	//Results
+	public State[] getStates() {
+		return states;
+	}
+	public int getInitialState() {
+		return initialState;
+	}
+	public int[] getRegisters() {
+		return registers;
+	}
+	public TransitionTable getTable() {
+		return table;
+	}
+	public int getLineCount() {
+		return lineNumber;
+	}
+	/**
+	 * @return the time spent in {@link #parse()}, in milliseconds
+	 */
+	public long getParseTime() {
+		return parseNanos / 1000000L;
+	}
+	/**
+	 * @return the parse throughput, in lines per second
+	 */
+	public double getThroughput() {
+		return parseNanos == 0L ? Double.POSITIVE_INFINITY : 1e9*lineNumber/parseNanos;
+	}
+}
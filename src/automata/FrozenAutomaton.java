@@ -0,0 +1,80 @@
+package automata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * <p>An immutable snapshot of a register automaton, see {@link RegisterAutomaton#freeze()}.</p>
+ * <p>Everything is held in final fields and built in the constructor (including
+ * the map views that other automata only build on demand), so a frozen automaton
+ * can be handed to other threads without synchronisation. Accessors never return
+ * anything that could be used to modify it.</p>
+ * @author vincent
+ *
+ */
+public final class FrozenAutomaton extends RegisterAutomaton {
+	private final State[] frozenStates;
+	private final State frozenInitialState;
+	private final int[] frozenRegisters;
+	private final TransitionTable frozenTable;
+	private final Map<State, Map<Integer, List<State>>> frozenMu;
+
+	FrozenAutomaton(RegisterAutomaton ra) {
+		super(ra.getTransitionTable(), ra.getInitialState().id, ra.getInitialRegisters());
+
+		//The table and its states are immutable already
+		frozenTable = ra.getTransitionTable();
+		frozenStates = new State[frozenTable.getNumStates()];
+		for(int q = 0; q < frozenStates.length; q++)
+			frozenStates[q] = frozenTable.getState(q);
+		frozenInitialState = frozenStates[ra.getInitialState().id];
+		frozenRegisters = ra.getInitialRegisters();
+
+		//Read-only map views
+		Map<State, Map<Integer, List<State>>> mu = new HashMap<>();
+		for(Entry<State, Map<Integer, List<State>>> e : frozenTable.toMap().entrySet()) {
+			Map<Integer, List<State>> transitions = new HashMap<>();
+			for(Entry<Integer, List<State>> t : e.getValue().entrySet())
+				transitions.put(t.getKey(), Collections.unmodifiableList(new ArrayList<>(t.getValue())));
+			mu.put(e.getKey(), Collections.unmodifiableMap(transitions));
+		}
+		frozenMu = Collections.unmodifiableMap(mu);
+	}
+
+	@Override
+	public FrozenAutomaton freeze() {
+		return this;
+	}
+
+	@Override
+	public RegisterAutomaton derive(RegisterAutomaton base) {
+		//Rewriting a frozen automaton gives a frozen automaton
+		return base.freeze();
+	}
+
+	//Access methods
+	@Override
+	public State getInitialState() {
+		return frozenInitialState;
+	}
+	@Override
+	public State[] getStates() {
+		return frozenStates.clone();
+	}
+	@Override
+	public TransitionTable getTransitionTable() {
+		return frozenTable;
+	}
+	@Override
+	public Map<State, Map<Integer, List<State>>> getTransitions() {
+		return frozenMu;
+	}
+	@Override
+	public int[] getInitialRegisters() {
+		return frozenRegisters.clone();
+	}
+}
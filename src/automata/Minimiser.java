@@ -0,0 +1,294 @@
+package automata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Reduces register automata before they are searched:
+ * <ul>
+ * <li>useless states (not reachable from the initial state, or from which no
+ * final state can be reached) are removed with their transitions,</li>
+ * <li>equivalent states are merged: two states are equivalent if they agree
+ * on finality and on rho, and if for every register label their successors
+ * fall into the same classes (a bisimulation).</li>
+ * </ul></p>
+ * <p>Reachability ignores the contents of registers, so every state that can
+ * take part in an accepting run is kept and the language is preserved, both
+ * for membership (whatever the acceptance semantics) and for emptiness.
+ * Registers and labels are left untouched.</p>
+ * @author vincent
+ *
+ */
+public class Minimiser {
+	private final TransitionTable t;
+	private final int initialState;
+
+	//Results
+	private TransitionTable reducedTable;
+	private int reducedInitialState;
+	private int[] classes;
+
+	private Minimiser(TransitionTable t, int initialState) {
+		this.t = t;
+		this.initialState = initialState;
+	}
+
+	/**
+	 * @param ra
+	 * @return an automaton of the same kind as ra, without useless states
+	 * and with equivalent states merged
+	 */
+	public static RegisterAutomaton minimise(RegisterAutomaton ra) {
+		Minimiser m = new Minimiser(ra.getTransitionTable(), ra.getInitialState().id);
+		m.reduce(true);
+		return ra.derive(new RegisterAutomaton(m.reducedTable, m.reducedInitialState, ra.getInitialRegisters()));
+	}
+
+	/**
+	 * @param ra
+	 * @return an automaton of the same kind as ra, without useless states
+	 */
+	public static RegisterAutomaton trim(RegisterAutomaton ra) {
+		Minimiser m = new Minimiser(ra.getTransitionTable(), ra.getInitialState().id);
+		m.reduce(false);
+		return ra.derive(new RegisterAutomaton(m.reducedTable, m.reducedInitialState, ra.getInitialRegisters()));
+	}
+
+	//Passes
+	private void reduce(boolean merge) {
+		boolean[] useful = findUsefulStates();
+
+		//The initial state is always kept, alone and without transitions if the language is empty
+		boolean empty = !useful[initialState];
+		if(empty) {
+			Arrays.fill(useful, false);
+			useful[initialState] = true;
+		}
+
+		classes = merge ? findClasses(useful) : identityClasses(useful);
+		build(empty);
+	}
+
+	/**
+	 * @return states that are both reachable and co-reachable
+	 */
+	private boolean[] findUsefulStates() {
+		int n = t.getNumStates();
+		int numLabels = t.getNumLabels();
+
+		//Forward
+		boolean[] reachable = new boolean[n];
+		int[] queue = new int[n];
+		int head = 0, tail = 0;
+		reachable[initialState] = true;
+		queue[tail++] = initialState;
+		while(head < tail) {
+			int q = queue[head++];
+			if(numLabels == 0)
+				continue;
+			int end = t.successorsEnd(q, numLabels-1);
+			for(int i = t.successorsStart(q, 0); i < end; i++) {
+				int s = t.getSuccessor(i);
+				if(!reachable[s]) {
+					reachable[s] = true;
+					queue[tail++] = s;
+				}
+			}
+		}
+
+		//Reverse edges, counting sort by target
+		int[] predecessorOffsets = new int[n+1];
+		for(int i = 0; i < t.countTransitions(); i++)
+			predecessorOffsets[t.getSuccessor(i)+1]++;
+		for(int q = 0; q < n; q++)
+			predecessorOffsets[q+1] += predecessorOffsets[q];
+		int[] predecessors = new int[t.countTransitions()];
+		int[] fill = Arrays.copyOf(predecessorOffsets, n);
+		for(int q = 0; q < n && numLabels > 0; q++) {
+			int end = t.successorsEnd(q, numLabels-1);
+			for(int i = t.successorsStart(q, 0); i < end; i++)
+				predecessors[fill[t.getSuccessor(i)]++] = q;
+		}
+
+		//Backward, from final states
+		boolean[] coreachable = new boolean[n];
+		head = 0;
+		tail = 0;
+		for(int q = 0; q < n; q++) {
+			if(t.isFinal(q)) {
+				coreachable[q] = true;
+				queue[tail++] = q;
+			}
+		}
+		while(head < tail) {
+			int q = queue[head++];
+			for(int i = predecessorOffsets[q]; i < predecessorOffsets[q+1]; i++) {
+				int p = predecessors[i];
+				if(!coreachable[p]) {
+					coreachable[p] = true;
+					queue[tail++] = p;
+				}
+			}
+		}
+
+		boolean[] useful = new boolean[n];
+		for(int q = 0; q < n; q++)
+			useful[q] = reachable[q] && coreachable[q];
+		return useful;
+	}
+
+	private int[] identityClasses(boolean[] useful) {
+		int[] c = new int[useful.length];
+		for(int q = 0; q < c.length; q++)
+			c[q] = useful[q] ? q : -1;
+		return c;
+	}
+
+	/**
+	 * Partition refinement: start from (finality, rho) classes and split them
+	 * according to the classes of successors on each label, until stable.
+	 * @param useful
+	 * @return the class of each useful state, -1 for others
+	 */
+	private int[] findClasses(boolean[] useful) {
+		int n = t.getNumStates();
+		int[] c = new int[n];
+		int count = 0;
+
+		Map<List<Integer>, Integer> ids = new HashMap<>();
+		for(int q = 0; q < n; q++) {
+			if(!useful[q]) {
+				c[q] = -1;
+				continue;
+			}
+			count = classOf(ids, Arrays.asList(t.isFinal(q) ? 1 : 0, t.getRho(q)), c, q, count);
+		}
+
+		while(true) {
+			int[] next = new int[n];
+			int nextCount = 0;
+			ids.clear();
+			for(int q = 0; q < n; q++) {
+				if(c[q] < 0) {
+					next[q] = -1;
+					continue;
+				}
+				nextCount = classOf(ids, signature(q, c), next, q, nextCount);
+			}
+
+			//Refinement only splits classes
+			if(nextCount == count)
+				return c;
+			c = next;
+			count = nextCount;
+		}
+	}
+
+	private static int classOf(Map<List<Integer>, Integer> ids, List<Integer> key, int[] c, int q, int count) {
+		Integer id = ids.get(key);
+		if(id == null) {
+			id = count++;
+			ids.put(key, id);
+		}
+		c[q] = id;
+		return count;
+	}
+
+	/**
+	 * @param q
+	 * @param c
+	 * @return the class of q followed, for each label, by the sorted
+	 * classes of its useful successors (labels are separated by -1)
+	 */
+	private List<Integer> signature(int q, int[] c) {
+		List<Integer> sig = new ArrayList<>();
+		sig.add(c[q]);
+		for(int l = 0; l < t.getNumLabels(); l++) {
+			for(int s : successorClasses(q, l, c))
+				sig.add(s);
+			sig.add(-1);
+		}
+		return sig;
+	}
+
+	/**
+	 * @param q
+	 * @param l
+	 * @param c
+	 * @return the distinct classes of the useful successors of q on l, sorted
+	 */
+	private int[] successorClasses(int q, int l, int[] c) {
+		int start = t.successorsStart(q, l);
+		int end = t.successorsEnd(q, l);
+		int[] result = new int[end-start];
+		int size = 0;
+		for(int i = start; i < end; i++) {
+			int s = c[t.getSuccessor(i)];
+			if(s >= 0)
+				result[size++] = s;
+		}
+
+		Arrays.sort(result, 0, size);
+		int distinct = 0;
+		for(int i = 0; i < size; i++) {
+			if(distinct == 0 || result[distinct-1] != result[i])
+				result[distinct++] = result[i];
+		}
+		return Arrays.copyOf(result, distinct);
+	}
+
+	/**
+	 * Build the reduced table: classes are renumbered in order of their
+	 * first state, which also names the merged state.
+	 * @param empty true if no transition should be kept
+	 */
+	private void build(boolean empty) {
+		int n = t.getNumStates();
+		int numLabels = t.getNumLabels();
+
+		//Renumber classes, pick representatives
+		int[] newId = new int[n];
+		Arrays.fill(newId, -1);
+		int[] representatives = new int[n];
+		int size = 0;
+		for(int q = 0; q < n; q++) {
+			if(classes[q] >= 0 && newId[classes[q]] < 0) {
+				newId[classes[q]] = size;
+				representatives[size++] = q;
+			}
+		}
+		int[] c = new int[n];
+		for(int q = 0; q < n; q++)
+			c[q] = classes[q] < 0 ? -1 : newId[classes[q]];
+
+		//States and rho
+		State[] states = new State[size];
+		int[] rho = new int[size];
+		for(int k = 0; k < size; k++) {
+			int q = representatives[k];
+			states[k] = new State(t.getState(q).name, t.isFinal(q), k);
+			rho[k] = t.getRho(q);
+		}
+
+		//Transitions
+		int[] offsets = new int[size*numLabels+1];
+		int[] successors = new int[t.countTransitions()];
+		int count = 0;
+		for(int k = 0; k < size; k++) {
+			for(int l = 0; l < numLabels; l++) {
+				offsets[k*numLabels+l] = count;
+				if(empty)
+					continue;
+				for(int s : successorClasses(representatives[k], l, c))
+					successors[count++] = s;
+			}
+		}
+		offsets[size*numLabels] = count;
+
+		reducedTable = new TransitionTable(states, rho, numLabels, offsets, Arrays.copyOf(successors, count));
+		reducedInitialState = c[initialState];
+	}
+}
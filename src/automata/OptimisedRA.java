@@ -2,15 +2,22 @@ package automata;
 
 import java.io.FileNotFoundException;
 import java.text.ParseException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.Map.Entry;
 
 public class OptimisedRA extends RegisterAutomaton {
-	private int[] fixedRegisters;
+	/**
+	 * The symbols held by read-only registers, in increasing order, and
+	 * the label of the register holding each of them
+	 */
+	private int[] fixedSymbols;
+	private int[] fixedLabels;
 	private int writeOffset;
 
 	public OptimisedRA(String loadPath) throws FileNotFoundException,
@@ -24,6 +31,27 @@ public class OptimisedRA extends RegisterAutomaton {
 		postBuildOptimise();
 	}
 	
+	/**
+	 * Keep the register layout of an optimised automaton
+	 * over a rewritten table of the same layout
+	 * @param base
+	 * @param layout
+	 */
+	private OptimisedRA(RegisterAutomaton base, OptimisedRA layout) {
+		super(base);
+		fixedSymbols = layout.fixedSymbols;
+		fixedLabels = layout.fixedLabels;
+		writeOffset = layout.writeOffset;
+	}
+	
+	@Override
+	public RegisterAutomaton derive(RegisterAutomaton base) {
+		//Labels and registers of base already follow this layout
+		if(base instanceof FrozenAutomaton)
+			return new Frozen((FrozenAutomaton) base, this);
+		return new OptimisedRA(base, this);
+	}
+	
 	private void postBuildOptimise() {
 		detectFixedRegisters();
 	}
@@ -42,10 +70,11 @@ public class OptimisedRA extends RegisterAutomaton {
 			readOnlyRegisters.add(i);
 		}
 		
-		for(Entry<State, Integer> rhoEntry : rho.entrySet()) {
-			if(rhoEntry.getValue() != null) {
-				readOnlyRegisters.remove(rhoEntry.getValue());
-				writableRegisters.add(rhoEntry.getValue());
+		for(int q = 0; q < states.length; q++) {
+			int r = table.getRho(q);
+			if(r >= 0) {
+				readOnlyRegisters.remove(r);
+				writableRegisters.add(r);
 			}
 		}
 		
@@ -54,51 +83,87 @@ public class OptimisedRA extends RegisterAutomaton {
 		Map<Integer, Integer> rewriteMap = new HashMap<Integer, Integer>();
 		int[] oldRegisters = registers;
 		registers = new int[writableRegisters.size()];
-		fixedRegisters = new int[readOnlyRegisters.size()];
 		writeOffset = readOnlyRegisters.size();
 		
+		//Fixed registers are looked up by symbol: empty ones (once trimmed, a
+		//register may never be written) never contain any, and keep their label only
+		Map<Integer, Integer> fixed = new TreeMap<>();
 		int counter = 0;
 		for(Integer i : readOnlyRegisters) {
 			rewriteMap.put(i, counter);
-			fixedRegisters[oldRegisters[i]] = counter;
+			//The lowest register holding a symbol contains it
+			if(oldRegisters[i] >= 0 && !fixed.containsKey(oldRegisters[i]))
+				fixed.put(oldRegisters[i], counter);
 			counter++;
 		}
+		fixedSymbols = new int[fixed.size()];
+		fixedLabels = new int[fixed.size()];
+		int f = 0;
+		for(Entry<Integer, Integer> e : fixed.entrySet()) {
+			fixedSymbols[f] = e.getKey();
+			fixedLabels[f++] = e.getValue();
+		}
 		for(Integer i : writableRegisters) {
 			rewriteMap.put(i, counter);
-			registers[counter-fixedRegisters.length] = oldRegisters[i];
+			registers[counter-writeOffset] = oldRegisters[i];
 			counter++;
 		}
 		
 		//Rewrite rho values
-		HashMap<State, Integer> newRho = new HashMap<>();
-		for(Entry<State, Integer> rhoEntry: rho.entrySet()) {
-			newRho.put(rhoEntry.getKey(), rewriteMap.get(rhoEntry.getValue())-writeOffset);
+		int[] newRho = new int[states.length];
+		for(int q = 0; q < states.length; q++) {
+			int r = table.getRho(q);
+			newRho[q] = r < 0 ? -1 : rewriteMap.get(r)-writeOffset;
 		}
-		rho = newRho;
 		
 		//Rewrite transitions
-		Map<State, Map<Integer, List<State>>> newMu = new HashMap<>();
-		for(Entry<State, Map<Integer, List<State>>> muEntry : mu.entrySet()) {
-			Map<Integer, List<State>> newValue = new HashMap<Integer, List<State>>();
-			newMu.put(muEntry.getKey(), newValue);
-			
-			for(Entry<Integer, List<State>> e : muEntry.getValue().entrySet()) {
-				newValue.put(rewriteMap.get(e.getKey()), e.getValue());
-			}
+		int[] labelMap = new int[oldRegisters.length];
+		for(Entry<Integer, Integer> e : rewriteMap.entrySet()) {
+			labelMap[e.getKey()] = e.getValue();
 		}
-		mu = newMu;
+		table = table.relabel(labelMap, oldRegisters.length, newRho);
+		
+		//The map view will be rebuilt from the table if needed
+		mu = null;
 		
 		//And we're ready to go.
 	}
 
 	
-	public int[] getFixedRegisters() {
-		return fixedRegisters;
+	/**
+	 * @return the symbols held by read-only registers, in increasing order
+	 */
+	public int[] getFixedSymbols() {
+		return fixedSymbols.clone();
+	}
+	
+	/**
+	 * @param symbol
+	 * @return the label of the read-only register holding symbol, or -1
+	 */
+	public int findFixedRegister(int symbol) {
+		int f = Arrays.binarySearch(fixedSymbols, symbol);
+		return f < 0 ? -1 : fixedLabels[f];
 	}
 	
 	public int findContainingRegister(int[] registers, int symbol) {
-		if(symbol >= 0 && symbol < fixedRegisters.length) 
-			return fixedRegisters[symbol];
+		return findContainingRegister(registers, null, symbol);
+	}
+	
+	/**
+	 * @param registers the writeable registers
+	 * @param index the index of registers, or null to scan them
+	 * @param symbol
+	 * @return
+	 */
+	public int findContainingRegister(int[] registers, RegisterIndex index, int symbol) {
+		int fixed = findFixedRegister(symbol);
+		if(fixed >= 0) 
+			return fixed;
+		if(index != null) {
+			int r = index.find(symbol);
+			return r < 0 ? -1 : writeOffset + r;
+		}
 		int i =0;
 		for(int s : registers) {
 			if(s == symbol)
@@ -112,5 +177,48 @@ public class OptimisedRA extends RegisterAutomaton {
 		return writeOffset;
 	}
 
-	
+	/**
+	 * A frozen optimised automaton: the layout is immutable already, and the
+	 * accessors are those of the frozen base (see {@link FrozenAutomaton}).
+	 */
+	private static final class Frozen extends OptimisedRA {
+		private final FrozenAutomaton base;
+
+		private Frozen(FrozenAutomaton base, OptimisedRA layout) {
+			super(base, layout);
+			this.base = base;
+		}
+
+		@Override
+		public Frozen freeze() {
+			return this;
+		}
+
+		@Override
+		public RegisterAutomaton derive(RegisterAutomaton base) {
+			return super.derive(base.freeze());
+		}
+
+		//Access methods
+		@Override
+		public State getInitialState() {
+			return base.getInitialState();
+		}
+		@Override
+		public State[] getStates() {
+			return base.getStates();
+		}
+		@Override
+		public TransitionTable getTransitionTable() {
+			return base.getTransitionTable();
+		}
+		@Override
+		public Map<State, Map<Integer, List<State>>> getTransitions() {
+			return base.getTransitions();
+		}
+		@Override
+		public int[] getInitialRegisters() {
+			return base.getInitialRegisters();
+		}
+	}
 }
@@ -1,14 +1,10 @@
 package automata;
 
-import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.text.ParseException;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Scanner;
 
 import algorithms.Tools;
 
@@ -23,16 +19,16 @@ public class RegisterAutomaton extends Automaton {
 
 	protected State initialState;
 	protected int[] registers;
-	/**
-	 * Instead of a function, rho is a relation as well.
-	 * This avoids creating function objects.
-	 */
-	protected Map<State, Integer> rho;
 	/**
 	 * Mu is the relation as defined in the paper.
 	 * Nullpointers will have to be handled intelligently here.
+	 * Only built on demand from the compiled form, see {@link #getTransitions()}.
 	 */
 	protected Map<State, Map<Integer, List<State>>> mu;
+	/**
+	 * The compiled form of rho and mu, used by all decision algorithms.
+	 */
+	protected TransitionTable table;
 	
 	public RegisterAutomaton(String loadPath) throws FileNotFoundException, ParseException {
 		loadFromFile(loadPath);
@@ -48,191 +44,77 @@ public class RegisterAutomaton extends Automaton {
 		initialState = ra.initialState;
 		registers = ra.registers;
 		
-		rho = ra.rho;
 		mu = ra.mu;
+		table = ra.table;
+	}
+	
+	/**
+	 * Build an automaton straight from its compiled form
+	 * @param table
+	 * @param initialState the id of the initial state in table
+	 * @param registers
+	 */
+	public RegisterAutomaton(TransitionTable table, int initialState, int[] registers) {
+		loadCompiled(table, initialState, registers.clone());
 	}
 	
 	
 	//Load from files
 	
 	private void loadFromFile(String path) throws FileNotFoundException, ParseException {
-		//Check file correctness
-		Scanner sc = new Scanner(new File(path));
-		
-		//Initialise automaton components
-		this.rho = new HashMap<>();
-		this.mu  = new HashMap<>();
-		
-		//Load components
-		int lineNumber = 0;
-		lineNumber = loadStates(sc);
-		lineNumber = loadRegisters(sc, lineNumber);
-		loadTransitions(sc, lineNumber);
-	}
-	
-	private int loadStates(Scanner sc) throws ParseException {
-		int lineNumber = 0;
-		ArrayList<State> stateSet = new ArrayList<>();
-		
-		//Read from file and fill out the blanks
-		//States
-		while(sc.hasNext()) {
-			String line = sc.nextLine();
-			
-			if(lineIsComment(line))
-				continue;
-				
-			String[] tokens = line.split(" ");
-			lineNumber++;
-			
-			switch(tokens.length) {
-			case 1:
-				if(tokens[0].equals("-")) {
-					//Set the state set
-					if(stateSet.size() == 0)
-						throw new ParseException("No states found in automaton description", lineNumber);
-					states = new State[stateSet.size()];
-					stateSet.toArray(states);
-					
-					//Init mu array
-					for(State state : states) {
-						mu.put(state, new HashMap<Integer, List<State>>());
-					}
-					
-					return lineNumber;
-				} else {
-					State state = new State(tokens[0]);
-					stateSet.add(state);
-				}
-				break;
-			case 2:
-				State state = new State(tokens[0]);
-				stateSet.add(state);
-				rho.put(state, Integer.parseInt(tokens[1])-1);
-				break;
-			case 3:
-				State finalState = new State(tokens[0], tokens[2].equals("F"));
-				stateSet.add(finalState);
-				if(!tokens[1].equals("_"))
-					rho.put(finalState, Integer.parseInt(tokens[1])-1);
-				break;
-			default:
-				throw new ParseException("Unrecognised line", lineNumber);
+		//Prefer the compiled binary file if there is a recent one
+		if(BinaryAutomatonFile.isUpToDate(path)) {
+			String binaryPath = BinaryAutomatonFile.binaryPath(path);
+			try {
+				loadFromBinary(BinaryAutomatonFile.load(binaryPath));
+				return;
+			} catch (IOException | ParseException e) {
+				if(binaryPath.equals(path))
+					throw new ParseException("Could not load binary automaton " + path + ": " + e.getMessage(), 0);
+				System.err.println("WARNING: could not load " + binaryPath + " (" + e.getMessage() + "), parsing " + path);
 			}
 		}
 		
-		throw new ParseException("File incomplete", lineNumber);
+		//Parse the text file
+		FMAParser parser = new FMAParser(path);
+		parser.parse();
 		
+		loadCompiled(parser.getTable(), parser.getInitialState(), parser.getRegisters());
 	}
-
-	/**
-	 * Load initial state and registers
-	 * @param sc
-	 * @param lineNumber
-	 * @return
-	 * @throws ParseException
-	 */
-	private int loadRegisters(Scanner sc, int lineNumber) throws ParseException {
-		if(sc.hasNext()) {
-			String token = sc.nextLine();
-			
-			for(State state : states) {
-				if(state.name.equals(token)) {
-					initialState = state;
-					break;
-				}
-			}
-		} else {
-			throw new ParseException("Expected declaration of initial state", lineNumber);
-		}
-		
-		if(sc.hasNext()) {
-			String[] tokens = sc.nextLine().split(" ");
-			registers = new int[tokens.length];
-			
-			for(int i = 0; i < tokens.length; i++) {
-				if(tokens[i].equals("#"))
-					registers[i] = -1;
-				else				
-					registers[i] = Integer.parseInt(tokens[i]);
-			}
-			
-			sc.nextLine();
-			return lineNumber+2;
-		} else {
-			throw new ParseException("Incomplete source file: no registers", lineNumber);
-		}
+	
+	private void loadFromBinary(BinaryAutomatonFile file) {
+		loadCompiled(file.table, file.initialState, file.registers);
 	}
 	
-	private int loadTransitions(Scanner sc, int lineNumber) throws ParseException {
-		//Read from file and fill out the blanks
-		//States
-		while(sc.hasNext()) {
-			String line = sc.nextLine();
-
-			if(lineIsComment(line))
-				continue;
-			
-			String[] tokens = line.split(" ");
-			lineNumber++;
-			
-			if(tokens.length != 3) 
-				throw new ParseException("Expected three tokens", lineNumber);
-			
-			//Lookup states
-			State state1 = null;
-			State state2 = null;
-			
-			for(State state : states) {
-				if(state.name.equals(tokens[0])) {
-					state1 = state;
-					break;
-				}
-			}
-			for(State state : states) {
-				if(state.name.equals(tokens[2])) {
-					state2 = state;
-					break;
-				}
-			}
-			
-			if(state1 == null || state2 == null) {
-				throw new ParseException("Could not resolve reference to states " + tokens[0] + ", " + tokens[2], lineNumber);
-			}
-			
-			//Handle multi-labels
-			// Parse
-			ArrayList<Integer> labels = new ArrayList<>();
-			if(tokens[1].equals("*")) {
-				for(int l = 0; l < registers.length; l++)
-					labels.add(l);
-			} else {
-				String[] labelTokens = tokens[1].split(",");
-				for(String labelToken : labelTokens)
-					labels.add(Integer.parseInt(labelToken)-1);
-			}
-			
-			// Insert
-			for(int label : labels) {
-				if(!mu.get(state1).containsKey(label))
-					mu.get(state1).put(label, new ArrayList<State>());
-				mu.get(state1).get(label).add(state2);
-			}
-		}
+	private void loadCompiled(TransitionTable table, int initialState, int[] registers) {
+		this.table = table;
+		this.registers = registers;
 		
-		return lineNumber;
+		states = new State[table.getNumStates()];
+		for(int q = 0; q < states.length; q++)
+			states[q] = table.getState(q);
+		this.initialState = states[initialState];
+		
+		//The map view is only rebuilt on demand
+		mu = null;
 	}
 
 	public void displayInfo() {
+		State[] states = getStates();
 		System.out.println("-- Automaton information --");
 		System.out.println("Number of states: " + states.length);
 		
 		int transitions = countTransitions();
 		
-		System.out.println("Number of registers: " + registers.length);
+		System.out.println("Number of registers: " + getInitialRegisters().length);
 		
 		System.out.println("Number of transitions: " + transitions);
-		System.out.println("Number of values defined for rho: " + rho.entrySet().size());
+		int rhos = 0;
+		for(State s : states) {
+			if(declaresRho(s))
+				rhos++;
+		}
+		System.out.println("Number of values defined for rho: " + rhos);
 		
 		int fStates = 0;
 		for(State s : states) {
@@ -257,24 +139,33 @@ public class RegisterAutomaton extends Automaton {
 	public State[] getStates() {
 		return states;
 	}
+	public TransitionTable getTransitionTable() {
+		return table;
+	}
+	/**
+	 * Map-based view of mu: for generators and debugging only,
+	 * algorithms should use {@link #getTransitionTable()}.
+	 * @param s
+	 * @return
+	 */
 	public Map<Integer, List<State>> getTransitions(State s) {
-		return mu.get(s);
+		return getTransitions().get(s);
 	}
+	/**
+	 * Map-based view of mu: for generators and debugging only,
+	 * algorithms should use {@link #getTransitionTable()}.
+	 * @return
+	 */
 	public Map<State, Map<Integer, List<State>>> getTransitions() {
+		if(mu == null)
+			mu = table.toMap();
 		return mu;
 	}
 	public boolean declaresRho(State q) {
-		Integer i = rho.get(q);
-		return i != null && i >= 0;
+		return getTransitionTable().getRho(q.id) >= 0;
 	}
 	public int countTransitions() {
-		int count = 0;
-		for(Entry<State, Map<Integer, List<State>>> e : mu.entrySet()) {
-			for(Entry<Integer, List<State>> ep : e.getValue().entrySet()) 
-				count += ep.getValue().size();
-		}
-		
-		return count;
+		return getTransitionTable().countTransitions();
 	}
 	
 	/**
@@ -285,16 +176,43 @@ public class RegisterAutomaton extends Automaton {
 		return registers.clone();
 	}
 	
+	/**
+	 * Automata with many registers look symbols up through a reverse index
+	 * rather than by scanning the registers.
+	 * @param registers a register file of this automaton
+	 * @return a new index of registers, or null if a linear scan is faster
+	 */
+	public RegisterIndex createRegisterIndex(int[] registers) {
+		return RegisterIndex.isWorthwhile(registers.length) ? new RegisterIndex(registers) : null;
+	}
+	
+	/**
+	 * The frozen automaton keeps the kind of this one (see {@link #derive(RegisterAutomaton)}):
+	 * it is built over a {@link FrozenAutomaton}. Kinds that add to the automaton derive
+	 * a final, immutable kind from a {@link FrozenAutomaton}, whose accessors are those
+	 * of the frozen base.
+	 */
+	@Override
+	public RegisterAutomaton freeze() {
+		return derive(new FrozenAutomaton(this));
+	}
+	
+	/**
+	 * Used by rewriting passes (see {@link Minimiser}) to keep the kind of an automaton.
+	 * @param base a rewritten version of this automaton
+	 * @return an automaton of the same kind as this one, built over base
+	 */
+	public RegisterAutomaton derive(RegisterAutomaton base) {
+		return base;
+	}
+	
 	public Integer getAssignmentRegister(State s) {
-		return rho.get(s);
+		int r = getTransitionTable().getRho(s.id);
+		return r < 0 ? null : r;
 	}
 	
 	public List<State> getNextStates(State currentState, int label) {
-		return mu.get(currentState).get(label);
+		return getTransitionTable().getNextStates(currentState.id, label);
 	}
 
-	//Tools
-	private boolean lineIsComment(String line) {
-		return line.length() >= 2 && line.substring(0, 2).equalsIgnoreCase("--");
-	}
 }
@@ -0,0 +1,176 @@
+package automata;
+
+import algorithms.tools.OpenAddressing;
+
+/**
+ * <p>A reverse index of a register file: a small open-addressing table
+ * mapping each symbol to the register that contains it. It is updated
+ * incrementally whenever a register is assigned (see
+ * {@link #assign(int[], int, int)}), so that looking up the register
+ * containing a symbol does not require a scan of the registers.</p>
+ *
+ * <p>The answer is always the same as the one of a linear scan: if several
+ * registers contain the same symbol, the lowest one is returned.</p>
+ *
+ * <p>An index belongs to a single configuration and has to be copied along
+ * with its registers (an expanded configuration may give its index up to
+ * one of its successors instead). Below {@link #LINEAR_SCAN_LIMIT} registers a linear
+ * scan is faster, automata should only use an index when
+ * {@link #isWorthwhile(int)}.</p>
+ * @author vincent
+ *
+ */
+public final class RegisterIndex {
+	/**
+	 * Number of registers up to which a linear scan beats the index for
+	 * lookups, see the "register-index" benchmark in the testbench (the
+	 * crossover lies between 128 and 160 registers). Copying an index costs
+	 * more than copying its registers, so configurations should hand their
+	 * index over to a successor rather than copy it whenever they can.
+	 */
+	public static final int LINEAR_SCAN_LIMIT = 128;
+
+	/**
+	 * Slots pack a symbol (high 32 bits), the lowest register holding it
+	 * (16 bits) and the number of registers holding it (low 16 bits).
+	 * A slot is free iff its count is 0.
+	 */
+	private final long[] slots;
+	private final int mask;
+
+	/**
+	 * Index the given register file
+	 * @param registers
+	 */
+	public RegisterIndex(int[] registers) {
+		if(registers.length > 0xFFFF)
+			throw new IllegalArgumentException("Too many registers to index: " + registers.length);
+
+		int capacity = 4;
+		while(capacity < 2*registers.length)
+			capacity <<= 1;
+
+		slots = new long[capacity];
+		mask = capacity-1;
+
+		for(int r = 0; r < registers.length; r++)
+			insert(registers[r], r);
+	}
+
+	private RegisterIndex(RegisterIndex index) {
+		slots = index.slots.clone();
+		mask = index.mask;
+	}
+
+	public static boolean isWorthwhile(int numRegisters) {
+		return numRegisters > LINEAR_SCAN_LIMIT;
+	}
+
+	//Access methods
+	/**
+	 * @param symbol
+	 * @return the lowest register containing symbol, or -1
+	 */
+	public int find(int symbol) {
+		for(int slot = hash(symbol) & mask; count(slots[slot]) != 0; slot = (slot+1) & mask) {
+			if(key(slots[slot]) == symbol)
+				return lowest(slots[slot]);
+		}
+		return -1;
+	}
+
+	/**
+	 * Assign symbol to a register, in the register file and in the index.
+	 * @param registers the register file this index was built from
+	 * @param register
+	 * @param symbol
+	 */
+	public void assign(int[] registers, int register, int symbol) {
+		int old = registers[register];
+		if(old == symbol)
+			return;
+
+		registers[register] = symbol;
+		remove(registers, old, register);
+		insert(symbol, register);
+	}
+
+	public RegisterIndex copy() {
+		return new RegisterIndex(this);
+	}
+
+	//Tools
+	private void insert(int symbol, int register) {
+		int slot = hash(symbol) & mask;
+		while(count(slots[slot]) != 0) {
+			long entry = slots[slot];
+			if(key(entry) == symbol) {
+				slots[slot] = pack(symbol, Math.min(lowest(entry), register), count(entry)+1);
+				return;
+			}
+			slot = (slot+1) & mask;
+		}
+
+		slots[slot] = pack(symbol, register, 1);
+	}
+
+	private void remove(int[] registers, int symbol, int register) {
+		int slot = hash(symbol) & mask;
+		while(count(slots[slot]) != 0 && key(slots[slot]) != symbol)
+			slot = (slot+1) & mask;
+
+		long entry = slots[slot];
+		if(count(entry) == 0)
+			return;
+
+		//The symbol is still held by other registers: only rescan if we lost the lowest one
+		if(count(entry) > 1) {
+			int r = lowest(entry);
+			if(r == register) {
+				r = register+1;
+				while(registers[r] != symbol)
+					r++;
+			}
+			slots[slot] = pack(symbol, r, count(entry)-1);
+			return;
+		}
+
+		//Backward shift deletion keeps probe sequences unbroken
+		int free = slot;
+		for(slot = (slot+1) & mask; count(slots[slot]) != 0; slot = (slot+1) & mask) {
+			if(OpenAddressing.fillsHole(slot, hash(key(slots[slot])) & mask, free, mask)) {
+				slots[free] = slots[slot];
+				free = slot;
+			}
+		}
+		slots[free] = 0L;
+	}
+
+	private static long pack(int symbol, int register, int count) {
+		return ((long) symbol << 32) | ((long) register << 16) | count;
+	}
+	private static int key(long entry) {
+		return (int) (entry >> 32);
+	}
+	private static int lowest(long entry) {
+		return (int) (entry >>> 16) & 0xFFFF;
+	}
+	private static int count(long entry) {
+		return (int) entry & 0xFFFF;
+	}
+
+	private static int hash(int symbol) {
+		return OpenAddressing.mix(symbol);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{");
+		for(long entry : slots) {
+			if(count(entry) != 0)
+				sb.append(key(entry) + "->" + lowest(entry) + (count(entry) > 1 ? "(x" + count(entry) + ")" : "") + " ");
+		}
+		return sb.toString().trim() + "}";
+	}
+
+}
@@ -10,15 +10,24 @@ package automata;
 public class State {
 	public final boolean isFinal;
 	public final String name;
+	/**
+	 * Dense index of this state in its automaton, -1 if the state
+	 * does not belong to a compiled automaton (generators).
+	 */
+	public final int id;
 	
 	public State(String name) {
-		this.name = name;
-		this.isFinal = false;
+		this(name, false, -1);
 	}
 	
 	public State(String name, boolean isFinal) {
+		this(name, isFinal, -1);
+	}
+	
+	public State(String name, boolean isFinal, int id) {
 		this.name = name;
 		this.isFinal = isFinal;
+		this.id = id;
 	}
 	
 	public String toString() {
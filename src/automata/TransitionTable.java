@@ -0,0 +1,266 @@
+package automata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * <p>The compiled, immutable form of the transition relation mu (and of rho)
+ * of a register automaton. States are designated by their dense id (see
+ * {@link State#id}), labels by their register index.</p>
+ *
+ * <p>The relation is stored in a compressed sparse row layout: the successors
+ * of state q on label l are the ids
+ * <code>successors[offsets[q*numLabels+l]]</code> up to (excluded)
+ * <code>successors[offsets[q*numLabels+l+1]]</code>. Nothing is allocated
+ * when the table is read.</p>
+ *
+ * <p>The map-based view in {@link RegisterAutomaton} is only kept for
+ * generators and debugging; search algorithms should use this.</p>
+ * @author vincent
+ *
+ */
+public final class TransitionTable {
+	private final State[] states;
+	private final int numLabels;
+	private final int[] rho;
+	private final int[] offsets;
+	private final int[] successors;
+
+	/**
+	 * Read-only successor lists shared between all callers of
+	 * {@link #getNextStates(int, int)}, null where no transition exists.
+	 */
+	private final List<State>[] successorLists;
+
+	@SuppressWarnings("unchecked")
+	public TransitionTable(State[] states, int[] rho, int numLabels, int[] offsets, int[] successors) {
+		if(offsets.length != states.length*numLabels+1)
+			throw new IllegalArgumentException("Offset table does not match " + states.length + " states and "
+												+ numLabels + " labels");
+		for(int q = 0; q < states.length; q++) {
+			if(states[q].id != q)
+				throw new IllegalArgumentException("State " + states[q] + " has id " + states[q].id + ", expected " + q);
+		}
+
+		this.states = states;
+		this.rho = rho;
+		this.numLabels = numLabels;
+		this.offsets = offsets;
+		this.successors = successors;
+
+		//Build the shared list views once and for all
+		successorLists = (List<State>[]) new List<?>[states.length*numLabels];
+		for(int slot = 0; slot < successorLists.length; slot++) {
+			if(offsets[slot] == offsets[slot+1])
+				continue;
+
+			State[] slotStates = new State[offsets[slot+1]-offsets[slot]];
+			for(int i = offsets[slot]; i < offsets[slot+1]; i++)
+				slotStates[i-offsets[slot]] = states[successors[i]];
+			successorLists[slot] = Collections.unmodifiableList(Arrays.asList(slotStates));
+		}
+	}
+
+	/**
+	 * Compile the map-based representation of an automaton.
+	 * @param states the states, indexed by their id
+	 * @param rhoMap
+	 * @param mu
+	 * @return
+	 */
+	public static TransitionTable compile(State[] states,
+										  Map<State, Integer> rhoMap,
+										  Map<State, Map<Integer, List<State>>> mu) {
+		//Find out the label range
+		int numLabels = 0;
+		for(Entry<State, Map<Integer, List<State>>> e : mu.entrySet())
+			for(Integer label : e.getValue().keySet())
+				numLabels = Math.max(numLabels, label+1);
+
+		//Rho
+		int[] rho = new int[states.length];
+		for(int q = 0; q < states.length; q++) {
+			Integer r = rhoMap.get(states[q]);
+			rho[q] = r == null || r < 0 ? -1 : r;
+		}
+
+		//Count, then fill
+		int[] offsets = new int[states.length*numLabels+1];
+		int count = 0;
+		for(int q = 0; q < states.length; q++) {
+			Map<Integer, List<State>> tr = mu.get(states[q]);
+			for(int l = 0; l < numLabels; l++) {
+				offsets[q*numLabels+l] = count;
+				List<State> next = tr == null ? null : tr.get(l);
+				if(next != null)
+					count += next.size();
+			}
+		}
+		offsets[states.length*numLabels] = count;
+
+		int[] successors = new int[count];
+		for(int q = 0; q < states.length; q++) {
+			Map<Integer, List<State>> tr = mu.get(states[q]);
+			for(int l = 0; l < numLabels; l++) {
+				List<State> next = tr == null ? null : tr.get(l);
+				if(next == null)
+					continue;
+				int i = offsets[q*numLabels+l];
+				for(State s : next)
+					successors[i++] = s.id;
+			}
+		}
+
+		return new TransitionTable(states, rho, numLabels, offsets, successors);
+	}
+
+	//Access methods
+	public int getNumStates() {
+		return states.length;
+	}
+	public int getNumLabels() {
+		return numLabels;
+	}
+	public State getState(int q) {
+		return states[q];
+	}
+	public boolean isFinal(int q) {
+		return states[q].isFinal;
+	}
+	/**
+	 * @param q
+	 * @return the register assigned in q, or -1 if rho is undefined
+	 */
+	public int getRho(int q) {
+		return rho[q];
+	}
+	/**
+	 * @param q
+	 * @param label
+	 * @return the index of the first successor of q on label, see {@link #getSuccessor(int)}
+	 */
+	public int successorsStart(int q, int label) {
+		if(label < 0 || label >= numLabels)
+			return 0;
+		return offsets[q*numLabels+label];
+	}
+	/**
+	 * @param q
+	 * @param label
+	 * @return the index following the last successor of q on label
+	 */
+	public int successorsEnd(int q, int label) {
+		if(label < 0 || label >= numLabels)
+			return 0;
+		return offsets[q*numLabels+label+1];
+	}
+	public int getSuccessor(int i) {
+		return successors[i];
+	}
+	public State getSuccessorState(int i) {
+		return states[successors[i]];
+	}
+	/**
+	 * Same as the map-based lookup, without hashing: the returned list
+	 * is shared and read-only.
+	 * @param q
+	 * @param label
+	 * @return the successor states, or null if there are none
+	 */
+	public List<State> getNextStates(int q, int label) {
+		if(label < 0 || label >= numLabels)
+			return null;
+		return successorLists[q*numLabels+label];
+	}
+	public int countTransitions() {
+		return successors.length;
+	}
+	public boolean isDeterministic() {
+		for(int slot = 0; slot < successorLists.length; slot++) {
+			if(offsets[slot+1] - offsets[slot] > 1)
+				return false;
+		}
+
+		return true;
+	}
+	
+	//Rewriting
+	/**
+	 * Build a new table where every label l is replaced by labelMap[l]
+	 * (or dropped if labelMap[l] &lt; 0), and where rho is replaced.
+	 * labelMap must be injective.
+	 * @param labelMap
+	 * @param newNumLabels
+	 * @param newRho
+	 * @return
+	 */
+	public TransitionTable relabel(int[] labelMap, int newNumLabels, int[] newRho) {
+		int[] oldLabels = new int[newNumLabels];
+		Arrays.fill(oldLabels, -1);
+		for(int l = 0; l < Math.min(labelMap.length, numLabels); l++) {
+			if(labelMap[l] >= 0)
+				oldLabels[labelMap[l]] = l;
+		}
+		
+		int[] newOffsets = new int[states.length*newNumLabels+1];
+		int[] newSuccessors = new int[successors.length];
+		int count = 0;
+		for(int q = 0; q < states.length; q++) {
+			for(int l = 0; l < newNumLabels; l++) {
+				newOffsets[q*newNumLabels+l] = count;
+				if(oldLabels[l] < 0)
+					continue;
+				int slot = q*numLabels+oldLabels[l];
+				for(int i = offsets[slot]; i < offsets[slot+1]; i++)
+					newSuccessors[count++] = successors[i];
+			}
+		}
+		newOffsets[states.length*newNumLabels] = count;
+		
+		return new TransitionTable(states, newRho, newNumLabels, newOffsets, 
+								   Arrays.copyOf(newSuccessors, count));
+	}
+	
+	/**
+	 * Rebuild the map-based view of mu (for generators and debugging only)
+	 * @return
+	 */
+	public Map<State, Map<Integer, List<State>>> toMap() {
+		Map<State, Map<Integer, List<State>>> mu = new HashMap<>();
+		for(int q = 0; q < states.length; q++) {
+			Map<Integer, List<State>> tr = new HashMap<>();
+			for(int l = 0; l < numLabels; l++) {
+				if(successorLists[q*numLabels+l] != null)
+					tr.put(l, new ArrayList<>(successorLists[q*numLabels+l]));
+			}
+			mu.put(states[q], tr);
+		}
+		return mu;
+	}
+	
+	/**
+	 * Rebuild the map-based view of rho (for generators and debugging only)
+	 * @return
+	 */
+	public Map<State, Integer> toRhoMap() {
+		Map<State, Integer> rhoMap = new HashMap<>();
+		for(int q = 0; q < states.length; q++) {
+			if(rho[q] >= 0)
+				rhoMap.put(states[q], rho[q]);
+		}
+		return rhoMap;
+	}
+	
+	//Raw access, for serialisation
+	int[] getOffsets() {
+		return offsets;
+	}
+	int[] getSuccessors() {
+		return successors;
+	}
+}
@@ -1,16 +1,19 @@
 package automata.greedy;
 
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.text.ParseException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
 import automata.Automaton;
+import automata.RegisterAutomaton;
+import automata.RegisterIndex;
+import automata.TransitionTable;
 
 /**
  * <p>An automaton that will be used to act "greedily" when
@@ -27,171 +30,84 @@ import automata.Automaton;
  *
  */
 public class GreedyRA extends Automaton {
-	private GreedyState[] states;
-	private GreedyState initialState;
-	private int[] registers;
-	private int writeOffset;
+	private final GreedyState[] states;
+	private final GreedyState initialState;
+	private final int[] registers;
+	private final int writeOffset;
+	private final boolean frozen;
 
 	public GreedyRA(String loadPath) throws FileNotFoundException,
 			ParseException {
-		loadFromFile(loadPath);
-		postOptimise();
+		//Register automata pick the binary file up when there is one
+		this(new RegisterAutomaton(loadPath));
 	}
 
-	//Reading from file
-	private void loadFromFile(String path) throws FileNotFoundException, ParseException {
-		//Check file correctness
-		Scanner sc = new Scanner(new File(path));
-		
-		//Load components
-		int lineNumber = 0;
-		lineNumber = loadStates(sc);
-		lineNumber = loadRegisters(sc, lineNumber);
-		loadTransitions(sc, lineNumber);
-	}
-	private int loadStates(Scanner sc) throws ParseException {
-		int lineNumber = 0;
-		ArrayList<GreedyState> stateSet = new ArrayList<>();
-		
-		//Read from file and fill out the blanks
-		//States
-		while(sc.hasNext()) {
-			String line = sc.nextLine();
-			
-			if(lineIsComment(line))
-				continue;
-				
-			String[] tokens = line.split(" ");
-			lineNumber++;
-			
-			switch(tokens.length) {
-			case 1:
-				if(tokens[0].equals("-")) {
-					//Set the state set
-					if(stateSet.size() == 0)
-						throw new ParseException("No states found in automaton description", lineNumber);
-					states = new GreedyState[stateSet.size()];
-					stateSet.toArray(states);
-					
-					return lineNumber;
-				} else {
-					stateSet.add(new GreedyState(tokens[0], false, -1));
-				}
-				break;
-			case 2:
-				stateSet.add(new GreedyState(tokens[0], false, 
-											 Integer.parseInt(tokens[1])-1));
-				break;
-			case 3:
-				//Analyse rho
-				int rho = -1;
-				if(!tokens[1].equals("_"))
-					rho = Integer.parseInt(tokens[1])-1;
-				
-				//Create state
-				stateSet.add(new GreedyState(tokens[0], tokens[2].equals("F"), rho));
-				break;
-			default:
-				throw new ParseException("Unrecognised line", lineNumber);
-			}
-		}
+	/**
+	 * @param ra a register automaton, which is only read
+	 */
+	public GreedyRA(RegisterAutomaton ra) {
+		states = loadStates(ra.getTransitionTable());
+		initialState = states[ra.getInitialState().id];
 		
-		throw new ParseException("File incomplete", lineNumber);
+		int[] allRegisters = ra.getInitialRegisters();
+		writeOffset = detectFixedRegisters(states, allRegisters.length);
+		registers = Arrays.copyOfRange(allRegisters, writeOffset, allRegisters.length);
+		frozen = false;
 		
+		computeStateCharacteristics();
 	}
-	private int loadRegisters(Scanner sc, int lineNumber) throws ParseException {
-		if(!sc.hasNext()) 
-			throw new ParseException("Expected declaration of initial state", lineNumber);
-		
-		String token = sc.nextLine();
-		
-		for(GreedyState state : states) {
-			if(state.name.equals(token)) {
-				initialState = state;
-				break;
-			}
+	
+	/**
+	 * A frozen snapshot of an automaton, see {@link #freeze()}
+	 * @param ra
+	 */
+	private GreedyRA(GreedyRA ra) {
+		//Copy the states first, then their transitions between the copies
+		Map<GreedyState, GreedyState> copies = new IdentityHashMap<>();
+		states = new GreedyState[ra.states.length];
+		for(int q = 0; q < states.length; q++) {
+			states[q] = new GreedyState(ra.states[q]);
+			copies.put(ra.states[q], states[q]);
 		}
-		
-		if(!sc.hasNext()) 
-			throw new ParseException("Incomplete source file: no registers", lineNumber);
-			
-		String[] tokens = sc.nextLine().split(" ");
-		registers = new int[tokens.length];
-		
-		for(int i = 0; i < tokens.length; i++) {
-			registers[i] = tokens[i].equals("#") ? -1 : Integer.parseInt(tokens[i]);
+		for(int q = 0; q < states.length; q++) {
+			states[q].copyTransitions(ra.states[q], copies);
+			states[q].freeze();
 		}
+		initialState = copies.get(ra.initialState);
 		
-		sc.nextLine();
-		return lineNumber+2;
+		registers = ra.registers.clone();
+		writeOffset = ra.writeOffset;
+		frozen = true;
 	}
-	private int loadTransitions(Scanner sc, int lineNumber) throws ParseException {
-		//Read from file and fill out the blanks
-		//States
-		while(sc.hasNext()) {
-			String line = sc.nextLine();
 
-			if(lineIsComment(line))
-				continue;
-			
-			String[] tokens = line.split(" ");
-			lineNumber++;
-			
-			if(tokens.length != 3) 
-				throw new ParseException("Expected 'source label destination'", lineNumber);
-			
-			//Lookup states: could be optimised with a map kept from before
-			GreedyState state1 = null;
-			GreedyState state2 = null;
-			
-			for(GreedyState state : states) {
-				if(state.name.equals(tokens[0])) {
-					state1 = state;
-					break;
-				}
-			}
-			for(GreedyState state : states) {
-				if(state.name.equals(tokens[2])) {
-					state2 = state;
-					break;
-				}
-			}
-			
-			if(state1 == null || state2 == null) {
-				throw new ParseException("Could not resolve reference to states " + tokens[0] + ", " + tokens[2], lineNumber);
+	//Reading from the compiled form
+	private static GreedyState[] loadStates(TransitionTable table) {
+		GreedyState[] states = new GreedyState[table.getNumStates()];
+		for(int q = 0; q < states.length; q++)
+			states[q] = new GreedyState(table.getState(q).name, table.isFinal(q), table.getRho(q));
+		
+		for(int q = 0; q < states.length; q++) {
+			for(int l = 0; l < table.getNumLabels(); l++) {
+				int end = table.successorsEnd(q, l);
+				for(int i = table.successorsStart(q, l); i < end; i++)
+					states[q].addTransition(l, states[table.getSuccessor(i)]);
 			}
-			
-			//Handle multi-labels
-			// Parse
-			ArrayList<Integer> labels = new ArrayList<>();
-			if(tokens[1].equals("*")) {
-				for(int l = 0; l < registers.length; l++)
-					labels.add(l);
-			} else {
-				String[] labelTokens = tokens[1].split(",");
-				for(String labelToken : labelTokens)
-					labels.add(Integer.parseInt(labelToken)-1);
-			}
-			
-			// Insert into state data
-			for(int label : labels)
-				state1.addTransition(label, state2);
 		}
-		
-		return lineNumber;
+		return states;
 	}
 
 	//Greedy behaviour and optimisations related
-	private void postOptimise() {
-		detectFixedRegisters();
-		computeStateCharacteristics();
-	}
-	private void detectFixedRegisters() {
+	/**
+	 * @param states
+	 * @param numRegisters
+	 * @return the number of read-only registers, which come first
+	 */
+	private static int detectFixedRegisters(GreedyState[] states, int numRegisters) {
 		//Get a set full of read-only register indexes
 		Set<Integer> writableRegisters = new HashSet<>();
 		Set<Integer> readOnlyRegisters = new HashSet<>();
 		
-		for(int i = 0; i < registers.length; i++) {
+		for(int i = 0; i < numRegisters; i++) {
 			readOnlyRegisters.add(i);
 		}
 		
@@ -203,18 +119,9 @@ public class GreedyRA extends Automaton {
 			}
 		}
 		
-		//Find the maximum value in the read-only registers
-		writeOffset = readOnlyRegisters.size();
-		
-		//Rewrite registers
 		//Writeable registers are the same register values kept in the same order,
 		//  offset to fit in a smaller array (which is writeable)
-		int[] oldRegisters = registers;
-		registers = new int[writableRegisters.size()];
-		
-		for(int i = writeOffset ; i < oldRegisters.length; i++) {
-			registers[i-writeOffset] = oldRegisters[i];
-		}
+		int writeOffset = readOnlyRegisters.size();
 		
 		//Rewrite rho values: should be done more cleanly
 		for(GreedyState state : states) {
@@ -224,6 +131,7 @@ public class GreedyRA extends Automaton {
 		
 		//No need to rewrite transitions
 		//And we're ready to go.
+		return writeOffset;
 	}
 	/**
 	 * <p>Compute some useful characteristics by calling the specialised
@@ -237,8 +145,10 @@ public class GreedyRA extends Automaton {
 	 * but on the other hand they do represent a lot of programming work.</p>
 	 */
 	private void computeStateCharacteristics() {
-		for(GreedyState state : states) 
+		for(GreedyState state : states) {
 			state.computeCharacteristics(registers.length + writeOffset, writeOffset);
+			state.compile(registers.length + writeOffset);
+		}
 	}
 	
 	//Tools
@@ -274,8 +184,15 @@ public class GreedyRA extends Automaton {
 		
 		System.out.println("---------------------------");
 	}
-	private boolean lineIsComment(String line) {
-		return line.length() >= 2 && line.substring(0, 2).equalsIgnoreCase("--");
+	
+	/**
+	 * A greedy automaton has no mutators of its own (only its states have):
+	 * the frozen snapshot holds read-only copies of the states, and this
+	 * automaton is left as it is.
+	 */
+	@Override
+	public GreedyRA freeze() {
+		return frozen ? this : new GreedyRA(this);
 	}
 	
 	//Access methods
@@ -283,14 +200,28 @@ public class GreedyRA extends Automaton {
 		return initialState;
 	}
 	public GreedyState[] getStates() {
-		return states;
+		return frozen ? states.clone() : states;
 	}
 	public int[] getInitialRegisters() {
 		return registers.clone();
 	}
+	/**
+	 * @param registers a register file of this automaton
+	 * @return a new index of registers, or null if a linear scan is faster
+	 */
+	public RegisterIndex createRegisterIndex(int[] registers) {
+		return RegisterIndex.isWorthwhile(registers.length) ? new RegisterIndex(registers) : null;
+	}
 	public int findContainingRegister(int[] registers, int symbol) {
+		return findContainingRegister(registers, null, symbol);
+	}
+	public int findContainingRegister(int[] registers, RegisterIndex index, int symbol) {
 		if(symbol < writeOffset) 
 			return symbol;
+		if(index != null) {
+			int r = index.find(symbol);
+			return r < 0 ? -1 : writeOffset + r;
+		}
 		int i =0;
 		for(int s : registers) {
 			if(s == symbol)
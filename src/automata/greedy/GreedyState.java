@@ -1,6 +1,7 @@
 package automata.greedy;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -23,9 +24,14 @@ public class GreedyState {
 	private boolean stable = false;
 	private boolean rhoCompatible = false;
 	private List<Integer> outgoingLabels;
+	private volatile boolean frozen = false;
 	
 	//Environment
-	private final Map<Integer, List<GreedyState>> mu;
+	private Map<Integer, List<GreedyState>> mu;
+	/**
+	 * Compiled form of mu, indexed by label (see {@link #compile(int)})
+	 */
+	private List<GreedyState>[] nextStates;
 	private int rho; //TODO make final
 	
 	public GreedyState(String name, boolean isFinal, int rho) {
@@ -39,6 +45,19 @@ public class GreedyState {
 		this.hc = name.hashCode();
 	}
 	
+	/**
+	 * A copy of a state and of its characteristics, without its transitions
+	 * (see {@link #copyTransitions(GreedyState, Map)})
+	 * @param s
+	 */
+	GreedyState(GreedyState s) {
+		this(s.name, s.isFinal, s.rho);
+		
+		stable = s.stable;
+		rhoCompatible = s.rhoCompatible;
+		outgoingLabels.addAll(s.outgoingLabels);
+	}
+	
 	//Accessors
 	public boolean isStable() {
 		return stable;
@@ -52,17 +71,26 @@ public class GreedyState {
 	public int getAssignmentRegister() {
 		return rho;
 	}
-	public List<GreedyState> getNextStates(Integer label) {
-		return mu.get(label);
+	public List<GreedyState> getNextStates(int label) {
+		if(label < 0 || label >= nextStates.length)
+			return null;
+		return nextStates[label];
+	}
+	
+	public boolean isFrozen() {
+		return frozen;
 	}
 	
 	//TODO To be replaced by something intelligent
 	public void setRho(int newRho) {
+		checkNotFrozen();
 		this.rho = newRho;
 	}
 	public void clearMu() {
+		checkNotFrozen();
 		mu.clear();
 		outgoingLabels.clear();
+		nextStates = null;
 	}
 	public Map<Integer, List<GreedyState>> getTransitions() {
 		return mu;
@@ -93,7 +121,40 @@ public class GreedyState {
 		
 		rhoCompatible = false;
 	}
+	/**
+	 * Compile mu into an array indexed by label, so that no hashing
+	 * or boxing happens during the search. Must be called again if
+	 * transitions are added.
+	 * @param numLabels
+	 */
+	@SuppressWarnings("unchecked")
+	public void compile(int numLabels) {
+		checkNotFrozen();
+		nextStates = (List<GreedyState>[]) new List<?>[numLabels];
+		for(Entry<Integer, List<GreedyState>> e : mu.entrySet()) {
+			if(e.getKey() >= 0 && e.getKey() < numLabels)
+				nextStates[e.getKey()] = e.getValue();
+		}
+	}
+	/**
+	 * Give this copy of s the transitions of s, towards the copies of its successors
+	 * @param s
+	 * @param copies the copy of each state
+	 */
+	void copyTransitions(GreedyState s, Map<GreedyState, GreedyState> copies) {
+		checkNotFrozen();
+		for(Entry<Integer, List<GreedyState>> e : s.mu.entrySet()) {
+			List<GreedyState> next = new ArrayList<>(e.getValue().size());
+			for(GreedyState n : e.getValue())
+				next.add(copies.get(n));
+			mu.put(e.getKey(), next);
+		}
+		
+		if(s.nextStates != null)
+			compile(s.nextStates.length);
+	}
 	public void addTransition(Integer label, GreedyState state) {
+		checkNotFrozen();
 		//Update mu
 		if(!mu.containsKey(label))
 			mu.put(label, new ArrayList<GreedyState>());
@@ -103,6 +164,34 @@ public class GreedyState {
 			outgoingLabels.add(label);
 	}
 
+	/**
+	 * Make this state read-only: transitions and characteristics can't be
+	 * changed anymore, and lists returned by accessors are unmodifiable.
+	 * The state must have been compiled (see {@link #compile(int)}).
+	 */
+	@SuppressWarnings("unchecked")
+	public void freeze() {
+		if(frozen)
+			return;
+		
+		Map<Integer, List<GreedyState>> frozenMu = new HashMap<>();
+		for(Entry<Integer, List<GreedyState>> e : mu.entrySet())
+			frozenMu.put(e.getKey(), Collections.unmodifiableList(new ArrayList<>(e.getValue())));
+		mu = Collections.unmodifiableMap(frozenMu);
+		outgoingLabels = Collections.unmodifiableList(new ArrayList<>(outgoingLabels));
+		
+		List<GreedyState>[] frozenNextStates = (List<GreedyState>[]) new List<?>[nextStates.length];
+		for(int l = 0; l < nextStates.length; l++)
+			frozenNextStates[l] = nextStates[l] == null ? null : mu.get(l);
+		nextStates = frozenNextStates;
+		
+		//Publishes all of the above
+		frozen = true;
+	}
+	private void checkNotFrozen() {
+		if(frozen)
+			throw new IllegalStateException("State " + name + " is frozen");
+	}
 	
 	//Generics
 	@Override
@@ -2,18 +2,28 @@ package automata.hra;
 
 import java.io.FileNotFoundException;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+import automata.FrozenAutomaton;
 import automata.RegisterAutomaton;
 import automata.State;
+import automata.TransitionTable;
 
 /**
- * A register automaton with a nice heuristic score based on transition
+ * <p>A register automaton with a nice heuristic score based on transition
  * label relaxation: what is the number of paths of length n that go from
- * state s to a final state?
+ * state s to a final state?</p>
+ * <p>Scores are computed level by level (one level per distance n), and only
+ * up to the largest distance queried so far. Since level n only depends on
+ * level n-1 and scores saturate, the sequence of levels is eventually
+ * periodic: once a level repeats, only the prefix and the period are kept
+ * and further distances are folded onto them.</p>
  * @author vincent
  *
  */
@@ -21,71 +31,63 @@ public class HRAutomaton extends RegisterAutomaton {
 	//Internal codes
 	private static final int NONE = 0;
 	private static final int FINAL = 1;
-	
+
+	/**
+	 * Levels are computed in parallel from this number of states on
+	 */
+	public static final int PARALLEL_THRESHOLD = 1 << 12;
+	private static final int PARALLEL_CHUNK = 1 << 10;
+	private static ForkJoinPool pool = null;
+
 	//Storage
-	private final Map<State, int[]> hScores;
 	private final int hLength;
+	/**
+	 * Current state of the computation, replaced (never modified in place
+	 * below its number of levels) when more levels are computed
+	 */
+	private volatile Levels levels;
+	/**
+	 * Hashes of computed levels, to detect the period
+	 */
+	private Map<Integer, List<Integer>> levelHashes;
 
 	public HRAutomaton(String loadPath, int hlength) throws FileNotFoundException,
 			ParseException {
 		super(loadPath);
-		
-		hScores = new HashMap<>();
+
 		hLength = hlength+1;
-		
-		for(State s : states) {
-			hScores.put(s, new int[hLength]);
-		}
-		
+		loadHeuristic();
 	}
-	
+
 	public HRAutomaton(RegisterAutomaton ra, int hlength) {
 		super(ra);
-		
-		hScores = new HashMap<>();
+
 		hLength = hlength+1;
-		
-		for(State s : states) {
-			hScores.put(s, new int[hLength]);
-		}
-		
+		loadHeuristic();
+	}
+
+	@Override
+	public RegisterAutomaton derive(RegisterAutomaton base) {
+		if(base instanceof FrozenAutomaton)
+			return new Frozen((FrozenAutomaton) base, hLength-1);
+		return new HRAutomaton(base, hLength-1);
 	}
-	
+
 	/**
-	 * Load all hscores by iterating over n, the considered
-	 * path distance
+	 * Reset the heuristic: only final states are processed here,
+	 * other distances are computed on demand.
 	 */
-	public void loadHeuristic() {
-		//Process final states
+	public synchronized void loadHeuristic() {
+		int[] scores = new int[states.length*Math.max(1, Math.min(hLength, 64))];
 		for(State s: states) {
-			hScores.get(s)[0] = s.isFinal ? FINAL : NONE;
-		}
-		
-		//Process all states
-		for(int n = 1; n < hLength; n++) {
-			for(State s: states) {
-				hScores.get(s)[n] = computeHScore(s, n);
-			}
+			scores[s.id] = s.isFinal ? FINAL : NONE;
 		}
+
+		levelHashes = new HashMap<>();
+		findEqualLevel(scores, states.length, 0);
+		levels = new Levels(scores, states.length, 1, 0);
 	}
-	
-	private int computeHScore(State s, int n) {
-		int score = 0;
-		
-		Map<Integer, List<State>> transitions = this.getTransitions(s);
-		
-		//For each transition
-		for(Entry<Integer, List<State>> tr: transitions.entrySet()) {
-			//For each transition's end state
-			for(State endState: tr.getValue()) {
-				int add = getHScore(endState, n-1);
-				score = Integer.MAX_VALUE - score > add ? score + add : Integer.MAX_VALUE;
-			}
-		}
-		
-		return score;
-	}
-	
+
 	/**
 	 * Returns f_s(n), where s is the considered state and
 	 * n is the expected physical distance from a final state.
@@ -94,7 +96,235 @@ public class HRAutomaton extends RegisterAutomaton {
 	 * @return
 	 */
 	public int getHScore(State s, int n) {
-		return hScores.get(s)[n];
+		Levels l = levels;
+		if(n >= l.count && l.period == 0)
+			l = computeUpTo(n);
+
+		return l.scores[l.fold(n)*l.width + s.id];
+	}
+
+	//Computation
+	private synchronized Levels computeUpTo(int n) {
+		//Another thread may have computed level n, or folded the table, meanwhile
+		Levels l = levels;
+		if(n < l.count || l.period != 0)
+			return l;
+
+		int[] scores = l.scores;
+		int count = l.count;
+		final int width = l.width;
+
+		while(count <= n) {
+			if((count+1)*width > scores.length)
+				scores = Arrays.copyOf(scores, Math.max(2*scores.length, (count+1)*width));
+
+			computeLevel(scores, count);
+			count++;
+
+			//Stop as soon as a level repeats
+			int first = findEqualLevel(scores, width, count-1);
+			if(first >= 0) {
+				levels = new Levels(Arrays.copyOf(scores, (count-1)*width), width, first, count-1-first);
+				levelHashes = null;
+				return levels;
+			}
+		}
+
+		levels = new Levels(scores, width, count, 0);
+		return levels;
+	}
+
+	private void computeLevel(final int[] scores, final int n) {
+		if(states.length < PARALLEL_THRESHOLD) {
+			computeLevel(scores, n, 0, states.length);
+			return;
+		}
+
+		getPool().invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				List<RecursiveAction> chunks = new ArrayList<>();
+				for(int start = 0; start < states.length; start += PARALLEL_CHUNK) {
+					final int from = start;
+					final int to = Math.min(states.length, start + PARALLEL_CHUNK);
+					chunks.add(new RecursiveAction() {
+						private static final long serialVersionUID = 1L;
+
+						@Override
+						protected void compute() {
+							computeLevel(scores, n, from, to);
+						}
+					});
+				}
+				invokeAll(chunks);
+			}
+		});
+	}
+
+	private void computeLevel(int[] scores, int n, int from, int to) {
+		int width = states.length;
+		int previous = (n-1)*width;
+		int current = n*width;
+		int lastLabel = table.getNumLabels()-1;
+
+		for(int q = from; q < to; q++) {
+			int score = 0;
+
+			//For each transition, for each transition's end state (all labels are contiguous)
+			if(lastLabel >= 0) {
+				int end = table.successorsEnd(q, lastLabel);
+				for(int i = table.successorsStart(q, 0); i < end; i++) {
+					int add = scores[previous + table.getSuccessor(i)];
+					score = Integer.MAX_VALUE - score > add ? score + add : Integer.MAX_VALUE;
+				}
+			}
+
+			scores[current + q] = score;
+		}
+	}
+
+	/**
+	 * @param scores
+	 * @param width
+	 * @param n
+	 * @return the first level equal to level n, or -1 if there is none (n is then recorded)
+	 */
+	private int findEqualLevel(int[] scores, int width, int n) {
+		int hash = levelHash(scores, width, n);
+		List<Integer> candidates = levelHashes.get(hash);
+		if(candidates == null) {
+			candidates = new ArrayList<>(1);
+			levelHashes.put(hash, candidates);
+		}
+
+		for(int m : candidates) {
+			boolean equal = true;
+			for(int q = 0; q < width && equal; q++)
+				equal = scores[m*width + q] == scores[n*width + q];
+			if(equal)
+				return m;
+		}
+
+		candidates.add(n);
+		return -1;
+	}
+
+	private static int levelHash(int[] scores, int width, int n) {
+		int hash = 1;
+		for(int q = n*width; q < (n+1)*width; q++)
+			hash = 31*hash + scores[q];
+		return hash;
+	}
+
+	private static synchronized ForkJoinPool getPool() {
+		if(pool == null)
+			pool = new ForkJoinPool();
+		return pool;
+	}
+
+	//Access methods
+	/**
+	 * @return the number of levels (distances) stored in the heuristic table
+	 */
+	public int getStoredLevels() {
+		return levels.count;
+	}
+	/**
+	 * @return the length of the non-periodic prefix of the table, or the number
+	 * of computed levels if no period was found yet
+	 */
+	public int getPrefixLength() {
+		return levels.period == 0 ? levels.count : levels.prefix;
+	}
+	/**
+	 * @return the period of the heuristic, 0 if it is not known (yet)
+	 */
+	public int getPeriod() {
+		return levels.period;
+	}
+	/**
+	 * @return the number of bytes allocated to the heuristic table
+	 */
+	public long getHeuristicFootprint() {
+		return 4L*levels.scores.length;
+	}
+
+	/**
+	 * An immutable view of the computed levels: scores of state q at
+	 * level n are stored at scores[n*width + q].
+	 */
+	private static final class Levels {
+		private final int[] scores;
+		private final int width;
+		private final int count;
+		private final int prefix;
+		private final int period;
+
+		/**
+		 * @param scores
+		 * @param width
+		 * @param first if period > 0, the level the period starts at, otherwise the number of levels
+		 * @param period
+		 */
+		private Levels(int[] scores, int width, int first, int period) {
+			this.scores = scores;
+			this.width = width;
+			this.count = first + period;
+			this.prefix = first;
+			this.period = period;
+		}
+
+		private int fold(int n) {
+			if(period == 0 || n < prefix)
+				return n;
+			return prefix + (n-prefix) % period;
+		}
 	}
 
+	/**
+	 * A frozen heuristic automaton: levels are published safely already, and
+	 * the accessors are those of the frozen base (see {@link FrozenAutomaton}).
+	 */
+	private static final class Frozen extends HRAutomaton {
+		private final FrozenAutomaton base;
+
+		private Frozen(FrozenAutomaton base, int hlength) {
+			super(base, hlength);
+			this.base = base;
+		}
+
+		@Override
+		public Frozen freeze() {
+			return this;
+		}
+
+		@Override
+		public RegisterAutomaton derive(RegisterAutomaton base) {
+			return super.derive(base.freeze());
+		}
+
+		//Access methods
+		@Override
+		public State getInitialState() {
+			return base.getInitialState();
+		}
+		@Override
+		public State[] getStates() {
+			return base.getStates();
+		}
+		@Override
+		public TransitionTable getTransitionTable() {
+			return base.getTransitionTable();
+		}
+		@Override
+		public Map<State, Map<Integer, List<State>>> getTransitions() {
+			return base.getTransitions();
+		}
+		@Override
+		public int[] getInitialRegisters() {
+			return base.getInitialRegisters();
+		}
+	}
 }
@@ -2,6 +2,7 @@ package testbench;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -9,12 +10,14 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 
 import references.MembershipAlgorithms;
 import testbench.lister.FileWordLister;
 import testbench.lister.LargeFileLister;
 import testbench.lister.TestLister;
 import testbench.lister.TestWordLister;
+import testbench.lister.TraceBuffer;
 import testbench.programs.translator.SafeIterTranslator;
 import testbench.programs.translator.StrictHasNextTranslator;
 import testbench.programs.translator.TRFTranslator;
@@ -23,15 +26,23 @@ import testbench.sat.PigeonHoleGenerator;
 import testbench.tests.AsymptoticEmptinessTest;
 import testbench.tests.AsymptoticMembershipTest;
 import testbench.tests.ListMembershipTest;
+import testbench.tests.LongTraceMembershipTest;
+import testbench.tests.MultiPropertyTest;
+import testbench.tests.RegisterIndexTest;
 import algorithms.Emptiness;
 import algorithms.Membership;
 import algorithms.emptiness.EMPDecisionAlgorithm;
 import algorithms.emptiness.sat.RAToSatConverter;
 import algorithms.emptiness.sat.SATSolAnalyser;
 import algorithms.emptiness.sat.SmartRAToSatConverter;
+import algorithms.membership.Budget;
 import algorithms.membership.MBSDecisionAlgorithm;
+import algorithms.membership.dfs.FailureMemo;
+import algorithms.membership.pbflgs.LevelExpander;
 import algorithms.tools.ResultsContainer;
 import automata.Automaton;
+import automata.BinaryAutomatonFile;
+import automata.FMAParser;
 import automata.OptimisedRA;
 import automata.RegisterAutomaton;
 import automata.gen.AutomatonGenerator;
@@ -83,6 +94,13 @@ public class Testbench {
 			case "satgen":
 				satGenTest(); break;
 			case "mbs": mbsTests(args); break;
+			case "multi-mbs":
+				if(args.length < 5) {
+					System.out.println("Expecting a trace path, an output path, lockstep or parallel, and ALG:automaton pairs");
+					return;
+				}
+				multiPropertyTest(args);
+				break;
 			case "deterministic-check":
 				deterministicTest(); break;
 			case "synth":
@@ -138,6 +156,20 @@ public class Testbench {
 				}
 				gdcAsymptoticTest(args[1]);
 				break;
+			case "fma2fmb":
+				if(args.length < 2 || args.length > 3) {
+					System.out.println("Expecting an .fma path, and optionally an output path");
+					return;
+				}
+				fma2fmb(args[1], args.length == 3 ? args[2] : BinaryAutomatonFile.binaryPath(args[1]));
+				break;
+			case "register-index":
+				registerIndexTest(args.length > 1 ? Integer.parseInt(args[1]) : 64);
+				break;
+			case "long-traces":
+				longTraceTest(args.length > 1 ? args[1] : "res/has_next_final.fma",
+							  args.length > 2 ? Integer.parseInt(args[2]) : 1000000);
+				break;
 			case "auto":
 			default:
 				if (args.length != 4) {
@@ -153,6 +185,82 @@ public class Testbench {
 			e.printStackTrace();
 		}
 	}
+	/**
+	 * Convert a text automaton to the binary format, which loaders
+	 * will pick up automatically from then on.
+	 * @param fmaPath
+	 * @param fmbPath
+	 * @throws IOException 
+	 * @throws ParseException 
+	 */
+	private static void fma2fmb(String fmaPath, String fmbPath) throws IOException, ParseException {
+		if(fmaPath.endsWith("." + BinaryAutomatonFile.EXTENSION)) {
+			System.out.println("Expecting a text automaton, got " + fmaPath);
+			return;
+		}
+		
+		//Always parse the text file, even if an older binary exists
+		FMAParser parser = new FMAParser(fmaPath);
+		parser.parse();
+		long parseTime = parser.getParseTime();
+		System.out.println("Parsed " + parser.getLineCount() + " lines in " + parseTime + "ms (" 
+						   + (long) parser.getThroughput() + " lines/s)");
+		
+		RegisterAutomaton ra = new RegisterAutomaton(parser.getTable(), parser.getInitialState(), parser.getRegisters());
+		ra.displayInfo();
+		
+		BinaryAutomatonFile.write(ra, fmbPath);
+		
+		long start = System.currentTimeMillis();
+		BinaryAutomatonFile.load(fmbPath);
+		long loadTime = System.currentTimeMillis() - start;
+		
+		System.out.println("Binary automaton written to " + fmbPath);
+		System.out.println("Text parse: " + parseTime + "ms, binary load: " + loadTime + "ms");
+	}
+	/**
+	 * Find the register count from which the reverse register index 
+	 * beats a linear scan.
+	 * @param maxRegisters
+	 */
+	private static void registerIndexTest(int maxRegisters) {
+		List<Integer> counts = new ArrayList<>();
+		for(int n = 1; n <= maxRegisters; n = n < 16 ? n+1 : n*2)
+			counts.add(n);
+		
+		int[] registerCounts = new int[counts.size()];
+		for(int i = 0; i < registerCounts.length; i++)
+			registerCounts[i] = counts.get(i);
+		
+		Test t = new RegisterIndexTest(registerCounts, 2000000);
+		t.test();
+		
+		ResultsContainer.getContainer().flush();
+	}
+	/**
+	 * Membership on random traces of 10^3 symbols up to maxLength,
+	 * to check that the cost per symbol does not depend on the trace length.
+	 * @param path
+	 * @param maxLength
+	 */
+	private static void longTraceTest(String path, int maxLength) throws FileNotFoundException, ParseException {
+		List<Integer> lengths = new ArrayList<>();
+		for(int n = 1000; n <= maxLength; n *= 10)
+			lengths.add(n);
+		
+		int[] traceLengths = new int[lengths.size()];
+		for(int i = 0; i < traceLengths.length; i++)
+			traceLengths[i] = lengths.get(i);
+		
+		MBSDecisionAlgorithm[] algorithms = new MBSDecisionAlgorithm[] {
+				Membership.ldftsCheck, Membership.bfsCheck, Membership.bflgsCheck,
+				Membership.bestFirstCheck, Membership.aStarCheck };
+		
+		Test t = new LongTraceMembershipTest(new HRAutomaton(path, 0), algorithms, traceLengths, 12, 60000);
+		t.test();
+		
+		ResultsContainer.getContainer().flush();
+	}
 	private static void translateSAT(String mapFilename, String formulaFilename) throws FileNotFoundException {
 		SATSolAnalyser.translateFormula(mapFilename, formulaFilename);
 	}
@@ -312,16 +420,69 @@ public class Testbench {
 		HighLevelPropertyGenerator hlpg = new HighLevelPropertyGenerator("res/unique_servlet_output.hlp");
 		hlpg.generate();
 	}
-	public static void mbsTests(String[] args) throws FileNotFoundException, ParseException {
-		//Build resources
+	private static Map<String, MBSDecisionAlgorithm> membershipAlgorithms() {
 		Map<String, MBSDecisionAlgorithm> algorithms = new HashMap<>();
 		algorithms.put("LDFTS", Membership.ldftsCheck);
 		algorithms.put("BFLGS", Membership.bflgsCheck);
 		algorithms.put("OBFLGS", Membership.optiBflgsCheck);
 		algorithms.put("FBFLGS", Membership.forgetfulBflgsCheck);
+		algorithms.put("PFBFLGS", Membership.primitiveBflgsCheck);
+		algorithms.put("BBFLGS", Membership.bitsetBflgsCheck);
+		algorithms.put("MDFS", Membership.memoDfsCheck);
+		algorithms.put("SLICE", Membership.slicingCheck);
+		algorithms.put("ABFLGS", Membership.arenaBflgsCheck);
+		algorithms.put("PBFLGS", Membership.parallelBflgsCheck);
 		algorithms.put("GBFLGS", Membership.greedyCheck);
+		algorithms.put("ASTAR", Membership.aStarCheck);
+		algorithms.put("PORTFOLIO", Membership.portfolioCheck);
 		algorithms.put("BFS", Membership.bfsCheck);
+		algorithms.put("CDET", Membership.compiledDeterministicCheck);
 		algorithms.put("HNP-REF", MembershipAlgorithms.hasNextTrueRef);
+		return algorithms;
+	}
+	/**
+	 * @param algorithms see {@link #membershipAlgorithms()}
+	 * @param name
+	 * @return the algorithm called name
+	 * @throws IllegalArgumentException if there is none
+	 */
+	private static MBSDecisionAlgorithm findAlgorithm(Map<String, MBSDecisionAlgorithm> algorithms, String name) {
+		MBSDecisionAlgorithm algorithm = algorithms.get(name);
+		if(algorithm == null)
+			throw new IllegalArgumentException("Unknown algorithm '" + name + "', expecting one of " 
+											   + new TreeSet<>(algorithms.keySet()));
+		return algorithm;
+	}
+	/**
+	 * @param algorithm the name of an algorithm, see {@link #membershipAlgorithms()}
+	 * @param path
+	 * @return the automaton of path, of the kind the algorithm expects
+	 * @throws FileNotFoundException
+	 * @throws ParseException
+	 */
+	private static Automaton loadAutomaton(String algorithm, String path) throws FileNotFoundException, ParseException {
+		switch(algorithm) {
+		case "GBFLGS":
+			GreedyRA gra = new GreedyRA(path);
+			gra.displayInfo();
+			return gra;
+		case "ASTAR":
+			HRAutomaton hra = new HRAutomaton(path, 0);
+			hra.displayInfo();
+			return hra;
+		case "":
+			OptimisedRA ora = new OptimisedRA(path);
+			ora.displayInfo();
+			return ora;
+		default:
+			RegisterAutomaton ra = new RegisterAutomaton(path);
+			ra.displayInfo();
+			return ra;
+		}
+	}
+	public static void mbsTests(String[] args) throws FileNotFoundException, ParseException {
+		//Build resources
+		Map<String, MBSDecisionAlgorithm> algorithms = membershipAlgorithms();
 		
 		//Parse arguments
 		String chosenAlgorithm = args[1];
@@ -329,30 +490,57 @@ public class Testbench {
 		String tracePath = args[3];
 		String difficulty = args[4];
 		String outputPath = args[5];
+		boolean minimise = false;
+		boolean canonicalise = false;
+		boolean count = false;
+		long maxMillis = 0, maxNodes = 0, maxBytes = 0;
+		for(int i = 6; i < args.length; i++) {
+			if(args[i].equals("minimise"))
+				minimise = true;
+			else if(args[i].equals("canonicalise"))
+				canonicalise = true;
+			else if(args[i].equals("count"))
+				count = true;
+			else if(args[i].startsWith("threshold="))
+				LevelExpander.setThreshold(Integer.parseInt(args[i].substring("threshold=".length())));
+			else if(args[i].startsWith("memo="))
+				FailureMemo.setCapacity(Integer.parseInt(args[i].substring("memo=".length())));
+			else if(args[i].startsWith("slice="))
+				Membership.slicingCheck.setSliceAlgorithm(findAlgorithm(algorithms, args[i].substring("slice=".length())));
+			else if(args[i].startsWith("event="))
+				Membership.slicingCheck.setEventLength(Integer.parseInt(args[i].substring("event=".length())));
+			else if(args[i].startsWith("finalize=")) {
+				String[] codes = args[i].substring("finalize=".length()).split(",");
+				int[] finalizeCodes = new int[codes.length];
+				for(int c = 0; c < codes.length; c++)
+					finalizeCodes[c] = Integer.parseInt(codes[c]);
+				Membership.slicingCheck.setFinalizeCodes(finalizeCodes);
+			}
+			else if(args[i].startsWith("members=")) {
+				String[] names = args[i].substring("members=".length()).split(",");
+				MBSDecisionAlgorithm[] members = new MBSDecisionAlgorithm[names.length];
+				for(int m = 0; m < names.length; m++)
+					members[m] = findAlgorithm(algorithms, names[m]);
+				Membership.portfolioCheck.setMembers(members);
+			}
+			else if(args[i].startsWith("time="))
+				maxMillis = Long.parseLong(args[i].substring("time=".length()));
+			else if(args[i].startsWith("nodes="))
+				maxNodes = Long.parseLong(args[i].substring("nodes=".length()));
+			else if(args[i].startsWith("memory="))
+				maxBytes = Long.parseLong(args[i].substring("memory=".length())) << 20;
+		}
 		
 		//Build parameters
 		MBSDecisionAlgorithm[] chosenAlgorithms = {
 				algorithms.get(chosenAlgorithm)
 		};
+		chosenAlgorithms[0].setMinimising(minimise);
+		chosenAlgorithms[0].setCanonicalising(canonicalise);
+		chosenAlgorithms[0].setCounting(count);
+		chosenAlgorithms[0].setBudget(new Budget(maxMillis, maxNodes, maxBytes));
 		
-		Automaton a = null;
-		
-		switch(chosenAlgorithm) {
-		case "GBFLGS":
-			GreedyRA gra = new GreedyRA(automaton);
-			gra.displayInfo();
-			a = gra;
-			break;
-		case "":
-			OptimisedRA ora = new OptimisedRA(automaton);
-			ora.displayInfo();
-			a = ora;
-			break;
-		default:
-			RegisterAutomaton ra = new RegisterAutomaton(automaton);
-			ra.displayInfo();
-			a = ra;
-		}
+		Automaton a = loadAutomaton(chosenAlgorithm, automaton);
 		
 		TestLister<List<Integer>> twg = null;
 		if(difficulty.trim().equals("all")) {
@@ -365,11 +553,46 @@ public class Testbench {
 		}
 		
 
-		Test lmt = new ListMembershipTest(a, chosenAlgorithms, twg, outputPath);
+		ListMembershipTest lmt = new ListMembershipTest(a, chosenAlgorithms, twg, outputPath);
+		//Parallel results must agree with the sequential search
+		if(chosenAlgorithms[0] == Membership.parallelBflgsCheck)
+			lmt.setReference(Membership.bflgsCheck);
 		lmt.test();
 
 		ResultsContainer.getContainer().flush();
 	}
+	/**
+	 * Check one trace against several properties, decoding it once: 
+	 * multi-mbs trace output lockstep|parallel ALG:automaton...
+	 * (properties are named after their automata)
+	 * @param args
+	 * @throws IOException
+	 * @throws ParseException
+	 */
+	private static void multiPropertyTest(String[] args) throws IOException, ParseException {
+		Map<String, MBSDecisionAlgorithm> algorithms = membershipAlgorithms();
+		TraceBuffer trace = TraceBuffer.load(args[1]);
+		String outputPath = args[2];
+		boolean parallel = args[3].equals("parallel");
+		
+		int n = args.length-4;
+		String[] properties = new String[n];
+		Automaton[] automata = new Automaton[n];
+		MBSDecisionAlgorithm[] chosenAlgorithms = new MBSDecisionAlgorithm[n];
+		for(int i = 0; i < n; i++) {
+			String[] tokens = args[4+i].split(":", 2);
+			String name = new File(tokens[1]).getName();
+			properties[i] = name.substring(0, name.lastIndexOf('.') > 0 ? name.lastIndexOf('.') : name.length()) 
+							+ " (" + tokens[0] + ")";
+			chosenAlgorithms[i] = algorithms.get(tokens[0]);
+			automata[i] = loadAutomaton(tokens[0], tokens[1]);
+		}
+		
+		MultiPropertyTest mpt = new MultiPropertyTest(trace, properties, automata, chosenAlgorithms, parallel, outputPath);
+		mpt.test();
+		
+		ResultsContainer.getContainer().flush();
+	}
 	/**
 	 * Tests for membership on sequences of (automaton, word)
 	 * 
@@ -940,6 +1163,7 @@ public class Testbench {
 		
 		MBSDecisionAlgorithm[] algorithms = {
 				Membership.deterministicCheck,
+				Membership.compiledDeterministicCheck,
 		};
 		
 		ListMembershipTest lmt = new ListMembershipTest(ra, algorithms, twg);
@@ -110,5 +110,10 @@ public class FileWordLister extends TestLister<List<Integer>> {
 	public int size() {
 		return (int) (1.0/testStep);
 	}
+	
+	@Override
+	public boolean listsPrefixes() {
+		return true;
+	}
 
 }
@@ -42,4 +42,12 @@ public abstract class TestLister<T> implements Iterable<T> {
 	public int getIndex() {
 		return index-1;
 	}
+	
+	/**
+	 * @return true if each resource extends the previous one, as the
+	 * growing prefixes of a single word do
+	 */
+	public boolean listsPrefixes() {
+		return false;
+	}
 }
@@ -27,5 +27,10 @@ public class TestWordLister extends TestLister<List<Integer>> {
 	public int size() {
 		return (int) (testPercentage/testStep);
 	}
+	
+	@Override
+	public boolean listsPrefixes() {
+		return true;
+	}
 
 }
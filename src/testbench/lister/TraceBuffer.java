@@ -0,0 +1,87 @@
+package testbench.lister;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * <p>A trace file decoded once into an array of ints, in the format read by
+ * {@link FileWordLister}: two header lines, then one symbol per line, until the
+ * end of the file or a line starting with "-".</p>
+ * <p>The buffer is read-only: one buffer can be read by several algorithms at the
+ * same time, symbol by symbol or as a list (see {@link #asList()}).</p>
+ * @author vincent
+ *
+ */
+public final class TraceBuffer {
+	private static final int MIN_CAPACITY = 1 << 10;
+
+	private final int[] symbols;
+
+	private TraceBuffer(int[] symbols) {
+		this.symbols = symbols;
+	}
+
+	/**
+	 * @param filename
+	 * @return the decoded trace of filename
+	 * @throws IOException
+	 */
+	public static TraceBuffer load(String filename) throws IOException {
+		int[] symbols = new int[MIN_CAPACITY];
+		int size = 0;
+
+		try(BufferedReader br = new BufferedReader(new FileReader(filename))) {
+			br.readLine();
+			br.readLine();
+			for(String line; (line = br.readLine()) != null;) {
+				if(line.startsWith("-") || line.isEmpty())
+					break;
+				if(size == symbols.length)
+					symbols = Arrays.copyOf(symbols, 2*size);
+				symbols[size++] = Integer.parseInt(line.trim());
+			}
+		}
+
+		return new TraceBuffer(Arrays.copyOf(symbols, size));
+	}
+
+	/**
+	 * @param i
+	 * @return the symbol at position i
+	 */
+	public int get(int i) {
+		return symbols[i];
+	}
+
+	/**
+	 * @return the length of the trace
+	 */
+	public int size() {
+		return symbols.length;
+	}
+
+	/**
+	 * @return an unmodifiable view of the trace, for algorithms that read lists
+	 */
+	public List<Integer> asList() {
+		return new SymbolList();
+	}
+
+	//Tools
+	private class SymbolList extends AbstractList<Integer> implements RandomAccess {
+		@Override
+		public Integer get(int index) {
+			return symbols[index];
+		}
+
+		@Override
+		public int size() {
+			return symbols.length;
+		}
+	}
+}
@@ -19,6 +19,10 @@ import java.util.WeakHashMap;
 import testbench.programs.translator.trf.EqualityEvaluator;
 import testbench.programs.translator.trf.RuleEvaluator;
 import testbench.programs.translator.trf.SubClassEvaluator;
+import algorithms.Membership;
+import algorithms.membership.Monitor;
+import algorithms.membership.Monitor.Verdict;
+import automata.RegisterAutomaton;
 
 /**
  * <p>This class should be inserted at runtime, and called upon
@@ -43,6 +47,7 @@ public class Tracer {
 	private String startMethod;
 	private String endMethod;
 	private boolean enforceLimit = false;
+	private String monitorFilename = null;
 	
 	//Resources
 	private Map<String, RuleEvaluator> rules = new HashMap<>();
@@ -52,6 +57,10 @@ public class Tracer {
 	private Set<Class<?>> subclasses = new HashSet<>();
 	private Map<String, Set<String>> clToMethods;
 	private PrintWriter output;
+	/**
+	 * Checks the trace while it is produced, if an automaton was given
+	 */
+	private Monitor monitor = null;
 	
 	private int uniqueIDCount = 2;
 	
@@ -87,6 +96,16 @@ public class Tracer {
 		
 		//Create output file
 		initOutputFile(outputFilename);
+		
+		//Load online monitor
+		if(monitorFilename != null)
+			loadMonitor(monitorFilename);
+	}
+	private void loadMonitor(String filename) throws Exception {
+		System.out.println("- Loading monitor automaton...");
+		RegisterAutomaton ra = new RegisterAutomaton(filename);
+		monitor = Membership.bflgsCheck.createMonitor(Membership.bflgsCheck.createContext(ra));
+		System.out.println("- Trace will be monitored with " + Membership.bflgsCheck + ".");
 	}
 	private void loadSubclasses() {
 		System.out.println("- Loading subclasses...");
@@ -136,6 +155,8 @@ public class Tracer {
 			case "limit":
 				enforceLimit = Boolean.parseBoolean(value);
 				break;
+			case "monitor":
+				monitorFilename = value; break;
 			default:
 				throw new Exception("Unrecognised option '" + label + "'");
 			}
@@ -281,6 +302,8 @@ public class Tracer {
 		System.out.println("(i) Events: " + relevantExits);
 		System.out.println("(i) Numbers: " + numTrNumbers);
 		System.out.println("(i) Trace calls: " + entries);
+		if(monitor != null)
+			System.out.println("(i) Monitor verdict: " + monitor.verdict());
 	}
 	/**
 	 * Call for every method call that should be traced. 
@@ -439,10 +462,14 @@ public class Tracer {
 		
 		for(Integer i : numbers) {
 			output.print(i + "\n");
+			
+			if(monitor != null && monitor.verdict() == Verdict.PENDING 
+			   && monitor.onSymbol(i) == Verdict.VIOLATED)
+				System.out.println("(!) Property violated after " + String.format("%,d", numTrNumbers + 1) + " numbers");
+			numTrNumbers++;
 		}
 		
 		relevantExits++;
-		numTrNumbers += numbers.size();
 	}
 	
 	//SINGLETON
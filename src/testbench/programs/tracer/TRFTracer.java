@@ -21,6 +21,10 @@ import testbench.programs.translator.Translator;
 import testbench.programs.translator.trf.EqualityEvaluator;
 import testbench.programs.translator.trf.RuleEvaluator;
 import testbench.programs.translator.trf.SubClassEvaluator;
+import algorithms.Membership;
+import algorithms.membership.Monitor;
+import algorithms.membership.Monitor.Verdict;
+import automata.RegisterAutomaton;
 
 import com.sun.jdi.Bootstrap;
 import com.sun.jdi.Location;
@@ -78,6 +82,10 @@ public class TRFTracer {
 	private int lastSignal = 0;
 	
 	private Date startDate;
+	/**
+	 * Checks the trace while it is produced, if an automaton was given
+	 */
+	private Monitor monitor = null;
 	
 	//Environment resources
 	private VirtualMachine vm;
@@ -322,7 +330,9 @@ public class TRFTracer {
 		output.println();
 		output.println("-- Numbers: " + numTrNumbers + ", Events: " + relevantExits);
 		output.println("-- It took " + diffHours + "h" + diffMinutes + "min" + diffSeconds + "s to complete this trace");
-		output.close();
+		output.close();		
+		if(monitor != null)
+			System.out.println("Monitor verdict: " + monitor.verdict());
 	}
 	
 	//Translation methods from TRF
@@ -440,10 +450,19 @@ public class TRFTracer {
 		
 		for(Integer i : numbers) {
 			output.print(i + " ");
+			
+			if(monitor != null && monitor.verdict() == Verdict.PENDING 
+			   && monitor.onSymbol(i) == Verdict.VIOLATED)
+				System.out.println("(!) Property violated after " + (numTrNumbers + 1) + " numbers");
+			numTrNumbers++;
 		}
 		
 		relevantExits++;
-		numTrNumbers += numbers.size();
+	}
+	private void loadMonitor(String filename) throws Exception {
+		RegisterAutomaton ra = new RegisterAutomaton(filename);
+		monitor = Membership.bflgsCheck.createMonitor(Membership.bflgsCheck.createContext(ra));
+		System.out.println("Trace will be monitored with " + Membership.bflgsCheck + " on " + filename);
 	}
 	protected String reconstructMethod(String cl, String method, String rv) {
 		return cl + "." + method + ":" + rv;
@@ -475,6 +494,10 @@ public class TRFTracer {
 			else
 				initOutputFile(null);
 			
+			//Monitor the trace online
+			if(args.length >= 7)
+				loadMonitor(args[6]);
+			
 			//Listen for events
 			listenForMethodExits();
 		} catch (Exception e) {
@@ -54,9 +54,13 @@ public class AsymptoticEmptinessTest extends Test {
 			for(int algIndex = 0; algIndex < algorithms.length; algIndex++) {
 				EMPDecisionAlgorithm algorithm = algorithms[algIndex];
 				
+				//PREPARE AUTOMATON
+				EMPDecisionAlgorithm.Context context = algorithm.createContext(a);
+				RegisterAutomaton prepared = context.automaton;
+				
 				//TEST CORE
 				long cTime = System.currentTimeMillis();			
-				result = algorithm.decide(a);
+				result = algorithm.decide(context);
 				long testTime = System.currentTimeMillis()-cTime;
 				
 				//Record results
@@ -73,6 +77,8 @@ public class AsymptoticEmptinessTest extends Test {
 				rc.addSessionNumber(algorithm.name, "|Q|", a.getStates().length);
 				rc.addSessionNumber(algorithm.name, "R", a.getInitialRegisters().length);
 				rc.addSessionNumber(algorithm.name, "|mu|", a.countTransitions());
+				rc.addSessionNumber(algorithm.name, "|Q| prepared", prepared.getStates().length);
+				rc.addSessionNumber(algorithm.name, "|mu| prepared", prepared.countTransitions());
 				signalProgression(true);
 			}
 			
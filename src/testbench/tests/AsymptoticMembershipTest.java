@@ -64,11 +64,12 @@ public class AsymptoticMembershipTest extends Test {
 				MBSDecisionAlgorithm algorithm = algorithms[algIndex];
 				
 				//PREPARE AUTOMATON
-				algorithm.setAutomaton(a);
+				MBSDecisionAlgorithm.Context context = algorithm.createContext(a);
+				RegisterAutomaton prepared = (RegisterAutomaton) context.automaton;
 				
 				//TEST CORE
 				long cTime = System.currentTimeMillis();			
-				result = algorithm.decide(a, testWord);
+				result = algorithm.decide(context, testWord);
 				long testTime = System.currentTimeMillis()-cTime;
 				
 				//Record results
@@ -82,6 +83,10 @@ public class AsymptoticMembershipTest extends Test {
 					previousResult = result;
 				
 				rc.addSessionNumber(algorithm.name, "Word Size", testWord.size());
+				rc.addSessionNumber(algorithm.name, "|Q|", a.getStates().length);
+				rc.addSessionNumber(algorithm.name, "|Q| prepared", prepared.getStates().length);
+				rc.addSessionNumber(algorithm.name, "|mu|", a.countTransitions());
+				rc.addSessionNumber(algorithm.name, "|mu| prepared", prepared.countTransitions());
 				signalProgression();
 			}
 			
@@ -5,22 +5,43 @@ import java.util.List;
 import testbench.Test;
 import testbench.TestException;
 import testbench.lister.TestLister;
+import algorithms.membership.BoundedDecision;
+import algorithms.membership.Budget;
+import algorithms.membership.IncrementalSearch;
 import algorithms.membership.MBSDecisionAlgorithm;
+import algorithms.membership.Outcome;
 import algorithms.tools.ResultsContainer;
 import automata.Automaton;
+import automata.RegisterAutomaton;
 
 /**
  * A multiple membership test, comparing several algorithms (LDFTS, BFLGS, ...).
  * Take a lot of words of various lengths and compare performances. 
+ * If the words are growing prefixes of one word (see {@link TestLister#listsPrefixes()}),
+ * algorithms that can resume their search (see {@link IncrementalSearch}) only read
+ * the symbols added since the previous prefix: the whole series costs one pass, and
+ * the time recorded for a prefix is the time spent on its new symbols (counting
+ * algorithms, see {@link MBSDecisionAlgorithm#setCounting(boolean)}, are not resumed).
+ * Algorithms with a budget (see {@link MBSDecisionAlgorithm#setBudget(Budget)}) decide
+ * each word from scratch, within their budget: words on which the budget runs out
+ * are recorded as unknown, and are not checked for consistency.
  * @author vincent
  */
 public class ListMembershipTest extends Test {
 	private final TestLister<List<Integer>> twg;
 	private final MBSDecisionAlgorithm[] algorithms;
+	/**
+	 * Untimed algorithm all results are checked against, if any
+	 */
+	private MBSDecisionAlgorithm reference = null;
 	
 	//Internal stats
 	private int successMemberships = 0;
 	private int[] totalTimes;
+	private final int[] unknowns;
+	private final boolean[] incremental;
+	private final int[] preparedStates;
+	private final int[] preparedTransitions;
 	
 	public ListMembershipTest(Automaton a, 
 								MBSDecisionAlgorithm[] algorithms, 
@@ -31,6 +52,10 @@ public class ListMembershipTest extends Test {
 		
 		maxProgression = twg.size()*algorithms.length;
 		totalTimes = new int[algorithms.length];
+		unknowns = new int[algorithms.length];
+		incremental = new boolean[algorithms.length];
+		preparedStates = new int[algorithms.length];
+		preparedTransitions = new int[algorithms.length];
 	}
 	
 	public ListMembershipTest(Automaton a, 
@@ -43,18 +68,35 @@ public class ListMembershipTest extends Test {
 		
 		maxProgression = twg.size()*algorithms.length;
 		totalTimes = new int[algorithms.length];
+		unknowns = new int[algorithms.length];
+		incremental = new boolean[algorithms.length];
+		preparedStates = new int[algorithms.length];
+		preparedTransitions = new int[algorithms.length];
 	}
 
 	@Override
 	protected void run() throws TestException {
 		//Consistency checks are integrated in the tests themselves
-		boolean result = false;
+		Outcome result = null;
+		//Resumed searches, if words are growing prefixes (and need not be looked ahead)
+		IncrementalSearch[] searches = new IncrementalSearch[algorithms.length];
+		if(twg.listsPrefixes()) {
+			for(int algIndex = 0; algIndex < algorithms.length; algIndex++) {
+				if(algorithms[algIndex].isCanonicalising() || algorithms[algIndex].isCounting() 
+				   || isBounded(algorithms[algIndex]))
+					continue;
+				searches[algIndex] = algorithms[algIndex].startSearch();
+				incremental[algIndex] = searches[algIndex] != null;
+			}
+		}
+		
 		//make the tests
 		//For each word, test each algorithm
 		for(List<Integer> testWord : twg) {
 			System.out.println("Current word size: " + testWord.size() + " symbols");
 			
-			boolean previousResult = false;
+			Outcome previousResult = null;
+			boolean expected = reference != null && reference.decide(testWord);
 			
 			for(int algIndex = 0; algIndex < algorithms.length; algIndex++) {
 				signalProgression();
@@ -62,20 +104,43 @@ public class ListMembershipTest extends Test {
 				MBSDecisionAlgorithm algorithm = algorithms[algIndex];
 				
 				//TEST CORE
-				long cTime = System.currentTimeMillis();			
-				result = algorithm.decide(testWord);
+				IncrementalSearch search = searches[algIndex];
+				long cTime = System.currentTimeMillis();
+				BoundedDecision decision = null;
+				if(search != null) {
+					//Only read the new symbols
+					search.read(testWord, search.getPosition(), testWord.size());
+					result = Outcome.of(search.accepts());
+				} else if(isBounded(algorithm)) {
+					decision = algorithm.decideWithin(testWord);
+					result = decision.outcome;
+				} else
+					result = Outcome.of(algorithm.decide(testWord));
 				long testTime = System.currentTimeMillis()-cTime;
 				
 				//Record results
-				successMemberships += result ? 1 : 0;
+				successMemberships += result == Outcome.MEMBER ? 1 : 0;
 				rc.addSessionNumber(algorithm.name, "Time", (int)testTime);
 				totalTimes[algIndex] += testTime;
+				if(decision != null) {
+					rc.addSessionNumber(algorithm.name, "Unknown", decision.isDecided() ? 0 : 1);
+					rc.addSessionNumber(algorithm.name, "Nodes", (int) Math.min(decision.nodes, Integer.MAX_VALUE));
+					rc.addSessionNumber(algorithm.name, "Memory (KB)", (int) Math.min(decision.peakBytes >> 10, Integer.MAX_VALUE));
+				}
 				
-				if(algIndex > 0 && previousResult != result)
+				//Unknown verdicts agree with anything
+				if(result == Outcome.UNKNOWN) {
+					unknowns[algIndex]++;
+					System.out.println(algorithm + ": " + decision);
+				} else if(previousResult != null && previousResult != result)
 					throw new TestException("Consistency failure: algorithms disagree on " + testWord.toString());
 				else
 					previousResult = result;
 				
+				if(reference != null && result != Outcome.UNKNOWN && expected != (result == Outcome.MEMBER))
+					throw new TestException("Consistency failure: " + algorithm + " disagrees with " + reference 
+											+ " on " + testWord.toString());
+				
 				rc.addSessionNumber(algorithm.name, "Word Size", testWord.size());
 				algorithm.yieldStatistics(rc);
 			}
@@ -97,11 +162,27 @@ public class ListMembershipTest extends Test {
 		for(int algIndex = 0; algIndex < algorithms.length; algIndex++) {
 			MBSDecisionAlgorithm algorithm = algorithms[algIndex];
 			
-			rc.println(algorithm + " total execution time:   " + prettyPrintMillis(totalTimes[algIndex]));
+			rc.println(algorithm + " total execution time:   " + prettyPrintMillis(totalTimes[algIndex])
+					   + (incremental[algIndex] ? " (incremental, one pass)" : "")
+					   + (algorithm.isCanonicalising() ? " (canonicalising)" : ""));
 			if(twg.size() > 0)
 				rc.println(algorithm + " average execution time: " + prettyPrintMillis(totalTimes[algIndex]/twg.size()));
 			else
 				rc.println(algorithm + " average execution time unkown.");
+			if(isBounded(algorithm))
+				rc.println(algorithm + " budget (" + algorithm.getBudget() + ") ran out on " 
+						   + unknowns[algIndex] + "/" + twg.size() + " words");
+		}
+		
+		if(a instanceof RegisterAutomaton) {
+			RegisterAutomaton ra = (RegisterAutomaton) a;
+			rc.println("");
+			rc.println("Automaton: " + ra.getStates().length + " states, " + ra.countTransitions() + " transitions");
+			for(int algIndex = 0; algIndex < algorithms.length; algIndex++) {
+				if(algorithms[algIndex].isMinimising())
+					rc.println(algorithms[algIndex] + " minimised automaton: " + preparedStates[algIndex] + " states, " 
+							   + preparedTransitions[algIndex] + " transitions");
+			}
 		}
 		
 		rc.println("");
@@ -111,11 +192,33 @@ public class ListMembershipTest extends Test {
 	@Override
 	protected void prepare() {
 		//This method will allow to pre-process automata if necessary.
-		for(MBSDecisionAlgorithm da : algorithms) {
+		for(int algIndex = 0; algIndex < algorithms.length; algIndex++) {
+			MBSDecisionAlgorithm da = algorithms[algIndex];
 			System.out.print("Preparing " + da + "... ");
-			da.setAutomaton(a);
+			Automaton prepared = da.prepare(a);
+			if(prepared instanceof RegisterAutomaton) {
+				preparedStates[algIndex] = ((RegisterAutomaton) prepared).getStates().length;
+				preparedTransitions[algIndex] = ((RegisterAutomaton) prepared).countTransitions();
+			}
 			System.out.println("[OK]");
 		}
+		
+		if(reference != null)
+			reference.prepare(a);
+	}
+	
+	/**
+	 * Check every result against the given algorithm (typically the sequential
+	 * version of a parallel one). The reference is not timed.
+	 * @param reference
+	 */
+	public void setReference(MBSDecisionAlgorithm reference) {
+		this.reference = reference;
+	}
+	
+	//Tools
+	private static boolean isBounded(MBSDecisionAlgorithm algorithm) {
+		return !algorithm.getBudget().isUnlimited();
 	}
 
 }
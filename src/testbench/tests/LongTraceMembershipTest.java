@@ -0,0 +1,118 @@
+package testbench.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import testbench.Test;
+import testbench.TestException;
+import algorithms.membership.MBSDecisionAlgorithm;
+import algorithms.tools.ResultsContainer;
+import automata.RegisterAutomaton;
+
+/**
+ * <p>Regression benchmark for membership on long traces (typically 10^3 up to
+ * 10^6 symbols). Search states only hold a position in the word, so the time
+ * per symbol should stay flat as traces get longer; it used to grow linearly
+ * when states held (and hashed) the rest of the word.</p>
+ * <p>Words are drawn uniformly from a small alphabet. An algorithm is not run
+ * on longer traces once it has exceeded the time budget.</p>
+ * @author vincent
+ *
+ */
+public class LongTraceMembershipTest extends Test {
+	private final MBSDecisionAlgorithm[] algorithms;
+	private final int[] lengths;
+	private final int alphabetSize;
+	private final long timeBudget;
+
+	//Results
+	private final int[][] times;
+	private final int[] memberships;
+
+	/**
+	 * @param a
+	 * @param algorithms
+	 * @param lengths trace lengths, increasing
+	 * @param alphabetSize symbols are drawn from 0 to alphabetSize-1
+	 * @param timeBudget in ms, per algorithm and trace
+	 */
+	public LongTraceMembershipTest(RegisterAutomaton a,
+								   MBSDecisionAlgorithm[] algorithms,
+								   int[] lengths,
+								   int alphabetSize,
+								   long timeBudget) {
+		super("Long trace membership", a);
+		this.algorithms = algorithms;
+		this.lengths = lengths;
+		this.alphabetSize = alphabetSize;
+		this.timeBudget = timeBudget;
+
+		maxProgression = lengths.length*algorithms.length;
+		times = new int[algorithms.length][lengths.length];
+		memberships = new int[lengths.length];
+	}
+
+	@Override
+	protected void prepare() {
+		for(MBSDecisionAlgorithm da : algorithms)
+			da.setAutomaton(a);
+	}
+
+	@Override
+	protected void run() throws TestException {
+		Random random = new Random(lengths.length);
+		boolean[] overBudget = new boolean[algorithms.length];
+
+		for(int i = 0; i < lengths.length; i++) {
+			List<Integer> word = new ArrayList<>(lengths[i]);
+			for(int k = 0; k < lengths[i]; k++)
+				word.add(random.nextInt(alphabetSize));
+
+			System.out.println("Current word size: " + word.size() + " symbols");
+
+			Boolean previousResult = null;
+			for(int algIndex = 0; algIndex < algorithms.length; algIndex++) {
+				signalProgression();
+				if(overBudget[algIndex]) {
+					times[algIndex][i] = -1;
+					continue;
+				}
+
+				long cTime = System.currentTimeMillis();
+				boolean result = algorithms[algIndex].decide(word);
+				long testTime = System.currentTimeMillis()-cTime;
+
+				times[algIndex][i] = (int) testTime;
+				overBudget[algIndex] = testTime > timeBudget;
+
+				if(previousResult != null && previousResult != result)
+					throw new TestException("Consistency failure: algorithms disagree on a word of size " + word.size());
+				previousResult = result;
+				memberships[i] = result ? 1 : 0;
+			}
+		}
+
+		signalProgression();
+
+		addCsvColumn(lengths, "Length");
+		for(int algIndex = 0; algIndex < algorithms.length; algIndex++)
+			addCsvColumn(times[algIndex], algorithms[algIndex] + " (ms)");
+		addCsvColumn(memberships, "Member");
+	}
+
+	@Override
+	protected void customPrint(ResultsContainer rc) {
+		for(int algIndex = 0; algIndex < algorithms.length; algIndex++) {
+			StringBuilder sb = new StringBuilder(algorithms[algIndex] + " ns/symbol:");
+			for(int i = 0; i < lengths.length; i++) {
+				sb.append(" ").append(lengths[i]).append("=");
+				if(times[algIndex][i] < 0)
+					sb.append("skipped");
+				else
+					sb.append(times[algIndex][i]*1000000L/lengths[i]);
+			}
+			rc.println(sb.toString());
+		}
+	}
+}
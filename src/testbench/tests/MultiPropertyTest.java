@@ -0,0 +1,210 @@
+package testbench.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import testbench.Test;
+import testbench.TestException;
+import testbench.lister.TraceBuffer;
+import algorithms.membership.IncrementalSearch;
+import algorithms.membership.MBSDecisionAlgorithm;
+import algorithms.tools.ResultsContainer;
+import automata.Automaton;
+
+/**
+ * <p>Check one trace against several properties in a single pass: the trace is
+ * decoded once (see {@link TraceBuffer}) and every symbol is given to one
+ * membership engine per property, instead of reading the trace file once per
+ * property.</p>
+ * <p>In lockstep, engines read the buffer block by block on the calling thread,
+ * through the resumable searches of their algorithms (see {@link IncrementalSearch});
+ * engines that cannot resume their searches read the whole buffer afterwards.
+ * In parallel, each engine reads the whole buffer on its own thread, over a
+ * frozen automaton.</p>
+ * <p>Each property has its own session in the results container, named after
+ * the property, holding its verdict, time and number of symbols read (the
+ * whole trace for engines that are not resumed). Parallel engines are only
+ * thread-safe if statistics are not collected.</p>
+ * @author vincent
+ *
+ */
+public class MultiPropertyTest extends Test {
+	private static final int BLOCK_SIZE = 1 << 12;
+
+	private final TraceBuffer trace;
+	private final String[] properties;
+	private final Automaton[] automata;
+	private final MBSDecisionAlgorithm[] algorithms;
+	private final boolean parallel;
+
+	//Engines
+	private final MBSDecisionAlgorithm.Context[] contexts;
+
+	//Results
+	private final boolean[] memberships;
+	private final long[] times;
+	private final int[] symbolsRead;
+
+	/**
+	 * @param trace
+	 * @param properties the names of the properties, which name their sessions
+	 * @param automata the automaton of each property
+	 * @param algorithms the algorithm of each property
+	 * @param parallel if true, each property is checked on its own thread
+	 * @param outputFilename
+	 */
+	public MultiPropertyTest(TraceBuffer trace,
+							 String[] properties,
+							 Automaton[] automata,
+							 MBSDecisionAlgorithm[] algorithms,
+							 boolean parallel,
+							 String outputFilename) {
+		super("Multi-property membership", null, outputFilename);
+		this.trace = trace;
+		this.properties = properties;
+		this.automata = automata;
+		this.algorithms = algorithms;
+		this.parallel = parallel;
+
+		maxProgression = properties.length;
+		contexts = new MBSDecisionAlgorithm.Context[properties.length];
+		memberships = new boolean[properties.length];
+		times = new long[properties.length];
+		symbolsRead = new int[properties.length];
+	}
+
+	@Override
+	protected void prepare() {
+		//Contexts over frozen automata can be shared between threads
+		for(int p = 0; p < properties.length; p++) {
+			contexts[p] = algorithms[p].createContext(parallel ? automata[p].freeze() : automata[p]);
+			rc.createSession(properties[p]);
+		}
+	}
+
+	@Override
+	protected void run() throws TestException {
+		if(parallel)
+			runParallel();
+		else
+			runLockstep();
+
+		//Sessions stay separate per property
+		for(int p = 0; p < properties.length; p++) {
+			rc.addSessionNumber(properties[p], "member", memberships[p] ? 1 : 0);
+			rc.addSessionNumber(properties[p], "time", (int) (times[p]/1000000));
+			rc.addSessionNumber(properties[p], "symbols", symbolsRead[p]);
+		}
+
+		//One row per property
+		String[] names = new String[properties.length];
+		String[] algorithmNames = new String[properties.length];
+		int[] members = new int[properties.length];
+		int[] millis = new int[properties.length];
+		for(int p = 0; p < properties.length; p++) {
+			names[p] = properties[p];
+			algorithmNames[p] = algorithms[p].name;
+			members[p] = memberships[p] ? 1 : 0;
+			millis[p] = (int) (times[p]/1000000);
+		}
+		addCsvColumn(members, "member");
+		addCsvColumn(millis, "time");
+		addCsvColumn(symbolsRead, "symbols");
+		addCsvColumn(names, "property");
+		addCsvColumn(algorithmNames, "algorithm");
+	}
+
+	@Override
+	protected void customPrint(ResultsContainer rc) {
+		rc.println("Trace: " + trace.size() + " symbols, decoded once, "
+				   + (parallel ? "engines in parallel" : "engines in lockstep"));
+		long total = 0;
+		for(int p = 0; p < properties.length; p++) {
+			rc.println(properties[p] + " (" + algorithms[p] + "): "
+					   + (memberships[p] ? "member" : "not a member")
+					   + " after " + symbolsRead[p] + " symbols, "
+					   + prettyPrintMillis(times[p]/1000000));
+			total += times[p];
+		}
+		rc.println("Total engine time: " + prettyPrintMillis(total/1000000));
+	}
+
+	//Tools
+	private void runLockstep() {
+		List<Integer> remaining = new ArrayList<>();
+		IncrementalSearch[] searches = new IncrementalSearch[properties.length];
+		for(int p = 0; p < properties.length; p++) {
+			searches[p] = algorithms[p].startSearch(contexts[p]);
+			if(searches[p] == null)
+				remaining.add(p);
+		}
+
+		//Every engine reads a block while it is still in the caches
+		for(int from = 0; from < trace.size(); from += BLOCK_SIZE) {
+			int to = Math.min(from + BLOCK_SIZE, trace.size());
+			for(int p = 0; p < properties.length; p++) {
+				IncrementalSearch search = searches[p];
+				if(search == null || search.isDead())
+					continue;
+
+				long start = System.nanoTime();
+				for(int i = from; i < to && !search.isDead(); i++)
+					search.read(trace.get(i));
+				times[p] += System.nanoTime() - start;
+			}
+		}
+
+		for(int p = 0; p < properties.length; p++) {
+			if(searches[p] == null)
+				continue;
+			memberships[p] = searches[p].accepts();
+			symbolsRead[p] = searches[p].getPosition();
+			signalProgression();
+		}
+
+		//Then the others, on the same buffer
+		List<Integer> word = trace.asList();
+		for(int p : remaining) {
+			decide(p, word);
+			signalProgression();
+		}
+	}
+
+	private void runParallel() {
+		final List<Integer> word = trace.asList();
+		List<RecursiveAction> engines = new ArrayList<>();
+		for(int p = 0; p < properties.length; p++) {
+			final int property = p;
+			engines.add(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					decide(property, word);
+				}
+			});
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(properties.length, Runtime.getRuntime().availableProcessors())));
+		try {
+			for(RecursiveAction engine : engines)
+				pool.execute(engine);
+			for(RecursiveAction engine : engines)
+				engine.join();
+		} finally {
+			pool.shutdown();
+		}
+
+		for(int p = 0; p < properties.length; p++)
+			signalProgression();
+	}
+
+	private void decide(int p, List<Integer> word) {
+		long start = System.nanoTime();
+		memberships[p] = algorithms[p].decide(contexts[p], word);
+		times[p] = System.nanoTime() - start;
+		symbolsRead[p] = word.size();
+	}
+}
@@ -0,0 +1,186 @@
+package testbench.tests;
+
+import java.util.Random;
+
+import algorithms.Tools;
+import algorithms.tools.ResultsContainer;
+import automata.RegisterIndex;
+import testbench.Test;
+import testbench.TestException;
+
+/**
+ * <p>Micro benchmark comparing a linear scan of the registers with a
+ * {@link RegisterIndex}, for growing register counts.</p>
+ * <p>Each step mimics the expansion of a configuration: look a symbol up
+ * and assign it to a register if it is missing. A second series also
+ * copies the register file (and its index) at each step, as happens when
+ * a configuration has several successors. The crossover point is the
+ * smallest register count for which the index wins, and should be
+ * reflected in {@link RegisterIndex#LINEAR_SCAN_LIMIT}.</p>
+ * @author vincent
+ *
+ */
+public class RegisterIndexTest extends Test {
+	private static final int WARMUP_ROUNDS = 3;
+
+	private final int[] registerCounts;
+	private final int steps;
+
+	//Results
+	private final int[] linearTimes;
+	private final int[] indexedTimes;
+	private final int[] linearCopyTimes;
+	private final int[] indexedCopyTimes;
+	private int crossover = -1;
+	private int copyCrossover = -1;
+	private long checksum = 0L;
+
+	/**
+	 * @param registerCounts the register file sizes to try, increasing
+	 * @param steps number of simulated expansions per size
+	 */
+	public RegisterIndexTest(int[] registerCounts, int steps) {
+		super("Register index crossover", null);
+		this.registerCounts = registerCounts;
+		this.steps = steps;
+
+		maxProgression = registerCounts.length;
+		linearTimes = new int[registerCounts.length];
+		indexedTimes = new int[registerCounts.length];
+		linearCopyTimes = new int[registerCounts.length];
+		indexedCopyTimes = new int[registerCounts.length];
+	}
+
+	@Override
+	protected void run() throws TestException {
+		//Let the JIT compile every path before measuring anything
+		for(int round = 0; round < WARMUP_ROUNDS; round++) {
+			for(int n : registerCounts) {
+				int[] symbols = symbolStream(n, steps/10);
+				checksum += runLinear(n, symbols, false) + runIndexed(n, symbols, false);
+				checksum += runLinear(n, symbols, true) + runIndexed(n, symbols, true);
+			}
+		}
+
+		for(int i = 0; i < registerCounts.length; i++) {
+			int n = registerCounts[i];
+			int[] symbols = symbolStream(n, steps);
+
+			linearTimes[i] = time(n, symbols, false, false);
+			indexedTimes[i] = time(n, symbols, true, false);
+			linearCopyTimes[i] = time(n, symbols, false, true);
+			indexedCopyTimes[i] = time(n, symbols, true, true);
+
+			signalProgression();
+		}
+
+		crossover = findCrossover(linearTimes, indexedTimes);
+		copyCrossover = findCrossover(linearCopyTimes, indexedCopyTimes);
+
+		addCsvColumn(registerCounts, "Registers");
+		addCsvColumn(linearTimes, "Linear scan (ns/step)");
+		addCsvColumn(indexedTimes, "Register index (ns/step)");
+		addCsvColumn(linearCopyTimes, "Linear scan with copy (ns/step)");
+		addCsvColumn(indexedCopyTimes, "Register index with copy (ns/step)");
+	}
+
+	/**
+	 * @return the average time of a step in ns
+	 * @throws TestException if the index and the scan disagree
+	 */
+	private int time(int n, int[] symbols, boolean indexed, boolean copy) throws TestException {
+		long cTime = System.nanoTime();
+		long sum = indexed ? runIndexed(n, symbols, copy) : runLinear(n, symbols, copy);
+		int time = (int) ((System.nanoTime()-cTime)/(symbols.length/2));
+
+		if(sum != runLinear(n, symbols, false))
+			throw new TestException("Consistency failure: index and scan disagree for " + n + " registers");
+		checksum += sum;
+
+		return time;
+	}
+
+	/**
+	 * Pairs of (symbol, register to assign it to if it is missing)
+	 */
+	private int[] symbolStream(int n, int steps) {
+		Random random = new Random(n);
+		int[] symbols = new int[2*steps];
+		for(int i = 0; i < symbols.length; i += 2) {
+			symbols[i] = random.nextInt(2*n);
+			symbols[i+1] = random.nextInt(n);
+		}
+		return symbols;
+	}
+
+	private long runLinear(int n, int[] symbols, boolean copy) {
+		int[] registers = initialRegisters(n);
+		long sum = 0L;
+
+		for(int i = 0; i < symbols.length; i += 2) {
+			int r = Tools.registersContain(registers, symbols[i]);
+			if(r < 0) {
+				r = symbols[i+1];
+				registers[r] = symbols[i];
+			}
+			if(copy)
+				registers = registers.clone();
+			sum += r;
+		}
+
+		return sum;
+	}
+
+	private long runIndexed(int n, int[] symbols, boolean copy) {
+		int[] registers = initialRegisters(n);
+		RegisterIndex index = new RegisterIndex(registers);
+		long sum = 0L;
+
+		for(int i = 0; i < symbols.length; i += 2) {
+			int r = index.find(symbols[i]);
+			if(r < 0) {
+				r = symbols[i+1];
+				index.assign(registers, r, symbols[i]);
+			}
+			if(copy) {
+				registers = registers.clone();
+				index = index.copy();
+			}
+			sum += r;
+		}
+
+		return sum;
+	}
+
+	private int findCrossover(int[] linear, int[] indexed) {
+		//Smallest count from which the index always wins (ignores isolated noisy points)
+		int result = -1;
+		for(int i = registerCounts.length-1; i >= 0 && indexed[i] < linear[i]; i--)
+			result = registerCounts[i];
+		return result;
+	}
+
+	private int[] initialRegisters(int n) {
+		//Half of the registers start empty, as in most generated automata
+		int[] registers = new int[n];
+		for(int r = 0; r < n; r++)
+			registers[r] = r % 2 == 0 ? r : -1;
+		return registers;
+	}
+
+	@Override
+	protected void customPrint(ResultsContainer rc) {
+		for(int i = 0; i < registerCounts.length; i++)
+			rc.println(registerCounts[i] + " registers: scan " + linearTimes[i] + "ns, index " + indexedTimes[i] 
+					   + "ns | with copy: scan " + linearCopyTimes[i] + "ns, index " + indexedCopyTimes[i] + "ns");
+
+		rc.println("Lookups only: " + printCrossover(crossover));
+		rc.println("Lookups and copies: " + printCrossover(copyCrossover));
+		rc.println("Current limit: " + RegisterIndex.LINEAR_SCAN_LIMIT + " (checksum " + checksum + ")");
+	}
+	
+	private String printCrossover(int n) {
+		return n < 0 ? "the register index never beats the linear scan" 
+					 : "the register index wins from " + n + " registers on";
+	}
+}